@@ -1,8 +1,12 @@
 
     drop table if exists holiday cascade;
 
+    drop sequence if exists entity_id_seq;
+
+    create sequence entity_id_seq start with 1 increment by 50;
+
     create table holiday (
-        id bigserial not null,
+        id bigint not null,
         createdDate timestamp(6) with time zone,
         updatedDate timestamp(6) with time zone,
         day integer,
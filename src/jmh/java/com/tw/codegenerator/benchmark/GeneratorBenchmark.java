@@ -0,0 +1,114 @@
+package com.tw.codegenerator.benchmark;
+
+import com.tw.codegenerator.freemarker.TemplateGenerator;
+import com.tw.codegenerator.javapoet.DomainLayerGenerator;
+import com.tw.codegenerator.javapoet.DomainTypeSummary;
+import com.tw.codegenerator.javapoet.InfraLayerGeneratorV2;
+import com.tw.codegenerator.javapoet.ResourceLayerGenerator;
+import com.tw.codegenerator.metadata.Domain;
+import com.tw.codegenerator.output.NullOutputSink;
+import com.tw.codegenerator.spec.OpenApiSpecRepository;
+import com.tw.codegenerator.spec.SymbolTable;
+import com.tw.codegenerator.utils.OpenApiHelper;
+import io.swagger.v3.oas.models.OpenAPI;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of the generators over synthetic inputs, writing into a {@link NullOutputSink}.
+ * <p>
+ * Besides the per invocation score every benchmark reports the {@code files} counter, the number of generated
+ * files per second. Run with {@code ./gradlew jmh}, the gc profiler adds {@code gc.alloc.rate.norm}, which divided
+ * by {@code size} is the allocation per generated type.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class GeneratorBenchmark {
+
+    private static final String BASE_PACKAGE = "com.tw.capability.benchmark";
+
+    @Param({"10", "100", "1000", "10000"})
+    public int size;
+
+    private List<Domain> domains;
+
+    private List<DomainTypeSummary> domainTypes;
+
+    private OpenAPI openAPI;
+
+    private List<String> aggregateNames;
+
+    private final NullOutputSink sink = new NullOutputSink();
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class GeneratedFiles {
+
+        public long files;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            files = 0;
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        domains = SyntheticInputs.domains(size);
+        domainTypes = new DomainLayerGenerator(BASE_PACKAGE, new NullOutputSink()).generate(domains);
+        openAPI = SyntheticInputs.openApi(size);
+        aggregateNames = domains.stream().map(Domain::getTypeName).toList();
+    }
+
+    @Benchmark
+    public List<DomainTypeSummary> domainLayer(GeneratedFiles generatedFiles) {
+        var before = sink.getFiles();
+        var classes = new DomainLayerGenerator(BASE_PACKAGE, sink).generate(domains);
+        generatedFiles.files += sink.getFiles() - before;
+        return classes;
+    }
+
+    @Benchmark
+    public void infraLayer(GeneratedFiles generatedFiles) throws ClassNotFoundException {
+        var before = sink.getFiles();
+        new InfraLayerGeneratorV2(BASE_PACKAGE, sink).generateBySummaries(domainTypes);
+        generatedFiles.files += sink.getFiles() - before;
+    }
+
+    @Benchmark
+    public void openApiSchemas(GeneratedFiles generatedFiles) {
+        var before = sink.getFiles();
+        new OpenApiHelper(BASE_PACKAGE, "DTO", sink).generateBySchemas(openAPI.getComponents().getSchemas());
+        generatedFiles.files += sink.getFiles() - before;
+    }
+
+    @Benchmark
+    public void openApiSchemasParallel(GeneratedFiles generatedFiles) {
+        var before = sink.getFiles();
+        new OpenApiHelper(BASE_PACKAGE, "DTO", sink, SymbolTable.unchecked(BASE_PACKAGE), ForkJoinPool.commonPool())
+            .generateBySchemas(openAPI.getComponents().getSchemas());
+        generatedFiles.files += sink.getFiles() - before;
+    }
+
+    @Benchmark
+    public void resourceLayer(GeneratedFiles generatedFiles) {
+        var before = sink.getFiles();
+        new ResourceLayerGenerator(BASE_PACKAGE, OpenApiSpecRepository.shared(), sink).generate(openAPI);
+        generatedFiles.files += sink.getFiles() - before;
+    }
+
+    @Benchmark
+    public void templates(GeneratedFiles generatedFiles) throws IOException {
+        var before = sink.getFiles();
+        new TemplateGenerator(sink).generate(aggregateNames, List.of("Service.java.ftl"));
+        generatedFiles.files += sink.getFiles() - before;
+    }
+}
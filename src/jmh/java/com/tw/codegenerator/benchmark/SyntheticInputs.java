@@ -0,0 +1,127 @@
+package com.tw.codegenerator.benchmark;
+
+import com.tw.codegenerator.metadata.*;
+import io.swagger.v3.oas.models.Components;
+import io.swagger.v3.oas.models.OpenAPI;
+import io.swagger.v3.oas.models.Operation;
+import io.swagger.v3.oas.models.PathItem;
+import io.swagger.v3.oas.models.Paths;
+import io.swagger.v3.oas.models.media.*;
+import io.swagger.v3.oas.models.parameters.Parameter;
+import io.swagger.v3.oas.models.parameters.RequestBody;
+import io.swagger.v3.oas.models.responses.ApiResponse;
+import io.swagger.v3.oas.models.responses.ApiResponses;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+
+/**
+ * Generator inputs of arbitrary size, shaped like the Order reference model.
+ */
+final class SyntheticInputs {
+
+    private SyntheticInputs() {
+    }
+
+    static String typeName(int index) {
+        return "Type" + index;
+    }
+
+    /**
+     * One aggregate root followed by {@code size} domain types, each referencing the next one and holding a
+     * collection of it, so the aggregate is {@code size} entities deep.
+     */
+    static List<Domain> domains(int size) {
+        var domains = new ArrayList<Domain>(size + 1);
+
+        var root = new Domain();
+        root.setTypeName("Root");
+        root.setDomainType(DomainType.ENTITY);
+        root.setAggregateRoot(true);
+        root.setFields(List.of(
+            new Field("first", FieldType.OBJECT, typeName(0), null),
+            new Field("all", FieldType.ARRAY, typeName(0), null),
+            new Field("paid", FieldType.BOOLEAN, null, null),
+            new Field("status", FieldType.ENUM, "Root.Status", List.of("PAID", "UNPAID"))));
+        root.setMethods(List.of(MethodType.CREATE, MethodType.UPDATE, MethodType.DELETE,
+            MethodType.QUERY_BY_ID, MethodType.QUERY_BY_CRITERIA));
+        domains.add(root);
+
+        for (int i = 0; i < size; i++) {
+            var typeName = typeName(i);
+            var fields = new ArrayList<Field>();
+            fields.add(new Field("name", FieldType.STRING, null, null));
+            fields.add(new Field("amount", FieldType.NUMBER, null, null));
+            fields.add(new Field("count", FieldType.INTEGER, null, null));
+            fields.add(new Field("state", FieldType.ENUM, typeName + ".State", List.of("ACTIVE", "INACTIVE")));
+            if (i + 1 < size) {
+                fields.add(new Field("next", FieldType.OBJECT, typeName(i + 1), null));
+                fields.add(new Field("children", FieldType.ARRAY, typeName(i + 1), null));
+            }
+
+            var domain = new Domain();
+            domain.setTypeName(typeName);
+            domain.setDomainType(i % 2 == 0 ? DomainType.ENTITY : DomainType.VALUE_OBJECT);
+            domain.setAggregateRoot(false);
+            domain.setFields(fields);
+            domains.add(domain);
+        }
+        return domains;
+    }
+
+    /**
+     * {@code size} schemas, each exposed through a GET by id path and a POST path with its own request body.
+     */
+    static OpenAPI openApi(int size) {
+        var schemas = new LinkedHashMap<String, Schema>();
+        var requestBodies = new LinkedHashMap<String, RequestBody>();
+        var paths = new Paths();
+
+        for (int i = 0; i < size; i++) {
+            var typeName = typeName(i);
+            schemas.put(typeName, objectSchema(i));
+            requestBodies.put("Create" + typeName + "Request", new RequestBody()
+                .content(new Content().addMediaType("application/json", new MediaType().schema(objectSchema(i)))));
+
+            var getById = new Operation()
+                .addTagsItem(typeName)
+                .summary("Get" + typeName + "ById")
+                .addParametersItem(new Parameter().in("path").name("id").required(true).schema(new StringSchema()))
+                .responses(new ApiResponses().addApiResponse("200", new ApiResponse()
+                    .content(new Content().addMediaType("application/json",
+                        new MediaType().schema(new Schema<>().$ref("#/components/schemas/" + typeName))))));
+            var create = new Operation()
+                .addTagsItem(typeName)
+                .summary("Create" + typeName)
+                .requestBody(new RequestBody().$ref("#/components/requestBodies/Create" + typeName + "Request"))
+                .responses(new ApiResponses().addApiResponse("200", new ApiResponse()));
+
+            var resource = "/" + typeName.toLowerCase() + "s";
+            paths.addPathItem(resource + "/{id}", new PathItem().get(getById));
+            paths.addPathItem(resource, new PathItem().post(create));
+        }
+
+        return new OpenAPI()
+            .paths(paths)
+            .components(new Components().schemas(schemas).requestBodies(requestBodies));
+    }
+
+    private static Schema<?> objectSchema(int index) {
+        var address = new ObjectSchema()
+            .addProperty("city", new StringSchema())
+            .addProperty("address_line", new StringSchema());
+        var schema = new ObjectSchema()
+            .addProperty("name", new StringSchema())
+            .addProperty("amount", new NumberSchema())
+            .addProperty("count", new IntegerSchema())
+            .addProperty("active", new BooleanSchema())
+            .addProperty("state", new StringSchema()._enum(List.of("ACTIVE", "INACTIVE")))
+            .addProperty("address", address)
+            .addProperty("labels", new ArraySchema().items(new StringSchema()));
+        if (index > 0) {
+            schema.addProperty("previous", new Schema<>().$ref("#/components/schemas/" + typeName(index - 1)));
+        }
+        return schema;
+    }
+}
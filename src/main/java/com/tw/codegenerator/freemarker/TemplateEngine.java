@@ -0,0 +1,88 @@
+package com.tw.codegenerator.freemarker;
+
+import com.tw.codegenerator.output.OutputSink;
+import freemarker.template.Configuration;
+import freemarker.template.Template;
+import freemarker.template.TemplateException;
+import freemarker.template.TemplateExceptionHandler;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * One FreeMarker {@link Configuration} with every template under the template root compiled up front.
+ * Both are immutable after construction, so a single engine renders from any number of threads.
+ */
+@Slf4j
+public class TemplateEngine {
+
+    private static final TemplateEngine SHARED = new TemplateEngine("/templates");
+
+    private final Configuration configuration;
+
+    private final Map<String, Template> templates;
+
+    public TemplateEngine(String templateRoot) {
+        this.configuration = new Configuration(Configuration.VERSION_2_3_30);
+        configuration.setClassForTemplateLoading(TemplateEngine.class, templateRoot);
+        configuration.setDefaultEncoding("UTF-8");
+        configuration.setTemplateExceptionHandler(TemplateExceptionHandler.RETHROW_HANDLER);
+        configuration.setLogTemplateExceptions(false);
+        this.templates = precompile(templateRoot);
+    }
+
+    public static TemplateEngine shared() {
+        return SHARED;
+    }
+
+    public Set<String> getTemplateNames() {
+        return templates.keySet();
+    }
+
+    public void render(String templateName, Object dataModel, Writer writer) throws IOException {
+        var template = templates.get(templateName);
+        if (template == null) {
+            throw new IllegalArgumentException("Template %s not found, known templates are %s".formatted(templateName, templates.keySet()));
+        }
+        try {
+            template.process(dataModel, writer);
+        } catch (TemplateException e) {
+            throw new IllegalStateException("Can not render template " + templateName, e);
+        }
+    }
+
+    /**
+     * Renders straight into {@code relativePath} of {@code sink}, without building the content as a string first.
+     */
+    public void render(String templateName, Object dataModel, OutputSink sink, String relativePath) throws IOException {
+        try (var writer = sink.openWriter(relativePath)) {
+            render(templateName, dataModel, writer);
+        }
+    }
+
+    private Map<String, Template> precompile(String templateRoot) {
+        var root = StringUtils.appendIfMissing(StringUtils.removeStart(templateRoot, "/"), "/");
+        var compiled = new TreeMap<String, Template>();
+        try {
+            for (var resource : new PathMatchingResourcePatternResolver().getResources("classpath*:" + root + "**/*.ftl")) {
+                var url = URLDecoder.decode(resource.getURL().toString(), StandardCharsets.UTF_8);
+                var templateName = url.substring(url.lastIndexOf(root) + root.length());
+                compiled.put(templateName, configuration.getTemplate(templateName));
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        log.info("Compiled {} templates under {}", compiled.size(), templateRoot);
+        return Collections.unmodifiableMap(compiled);
+    }
+}
@@ -1,62 +1,67 @@
 package com.tw.codegenerator.freemarker;
 
-import freemarker.template.Configuration;
-import freemarker.template.TemplateException;
+import com.tw.codegenerator.output.FileSystemOutputSink;
+import com.tw.codegenerator.output.OutputSink;
 import lombok.extern.slf4j.Slf4j;
 
-import java.io.BufferedWriter;
-import java.io.FileWriter;
 import java.io.IOException;
-import java.io.StringWriter;
-import java.nio.file.Files;
-import java.nio.file.Paths;
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 @Slf4j
 public class TemplateGenerator {
 
+    private static final String ROOT_PACKAGE = "com.tw.capability";
+
     private final Map<String, String> templateToPath = new HashMap<>();
 
+    private final TemplateEngine templateEngine;
+
+    private final OutputSink sink;
+
     public TemplateGenerator() {
+        this(FileSystemOutputSink.sourceRoot());
+    }
+
+    public TemplateGenerator(OutputSink sink) {
+        this(TemplateEngine.shared(), sink);
+    }
+
+    public TemplateGenerator(TemplateEngine templateEngine, OutputSink sink) {
+        this.templateEngine = templateEngine;
+        this.sink = sink;
         templateToPath.put("Service.java.ftl", "/app/service/");
     }
 
     public void generate(String aggregateRootName, String templateName) throws IOException {
-        var rootPackage = "com.tw.capability";
-        var rootPath = rootPackage.replace(".", "/") + "/";
-        var filePath = templateToPath.get(templateName);
-
-        var dataModel = new HashMap<String, Object>();
-        dataModel.put("rootPackage", rootPackage);
-        dataModel.put("aggregateRootName", aggregateRootName);
-
-        // 添加其他需要的变量
-        var configuration = new Configuration(Configuration.VERSION_2_3_30);
-        configuration.setClassForTemplateLoading(getClass(), "/templates"); // 设置模板文件的路径
-
-        var template = configuration.getTemplate(templateName); // 替换为你的模板文件名
-        var stringWriter = new StringWriter();
-        try {
-            template.process(dataModel, stringWriter);
-        } catch (TemplateException | IOException e) {
-            e.printStackTrace();
-        }
-        var generatedCode = stringWriter.toString();
+        generate(List.of(aggregateRootName), List.of(templateName));
+    }
 
-        // 保存生成的代码到文件
-        var baseFileName = templateName.substring(0, templateName.lastIndexOf('.'));
-        // 指定输出文件路径和名称
-        var fileFullPath = "src/main/java/" + rootPath + aggregateRootName.toLowerCase() + filePath + aggregateRootName + baseFileName;
+    /**
+     * Renders every template for every aggregate, each file streamed straight into the sink.
+     */
+    public void generate(Collection<String> aggregateRootNames, Collection<String> templateNames) throws IOException {
+        var rootPath = ROOT_PACKAGE.replace(".", "/") + "/";
+        for (String templateName : templateNames) {
+            var filePath = templateToPath.get(templateName);
+            if (filePath == null) {
+                throw new IllegalArgumentException("No output path configured for template " + templateName);
+            }
+            var baseFileName = templateName.substring(0, templateName.lastIndexOf('.'));
 
-        // 创建文件的目录路径（如果不存在）
-        Files.createDirectories(Paths.get(fileFullPath).getParent());
+            for (String aggregateRootName : aggregateRootNames) {
+                var dataModel = new HashMap<String, Object>();
+                dataModel.put("rootPackage", ROOT_PACKAGE);
+                dataModel.put("aggregateRootName", aggregateRootName);
 
-        try (BufferedWriter bufferedWriter = new BufferedWriter(new FileWriter(fileFullPath))) {
-            bufferedWriter.write(generatedCode);
-            log.info("Generated code saved to " + fileFullPath);
-        } catch (IOException e) {
-            e.printStackTrace();
+                // 指定输出文件路径和名称
+                var fileFullPath = rootPath + aggregateRootName.toLowerCase() + filePath + aggregateRootName + baseFileName;
+                templateEngine.render(templateName, dataModel, sink, fileFullPath);
+                log.debug("Generated code saved to {}", fileFullPath);
+            }
         }
+        log.info("Generated {} templates for {} aggregates", templateNames.size(), aggregateRootNames.size());
     }
 }
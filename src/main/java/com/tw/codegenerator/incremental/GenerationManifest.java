@@ -0,0 +1,46 @@
+package com.tw.codegenerator.incremental;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Maps every generation unit to the hash of its inputs and to the files it produced with their content hashes.
+ */
+public record GenerationManifest(Map<String, UnitEntry> units) {
+
+    private static final Gson GSON = new GsonBuilder().setPrettyPrinting().create();
+
+    public record UnitEntry(String inputHash, Map<String, String> outputs) {
+    }
+
+    public static GenerationManifest read(Path file) {
+        if (!Files.exists(file)) {
+            return new GenerationManifest(new TreeMap<>());
+        }
+        try {
+            var manifest = GSON.fromJson(Files.readString(file, StandardCharsets.UTF_8), GenerationManifest.class);
+            return manifest == null || manifest.units() == null ? new GenerationManifest(new TreeMap<>()) : manifest;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public void write(Path file) {
+        try {
+            if (file.getParent() != null) {
+                Files.createDirectories(file.getParent());
+            }
+            Files.writeString(file, GSON.toJson(this), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
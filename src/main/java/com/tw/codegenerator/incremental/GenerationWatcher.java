@@ -0,0 +1,200 @@
+package com.tw.codegenerator.incremental;
+
+import com.google.gson.Gson;
+import com.google.gson.reflect.TypeToken;
+import com.tw.codegenerator.metadata.Domain;
+import com.tw.codegenerator.pipeline.BoundedContext;
+import com.tw.codegenerator.pipeline.LayerGenerationOrchestrator;
+import com.tw.codegenerator.pipeline.PipelineReport;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import static java.nio.file.StandardWatchEventKinds.*;
+
+/**
+ * Regenerates whenever a watched spec or domain metadata file changes.
+ * <p>
+ * Changes are debounced, so saving several files or an editor writing a file in steps results in one run.
+ * Every run goes through an incremental {@link LayerGenerationOrchestrator}, so only the units whose inputs
+ * changed, e.g. the aggregates of an edited metadata file or the controllers of an edited tag, are generated again.
+ */
+@Slf4j
+public class GenerationWatcher implements Closeable {
+
+    private static final Gson GSON = new Gson();
+
+    private final LayerGenerationOrchestrator orchestrator;
+
+    private final List<WatchedContext> contexts;
+
+    private final Duration debounce;
+
+    private final Consumer<PipelineReport> onRegenerated;
+
+    private final WatchService watchService;
+
+    private final ScheduledExecutorService scheduler;
+
+    private final Set<Path> watchedFiles = new HashSet<>();
+
+    private final Set<Path> changedFiles = new LinkedHashSet<>();
+
+    private ScheduledFuture<?> pendingRun;
+
+    private Thread watchThread;
+
+    /**
+     * @param domainsFile JSON array of {@link Domain}
+     */
+    public record WatchedContext(String basePackage, Path domainsFile, Path openApiFile) {
+
+        BoundedContext load() {
+            try {
+                var json = Files.readString(domainsFile, StandardCharsets.UTF_8);
+                List<Domain> domains = GSON.fromJson(json, new TypeToken<List<Domain>>() { }.getType());
+                return new BoundedContext(basePackage, domains, openApiFile.toString());
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    /**
+     * @param orchestrator should be created with a manifest file, otherwise every change regenerates everything
+     */
+    public GenerationWatcher(LayerGenerationOrchestrator orchestrator, List<WatchedContext> contexts, Duration debounce) {
+        this(orchestrator, contexts, debounce, report -> { });
+    }
+
+    /**
+     * @param onRegenerated called after every run that succeeded, the initial one included
+     */
+    public GenerationWatcher(LayerGenerationOrchestrator orchestrator, List<WatchedContext> contexts, Duration debounce,
+                             Consumer<PipelineReport> onRegenerated) {
+        this.orchestrator = orchestrator;
+        this.contexts = List.copyOf(contexts);
+        this.debounce = debounce;
+        this.onRegenerated = onRegenerated;
+        try {
+            this.watchService = FileSystems.getDefault().newWatchService();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            var thread = new Thread(runnable, "generation-watcher-run");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Generates once and then keeps watching until {@link #close()}.
+     */
+    public synchronized void start() {
+        if (watchThread != null) {
+            throw new IllegalStateException("Watcher is already started.");
+        }
+        var directories = new HashSet<Path>();
+        for (WatchedContext context : contexts) {
+            for (Path file : List.of(context.domainsFile(), context.openApiFile())) {
+                var absolute = file.toAbsolutePath().normalize();
+                watchedFiles.add(absolute);
+                directories.add(absolute.getParent());
+            }
+        }
+        try {
+            // editors often replace a file instead of writing it, so creations count as well
+            for (Path directory : directories) {
+                directory.register(watchService, ENTRY_CREATE, ENTRY_MODIFY);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        regenerate(Set.copyOf(watchedFiles));
+        watchThread = new Thread(this::watch, "generation-watcher");
+        watchThread.setDaemon(true);
+        watchThread.start();
+        log.info("Watching {} for changes", watchedFiles);
+    }
+
+    private void watch() {
+        try {
+            while (true) {
+                var key = watchService.take();
+                var directory = (Path) key.watchable();
+                for (WatchEvent<?> event : key.pollEvents()) {
+                    if (event.kind() == OVERFLOW) {
+                        changed(watchedFiles);
+                        continue;
+                    }
+                    var file = directory.resolve((Path) event.context()).normalize();
+                    if (watchedFiles.contains(file)) {
+                        changed(Set.of(file));
+                    }
+                }
+                key.reset();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ClosedWatchServiceException e) {
+            log.debug("Watch service closed");
+        }
+    }
+
+    private synchronized void changed(Set<Path> files) {
+        changedFiles.addAll(files);
+        if (pendingRun != null) {
+            pendingRun.cancel(false);
+        }
+        pendingRun = scheduler.schedule(() -> {
+            Set<Path> changes;
+            synchronized (this) {
+                changes = Set.copyOf(changedFiles);
+                changedFiles.clear();
+            }
+            regenerate(changes);
+        }, debounce.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Every context is passed to the orchestrator, so that the outputs of the unchanged ones are not taken for
+     * stale. Their units are skipped by hash.
+     */
+    private void regenerate(Set<Path> changes) {
+        var start = System.nanoTime();
+        try {
+            var boundedContexts = contexts.stream().map(WatchedContext::load).toList();
+            PipelineReport report = orchestrator.generateContexts(boundedContexts);
+            log.info("Regenerated after changes of {} in {}ms (pipeline {}ms)", changes,
+                (System.nanoTime() - start) / 1_000_000, report.total().toMillis());
+            onRegenerated.accept(report);
+        } catch (RuntimeException e) {
+            // a half edited spec must not stop the watcher, the next save triggers another run
+            log.error("Regeneration after changes of {} failed", changes, e);
+        }
+    }
+
+    @Override
+    public synchronized void close() {
+        try {
+            watchService.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            scheduler.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,150 @@
+package com.tw.codegenerator.incremental;
+
+import com.tw.codegenerator.output.FileSystemOutputSink;
+import com.tw.codegenerator.output.OutputSink;
+import com.tw.codegenerator.utils.ContentHash;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.stream.Collectors;
+
+/**
+ * One incremental generation run against a {@link GenerationManifest}.
+ * A unit whose input hash and outputs are unchanged is skipped entirely. A unit that runs only rewrites files
+ * whose bytes differ, and files it produced in the previous run but no longer does are deleted on {@link #finish()}.
+ * Units of the previous run that are not part of this one, e.g. of another aggregate or bounded context, keep their
+ * files and their manifest entries.
+ */
+@Slf4j
+public class IncrementalGeneration {
+
+    private final Path outputRoot;
+
+    private final Path manifestFile;
+
+    private final OutputSink delegate;
+
+    private final GenerationManifest previous;
+
+    private final Map<String, GenerationManifest.UnitEntry> units = new ConcurrentHashMap<>();
+
+    @FunctionalInterface
+    public interface UnitGeneration<T> {
+
+        T generate(OutputSink sink) throws Exception;
+    }
+
+    private IncrementalGeneration(Path outputRoot, Path manifestFile, OutputSink delegate) {
+        this.outputRoot = outputRoot;
+        this.manifestFile = manifestFile;
+        this.delegate = delegate;
+        this.previous = GenerationManifest.read(manifestFile);
+    }
+
+    public static IncrementalGeneration open(Path outputRoot, Path manifestFile) {
+        return new IncrementalGeneration(outputRoot, manifestFile, new FileSystemOutputSink(outputRoot));
+    }
+
+    /**
+     * Writes that do survive the byte comparison go to {@code delegate}, which must write below {@code outputRoot}.
+     */
+    public static IncrementalGeneration open(Path outputRoot, Path manifestFile, OutputSink delegate) {
+        return new IncrementalGeneration(outputRoot, manifestFile, delegate);
+    }
+
+    /**
+     * Whether the unit ran with {@code inputHash} before and every output still holds the bytes it generated, so that
+     * deleted and edited outputs are generated again.
+     */
+    public boolean isUpToDate(String unitKey, String inputHash) {
+        var entry = previous.units().get(unitKey);
+        return entry != null
+            && entry.inputHash().equals(inputHash)
+            && entry.outputs().entrySet().stream().allMatch(output -> holds(output.getKey(), output.getValue()));
+    }
+
+    public <T> Optional<T> run(String unitKey, String inputHash, boolean force, UnitGeneration<T> generation) throws Exception {
+        if (!force && isUpToDate(unitKey, inputHash)) {
+            log.info("Skip up-to-date unit {}", unitKey);
+            units.put(unitKey, previous.units().get(unitKey));
+            return Optional.empty();
+        }
+
+        var unitSink = new UnitSink();
+        var result = generation.generate(unitSink);
+        units.put(unitKey, new GenerationManifest.UnitEntry(inputHash, new TreeMap<>(unitSink.outputs)));
+        return Optional.ofNullable(result);
+    }
+
+    public void finish() {
+        delegate.flush();
+
+        var visited = Set.copyOf(units.keySet());
+        previous.units().forEach(units::putIfAbsent);
+        // an output may have moved to another unit, so it is stale only when no unit produces it anymore
+        var produced = units.values().stream()
+            .flatMap(entry -> entry.outputs().keySet().stream())
+            .collect(Collectors.toSet());
+
+        previous.units().entrySet().stream()
+            .filter(unit -> visited.contains(unit.getKey()))
+            .flatMap(unit -> unit.getValue().outputs().keySet().stream())
+            .filter(output -> !produced.contains(output))
+            .distinct()
+            .forEach(this::delete);
+
+        new GenerationManifest(new TreeMap<>(units)).write(manifestFile);
+    }
+
+    private boolean holds(String output, String contentHash) {
+        var file = outputRoot.resolve(output);
+        try {
+            return Files.isRegularFile(file) && ContentHash.sha256(Files.readAllBytes(file)).equals(contentHash);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void delete(String output) {
+        try {
+            if (Files.deleteIfExists(outputRoot.resolve(output))) {
+                log.info("Deleted stale output {}", output);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private class UnitSink implements OutputSink {
+
+        private final Map<String, String> outputs = new ConcurrentSkipListMap<>();
+
+        @Override
+        public void write(String relativePath, String content) {
+            var bytes = content.getBytes(StandardCharsets.UTF_8);
+            outputs.put(relativePath, ContentHash.sha256(bytes));
+
+            var file = outputRoot.resolve(relativePath);
+            try {
+                if (Files.exists(file) && Arrays.equals(Files.readAllBytes(file), bytes)) {
+                    return;
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            delegate.write(relativePath, content);
+        }
+
+        @Override
+        public void flush() {
+            delegate.flush();
+        }
+    }
+}
@@ -1,19 +1,28 @@
 package com.tw.codegenerator.javapoet;
 
+import com.tw.codegenerator.metadata.MethodType;
+import com.tw.codegenerator.output.OutputSink;
+import com.tw.common.criteria.Condition;
+import com.tw.common.criteria.KeysetSlice;
 import com.tw.common.criteria.QuerySchema;
-import com.tw.common.criteria.SpecificationBuilder;
+import com.tw.common.criteria.SpecificationQueries;
+import com.tw.common.seedwork.BaseEntity;
+import jakarta.persistence.EntityManager;
 import jakarta.persistence.EntityNotFoundException;
 import org.apache.commons.lang3.StringUtils;
+import org.hibernate.Session;
 import org.mapstruct.CollectionMappingStrategy;
 import org.mapstruct.Mapper;
 import org.springframework.data.domain.Page;
-import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.support.JpaRepositoryImplementation;
 import org.springframework.javapoet.*;
 import org.springframework.stereotype.Component;
 import org.springframework.stereotype.Repository;
 
 import javax.lang.model.element.Modifier;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
 
@@ -21,8 +30,15 @@ import static com.tw.codegenerator.utils.GeneratorHelper.generateFile;
 
 public abstract class AbstractInfraLayerGenerator {
 
+    /**
+     * One id sequence call per batch, see {@link BaseEntity}.
+     */
+    private static final int JDBC_BATCH_SIZE = BaseEntity.ID_ALLOCATION_SIZE;
+
     private static final ClassName requiredArgsConstructorAnnotationClass = ClassName.get("lombok", "RequiredArgsConstructor");
 
+    private static final TypeVariableName PROJECTION_TYPE = TypeVariableName.get("P");
+
     private final String infraAdaptorPackage;
 
     private final String mapperPackage;
@@ -35,7 +51,10 @@ public abstract class AbstractInfraLayerGenerator {
 
     private final String domainAdaptorPackage;
 
-    protected AbstractInfraLayerGenerator(String basePackage) {
+    protected final OutputSink sink;
+
+    protected AbstractInfraLayerGenerator(String basePackage, OutputSink sink) {
+        this.sink = sink;
         var infraPackage = basePackage + ".infra";
         this.infraAdaptorPackage = infraPackage + ".adaptor";
         this.mapperPackage = infraPackage + ".convertor";
@@ -81,10 +100,10 @@ public abstract class AbstractInfraLayerGenerator {
             .addMethod(entityToDomainMethod)
             .build();
 
-        generateFile(mapperPackage, mapperClass);
+        generateFile(sink, mapperPackage, mapperClass);
     }
 
-    void generateRepository(String domainName) {
+    void generateRepository(String domainName, Collection<MethodType> methods) {
         var entityClassName = ClassName.get(entityPackage, domainName + "Entity");
 
         var findByIdMethod = MethodSpec.methodBuilder("findBy%sId".formatted(domainName))
@@ -93,17 +112,25 @@ public abstract class AbstractInfraLayerGenerator {
             .returns(ParameterizedTypeName.get(ClassName.get(Optional.class), entityClassName))
             .build();
 
-        var repositoryClass = TypeSpec.interfaceBuilder(domainName + "EntityRepository")
+        var repositoryBuilder = TypeSpec.interfaceBuilder(domainName + "EntityRepository")
             .addModifiers(Modifier.PUBLIC)
             .addSuperinterface(ParameterizedTypeName.get(ClassName.get(JpaRepositoryImplementation.class), entityClassName, ClassName.get(Long.class)))
             .addAnnotation(Repository.class)
-            .addMethod(findByIdMethod)
-            .build();
+            .addMethod(findByIdMethod);
+
+        if (loadsBatches(methods)) {
+            // one IN query per chunk instead of one findById per aggregate
+            repositoryBuilder.addMethod(MethodSpec.methodBuilder("findAllBy%sIdIn".formatted(domainName))
+                .addModifiers(Modifier.PUBLIC, Modifier.ABSTRACT)
+                .addParameter(ParameterizedTypeName.get(ClassName.get(Collection.class), ClassName.get(UUID.class)), StringUtils.uncapitalize(domainName) + "Ids")
+                .returns(ParameterizedTypeName.get(ClassName.get(List.class), entityClassName))
+                .build());
+        }
 
-        generateFile(repositoryPackage, repositoryClass);
+        generateFile(sink, repositoryPackage, repositoryBuilder.build());
     }
 
-    void generateAdaptorImpl(String domainName) {
+    void generateAdaptorImpl(String domainName, Collection<MethodType> methods) {
         var uncapitalizedDomainName = StringUtils.uncapitalize(domainName);
         var repositoryClassName = ClassName.get(repositoryPackage, domainName + "EntityRepository");
         var repositoryFieldName = uncapitalizedDomainName + "EntityRepository";
@@ -149,30 +176,110 @@ public abstract class AbstractInfraLayerGenerator {
             .addModifiers(Modifier.PUBLIC)
             .addParameter(QuerySchema.class, "querySchema")
             .returns(ParameterizedTypeName.get(ClassName.get(Page.class), domainClassName))
-            .addCode(CodeBlock.builder()
-                .addStatement("var page = $LEntityRepository.findAll($T.build(querySchema), querySchema.getPageable())",
-                    uncapitalizedDomainName,
-                    SpecificationBuilder.class
-                )
-                .addStatement("return new $T<>(page.getContent().stream().map($T.INSTANCE::to$L).toList(), page.getPageable(), page.getTotalElements())",
-                    PageImpl.class,
-                    mapperClassName,
-                    domainName
-                )
-                .build())
+            .addStatement("return $T.findPage(entityManager, $T.class, querySchema).map($T.INSTANCE::to$L)",
+                SpecificationQueries.class, ClassName.get(entityPackage, domainName + "Entity"), mapperClassName, domainName)
             .build();
 
-        var adaptorClass = TypeSpec.classBuilder(domainName + "AdaptorImpl")
+        var adaptorBuilder = TypeSpec.classBuilder(domainName + "AdaptorImpl")
             .addModifiers(Modifier.PUBLIC)
             .addSuperinterface(ClassName.get(domainAdaptorPackage, domainName + "Adaptor"))
             .addAnnotation(Component.class)
             .addAnnotation(requiredArgsConstructorAnnotationClass)
             .addField(FieldSpec.builder(repositoryClassName, repositoryFieldName).addModifiers(Modifier.PRIVATE, Modifier.FINAL).build())
+            .addField(FieldSpec.builder(EntityManager.class, "entityManager").addModifiers(Modifier.PRIVATE, Modifier.FINAL).build())
             .addMethod(saveMethod)
             .addMethod(findById)
-            .addMethod(findAllMethod)
-            .build();
+            .addMethod(findAllMethod);
+
+        if (methods.stream().anyMatch(MethodType::isBatch)) {
+            addBatchMethods(adaptorBuilder, domainName, loadsBatches(methods));
+        }
+        var projectionClass = ParameterizedTypeName.get(ClassName.get(Class.class), PROJECTION_TYPE);
+        var entityClassName = ClassName.get(entityPackage, domainName + "Entity");
+        if (methods.contains(MethodType.QUERY_BY_ID)) {
+            // read models select their columns only, without loading the aggregate
+            adaptorBuilder.addMethod(MethodSpec.methodBuilder("findBy%sId".formatted(domainName))
+                .addAnnotation(Override.class)
+                .addModifiers(Modifier.PUBLIC)
+                .addTypeVariable(PROJECTION_TYPE)
+                .addParameter(UUID.class, uncapitalizedDomainName + "Id")
+                .addParameter(projectionClass, "projection")
+                .returns(PROJECTION_TYPE)
+                .addStatement("return $T.findProjections(entityManager, $T.class, projection, new $T(new $T($S, $LId))).stream()\n.findFirst().orElseThrow($T::new)",
+                    SpecificationQueries.class, entityClassName, QuerySchema.class, Condition.class, uncapitalizedDomainName + "Id",
+                    uncapitalizedDomainName, EntityNotFoundException.class)
+                .build());
+        }
+        if (methods.contains(MethodType.QUERY_BY_CRITERIA)) {
+            adaptorBuilder.addMethod(MethodSpec.methodBuilder("findAll")
+                .addAnnotation(Override.class)
+                .addModifiers(Modifier.PUBLIC)
+                .addTypeVariable(PROJECTION_TYPE)
+                .addParameter(QuerySchema.class, "querySchema")
+                .addParameter(projectionClass, "projection")
+                .returns(ParameterizedTypeName.get(ClassName.get(Page.class), PROJECTION_TYPE))
+                .addStatement("return $T.findProjections(entityManager, $T.class, projection, querySchema)", SpecificationQueries.class, entityClassName)
+                .build());
+            adaptorBuilder.addMethod(MethodSpec.methodBuilder("findAllSlice")
+                .addAnnotation(Override.class)
+                .addModifiers(Modifier.PUBLIC)
+                .addParameter(QuerySchema.class, "querySchema")
+                .returns(ParameterizedTypeName.get(ClassName.get(Slice.class), domainClassName))
+                .addStatement("return $T.findSlice(entityManager, $T.class, querySchema).map($T.INSTANCE::to$L)",
+                    SpecificationQueries.class, ClassName.get(entityPackage, domainName + "Entity"), mapperClassName, domainName)
+                .build());
+            adaptorBuilder.addMethod(MethodSpec.methodBuilder("findAllAfter")
+                .addAnnotation(Override.class)
+                .addModifiers(Modifier.PUBLIC)
+                .addParameter(QuerySchema.class, "querySchema")
+                .returns(ParameterizedTypeName.get(ClassName.get(KeysetSlice.class), domainClassName))
+                .addStatement("return $T.findKeysetSlice(entityManager, $T.class, querySchema).map($T.INSTANCE::to$L)",
+                    SpecificationQueries.class, ClassName.get(entityPackage, domainName + "Entity"), mapperClassName, domainName)
+                .build());
+        }
+
+        generateFile(sink, infraAdaptorPackage, adaptorBuilder.build());
+    }
+
+    /**
+     * {@code saveAll} sets a JDBC batch size on the current session, so that the writes of a chunk are flushed in
+     * batches instead of one statement round trip per aggregate.
+     */
+    private void addBatchMethods(TypeSpec.Builder adaptorBuilder, String domainName, boolean loadsBatches) {
+        var uncapitalizedDomainName = StringUtils.uncapitalize(domainName);
+        var domainListClassName = ParameterizedTypeName.get(ClassName.get(List.class), ClassName.get(domainEntityPackage, domainName));
+        var mapperClassName = ClassName.get(mapperPackage, domainName + "InfraMapper");
+
+        adaptorBuilder
+            .addField(FieldSpec.builder(int.class, "JDBC_BATCH_SIZE", Modifier.PRIVATE, Modifier.STATIC, Modifier.FINAL)
+                .initializer("$L", JDBC_BATCH_SIZE)
+                .build())
+            .addMethod(MethodSpec.methodBuilder("saveAll")
+                .addAnnotation(Override.class)
+                .addModifiers(Modifier.PUBLIC)
+                .addParameter(domainListClassName, uncapitalizedDomainName + "s")
+                .returns(domainListClassName)
+                .addCode(CodeBlock.builder()
+                    .addStatement("entityManager.unwrap($T.class).setJdbcBatchSize(JDBC_BATCH_SIZE)", Session.class)
+                    .addStatement("var entities = $Ls.stream().map($T.INSTANCE::to$LEntity).toList()", uncapitalizedDomainName, mapperClassName, domainName)
+                    .addStatement("return $LEntityRepository.saveAll(entities).stream().map($T.INSTANCE::to$L).toList()",
+                        uncapitalizedDomainName, mapperClassName, domainName)
+                    .build())
+                .build());
+
+        if (loadsBatches) {
+            adaptorBuilder.addMethod(MethodSpec.methodBuilder("findAllBy%sIdIn".formatted(domainName))
+                .addAnnotation(Override.class)
+                .addModifiers(Modifier.PUBLIC)
+                .addParameter(ParameterizedTypeName.get(ClassName.get(Collection.class), ClassName.get(UUID.class)), uncapitalizedDomainName + "Ids")
+                .returns(domainListClassName)
+                .addStatement("return $LEntityRepository.findAllBy$LIdIn($LIds).stream().map($T.INSTANCE::to$L).toList()",
+                    uncapitalizedDomainName, domainName, uncapitalizedDomainName, mapperClassName, domainName)
+                .build());
+        }
+    }
 
-        generateFile(infraAdaptorPackage, adaptorClass);
+    private static boolean loadsBatches(Collection<MethodType> methods) {
+        return methods.contains(MethodType.BATCH_UPDATE) || methods.contains(MethodType.BATCH_DELETE);
     }
 }
@@ -1,31 +1,60 @@
 package com.tw.codegenerator.javapoet;
 
+import com.tw.codegenerator.output.FileSystemOutputSink;
+import com.tw.codegenerator.output.OutputSink;
+import com.tw.codegenerator.spec.OpenApiSpecRepository;
+import com.tw.codegenerator.spec.SymbolTable;
 import com.tw.codegenerator.utils.GeneratorHelper;
 import com.tw.codegenerator.utils.OpenApiHelper;
+import com.tw.common.cache.ReadThroughCache;
+import com.tw.common.seedwork.BatchCommandHandler;
 import com.tw.common.seedwork.CommandHandler;
 import com.tw.common.seedwork.Query;
 import com.tw.common.criteria.Condition;
+import com.tw.common.criteria.Keyset;
+import com.tw.common.criteria.KeysetSlice;
 import com.tw.common.criteria.QuerySchema;
 import com.tw.codegenerator.metadata.Domain;
+import com.tw.codegenerator.metadata.DomainType;
+import com.tw.codegenerator.metadata.Field;
 import com.tw.codegenerator.metadata.MethodType;
+import io.micrometer.core.instrument.MeterRegistry;
 import io.swagger.v3.oas.models.OpenAPI;
 import io.swagger.v3.oas.models.Operation;
 import io.swagger.v3.oas.models.PathItem;
+import io.swagger.v3.oas.models.media.MediaType;
+import io.swagger.v3.oas.models.media.Schema;
 import io.swagger.v3.oas.models.parameters.Parameter;
-import io.swagger.v3.parser.OpenAPIV3Parser;
+import io.swagger.v3.oas.models.responses.ApiResponse;
+import jakarta.persistence.EntityNotFoundException;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.text.CaseUtils;
 import org.springframework.context.event.EventListener;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.javapoet.*;
 import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.CollectionUtils;
 
 import javax.lang.model.element.Modifier;
+import java.beans.ConstructorProperties;
+import java.time.Duration;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.Optional;
 import java.util.UUID;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 import static com.tw.codegenerator.utils.GeneratorHelper.generateFile;
@@ -49,34 +78,55 @@ public class AppLayerGenerator {
 
     private final String entityPackage;
 
+    private final String valueObjectPackage;
+
     private final String commandPackage;
 
     private final String eventPackage;
 
     private final String adaptorPackage;
 
-    private Domain aggregateRoot;
-
-    private String domainClassName;
+    private static final ClassName getterAnnotationClass = ClassName.get("lombok", "Getter");
 
-    private String domainName;
+    private static final ClassName builderAnnotationClass = ClassName.get("lombok", "Builder");
 
-    private ClassName domainClass;
+    private static final ClassName requiredArgsConstructorAnnotationClass = ClassName.get("lombok", "RequiredArgsConstructor");
 
-    private ClassName adaptorClass;
+    private static final TypeVariableName PROJECTION_TYPE = TypeVariableName.get("P");
 
-    private static final ClassName getterAnnotationClass = ClassName.get("lombok", "Getter");
+    private static final int BATCH_CHUNK_SIZE = 500;
 
-    private static final ClassName builderAnnotationClass = ClassName.get("lombok", "Builder");
+    /**
+     * Per-run state, so one generator can serve several aggregates concurrently.
+     *
+     * @param domainToPackage domain type name to its package, for the types of projected fields
+     */
+    private record Aggregate(Domain root, String className, String name, ClassName domainClass, ClassName adaptorClass,
+                             OpenAPI openAPI, Map<String, String> domainToPackage) {
+    }
 
-    private static final ClassName requiredArgsConstructorAnnotationClass = ClassName.get("lombok", "RequiredArgsConstructor");
+    private final OpenApiSpecRepository specRepository;
 
-    private String openApiFilePath;
+    private final OutputSink sink;
 
-    private OpenAPI openAPI;
+    private final ForkJoinPool pool;
 
     public AppLayerGenerator(String basePackage) {
+        this(basePackage, OpenApiSpecRepository.shared(), FileSystemOutputSink.sourceRoot());
+    }
+
+    public AppLayerGenerator(String basePackage, OpenApiSpecRepository specRepository, OutputSink sink) {
+        this(basePackage, specRepository, sink, null);
+    }
+
+    /**
+     * @param pool builds the DTOs of a spec in parallel when not {@code null}
+     */
+    public AppLayerGenerator(String basePackage, OpenApiSpecRepository specRepository, OutputSink sink, ForkJoinPool pool) {
         this.basePackage = basePackage;
+        this.specRepository = specRepository;
+        this.sink = sink;
+        this.pool = pool;
         var appPackage = basePackage + ".app";
         var handlerPackage = appPackage + ".handler";
         this.commandHandlerPackage = handlerPackage + ".command";
@@ -87,78 +137,156 @@ public class AppLayerGenerator {
         this.mapperPackage = appPackage + ".convertor";
         var domainPackage = basePackage + ".domain";
         this.entityPackage = domainPackage + ".entity";
+        this.valueObjectPackage = domainPackage + ".valueobject";
         this.commandPackage = domainPackage + ".command";
         this.eventPackage = domainPackage + ".event";
         this.adaptorPackage = domainPackage + ".adaptor";
     }
 
     public void generate(Domain aggregateRoot, String openApiFilePath) {
-        this.aggregateRoot = aggregateRoot;
-        this.domainClassName = aggregateRoot.getTypeName();
-        this.domainName = StringUtils.uncapitalize(domainClassName);
-        var adaptorClassName = domainClassName + "Adaptor";
-        this.domainClass = ClassName.get(entityPackage, domainClassName);
-        this.adaptorClass = ClassName.get(adaptorPackage, adaptorClassName);
-        this.openApiFilePath = openApiFilePath;
+        generate(aggregateRoot, specRepository.get(openApiFilePath));
+    }
 
-        generateDto();
-        generateMapper();
-        generateHandlers();
+    public void generate(Domain aggregateRoot, OpenAPI openAPI) {
+        generateDto(openAPI);
+        generateAggregate(aggregateRoot, openAPI);
+    }
+
+    /**
+     * Mapper and handlers of one aggregate only, the DTOs are shared by every aggregate of the spec. Projections can
+     * only hold fields of the root's own types, see {@link #generateAggregate(Domain, Collection, OpenAPI)}.
+     */
+    public void generateAggregate(Domain aggregateRoot, OpenAPI openAPI) {
+        generateAggregate(aggregateRoot, List.of(aggregateRoot), openAPI);
+    }
+
+    /**
+     * @param domains every domain type of the aggregate, root included
+     */
+    public void generateAggregate(Domain aggregateRoot, Collection<Domain> domains, OpenAPI openAPI) {
+        var domainClassName = aggregateRoot.getTypeName();
+        var domainToPackage = domains.stream().collect(Collectors.toMap(Domain::getTypeName,
+            domain -> DomainType.ENTITY.equals(domain.getDomainType()) ? entityPackage : valueObjectPackage));
+        var aggregate = new Aggregate(aggregateRoot, domainClassName, StringUtils.uncapitalize(domainClassName),
+            ClassName.get(entityPackage, domainClassName), ClassName.get(adaptorPackage, domainClassName + "Adaptor"), openAPI, domainToPackage);
+
+        generateMapper(aggregate);
+        generateProjections(aggregate);
+        generateHandlers(aggregate);
     }
 
 
-    private void generateHandlers() {
-        aggregateRoot.getMethods().forEach(methodType -> {
+    private void generateHandlers(Aggregate aggregate) {
+        aggregate.root().getMethods().forEach(methodType -> {
             switch (methodType) {
                 case CREATE -> {
-                    generateCommandHandler(methodType, getCreateCodeBlock());
-                    generateEventHandler(methodType);
+                    generateCommandHandler(aggregate, methodType, getCreateCodeBlock(aggregate));
+                    generateEventHandler(aggregate, methodType);
                 }
                 case UPDATE -> {
-                    generateCommandHandler(methodType, getUpdateCodeBlock());
-                    generateEventHandler(methodType);
+                    generateCommandHandler(aggregate, methodType, getUpdateCodeBlock(aggregate));
+                    generateEventHandler(aggregate, methodType);
                 }
                 case DELETE -> {
-                    generateCommandHandler(methodType, getDeleteCodeBlock());
-                    generateEventHandler(methodType);
+                    generateCommandHandler(aggregate, methodType, getDeleteCodeBlock(aggregate));
+                    generateEventHandler(aggregate, methodType);
                 }
-                case QUERY_BY_ID -> generateFindByIdQueryHandler();
-                case QUERY_BY_CRITERIA -> generateFindByCriteriaQueryHandler();
+                case QUERY_BY_ID -> generateFindByIdQueryHandler(aggregate);
+                case QUERY_BY_CRITERIA -> generateFindByCriteriaQueryHandler(aggregate);
+                case BATCH_CREATE -> generateBatchCommandHandler(aggregate, methodType, "commands",
+                    ClassName.get(commandPackage, "Create" + aggregate.className() + "Command"), getBatchCreateCodeBlock(aggregate));
+                case BATCH_UPDATE -> generateBatchCommandHandler(aggregate, methodType, "commands",
+                    ClassName.get(commandPackage, "Update" + aggregate.className() + "Command"), getBatchUpdateCodeBlock(aggregate));
+                case BATCH_DELETE -> generateBatchCommandHandler(aggregate, methodType, aggregate.name() + "Ids",
+                    ClassName.get(UUID.class), getBatchDeleteCodeBlock(aggregate));
                 default -> throw new IllegalStateException("Unexpected value: " + methodType);
             }
         });
     }
 
-    private void generateFindByIdQueryHandler() {
-        generateFindByIdQuery();
-
-        var code = CodeBlock.builder()
-            .addStatement("return $T.INSTANCE.to$LDTO(adaptor.findBy$LId(query.get$LId()))",
-                ClassName.get(mapperPackage, domainClassName + "AppMapper"), domainClassName, domainClassName, domainClassName)
-            .build();
+    private void generateFindByIdQueryHandler(Aggregate aggregate) {
+        generateFindByIdQuery(aggregate);
+
+        var mapperClass = ClassName.get(mapperPackage, aggregate.className() + "AppMapper");
+        var fields = new ArrayList<FieldSpec>();
+        CodeBlock code;
+        if (aggregate.root().getQueryCache() != null) {
+            var queryCacheClass = generateQueryCache(aggregate);
+            fields.add(FieldSpec.builder(queryCacheClass, "queryCache", Modifier.PRIVATE, Modifier.FINAL).build());
+            code = CodeBlock.builder()
+                .addStatement("return queryCache.get(query.get$LId(), $LId -> $T.INSTANCE.to$LDTO(adaptor.findBy$LId($LId)))",
+                    aggregate.className(), aggregate.name(), mapperClass, aggregate.className(), aggregate.className(), aggregate.name())
+                .build();
+        } else {
+            code = CodeBlock.builder()
+                .addStatement("return $T.INSTANCE.to$LDTO(adaptor.findBy$LId(query.get$LId()))",
+                    mapperClass, aggregate.className(), aggregate.className(), aggregate.className())
+                .build();
+        }
 
         var condition = "Id";
-        var returnType = ClassName.get(dtoPackage, domainClassName + "DTO");
-        generateQueryHandler(condition, code, returnType);
+        var returnType = ClassName.get(dtoPackage, aggregate.className() + "DTO");
+
+        // read models of operations with x-projection: true
+        var executeProjection = MethodSpec.methodBuilder("executeProjection")
+            .addModifiers(Modifier.PUBLIC)
+            .addTypeVariable(PROJECTION_TYPE)
+            .addParameter(ClassName.get(queryPackage, "Get" + aggregate.className() + "By" + condition + "Query"), "query")
+            .addParameter(ParameterizedTypeName.get(ClassName.get(Class.class), PROJECTION_TYPE), "projection")
+            .addStatement("return adaptor.findBy$LId(query.get$LId(), projection)", aggregate.className(), aggregate.className())
+            .returns(PROJECTION_TYPE)
+            .build();
+        generateQueryHandler(aggregate, condition, code, returnType, fields, executeProjection);
     }
 
-    private void generateFindByCriteriaQueryHandler() {
-        generateFindByRequestParamQuery();
+    private void generateFindByCriteriaQueryHandler(Aggregate aggregate) {
+        generateFindByRequestParamQuery(aggregate);
 
         var code = CodeBlock.builder()
             .addStatement("var page = adaptor.findAll(query.toQuerySchema())")
             .addStatement("return new $T<>(page.getContent().stream().map($T.INSTANCE::to$LDTO).toList(), page.getPageable(), page.getTotalElements())", PageImpl.class,
-                ClassName.get(mapperPackage, domainClassName + "AppMapper"), domainClassName)
+                ClassName.get(mapperPackage, aggregate.className() + "AppMapper"), aggregate.className())
             .build();
 
         var condition = "Criteria";
-        var returnType = ParameterizedTypeName.get(ClassName.get(Page.class), ClassName.get(dtoPackage, domainClassName + "DTO"));
-        generateQueryHandler(condition, code, returnType);
+        var returnType = ParameterizedTypeName.get(ClassName.get(Page.class), ClassName.get(dtoPackage, aggregate.className() + "DTO"));
+
+        // read models of operations with x-projection: true
+        var executeProjection = MethodSpec.methodBuilder("executeProjection")
+            .addModifiers(Modifier.PUBLIC)
+            .addTypeVariable(PROJECTION_TYPE)
+            .addParameter(ClassName.get(queryPackage, "Get" + aggregate.className() + "By" + condition + "Query"), "query")
+            .addParameter(ParameterizedTypeName.get(ClassName.get(Class.class), PROJECTION_TYPE), "projection")
+            .addStatement("return adaptor.findAll(query.toQuerySchema(), projection)")
+            .returns(ParameterizedTypeName.get(ClassName.get(Page.class), PROJECTION_TYPE))
+            .build();
+
+        // count free pagination, used by operations with x-pagination: slice
+        var executeSlice = MethodSpec.methodBuilder("executeSlice")
+            .addModifiers(Modifier.PUBLIC)
+            .addParameter(ClassName.get(queryPackage, "Get" + aggregate.className() + "By" + condition + "Query"), "query")
+            .addParameter(Pageable.class, "pageable")
+            .addStatement("return adaptor.findAllSlice(query.toQuerySchema(pageable)).map($T.INSTANCE::to$LDTO)",
+                ClassName.get(mapperPackage, aggregate.className() + "AppMapper"), aggregate.className())
+            .returns(ParameterizedTypeName.get(ClassName.get(Slice.class), ClassName.get(dtoPackage, aggregate.className() + "DTO")))
+            .build();
+
+        // keyset pagination, used by operations with x-pagination: keyset
+        var executeAfter = MethodSpec.methodBuilder("executeAfter")
+            .addModifiers(Modifier.PUBLIC)
+            .addParameter(ClassName.get(queryPackage, "Get" + aggregate.className() + "By" + condition + "Query"), "query")
+            .addParameter(Keyset.class, "keyset")
+            .addStatement("return adaptor.findAllAfter(query.toQuerySchema(keyset)).map($T.INSTANCE::to$LDTO)",
+                ClassName.get(mapperPackage, aggregate.className() + "AppMapper"), aggregate.className())
+            .returns(ParameterizedTypeName.get(ClassName.get(KeysetSlice.class), ClassName.get(dtoPackage, aggregate.className() + "DTO")))
+            .build();
+        generateQueryHandler(aggregate, condition, code, returnType, List.of(), executeProjection, executeSlice, executeAfter);
     }
 
-    private void generateQueryHandler(String condition, CodeBlock code, TypeName returnType) {
-        var adaptor = FieldSpec.builder(adaptorClass, "adaptor", Modifier.PRIVATE, Modifier.FINAL).build();
-        var param = ParameterSpec.builder(ClassName.get(queryPackage, "Get" + domainClassName + "By" + condition + "Query"), "query").build();
+    private void generateQueryHandler(Aggregate aggregate, String condition, CodeBlock code, TypeName returnType, List<FieldSpec> otherFields,
+                                      MethodSpec... otherMethods) {
+        var adaptor = FieldSpec.builder(aggregate.adaptorClass(), "adaptor", Modifier.PRIVATE, Modifier.FINAL).build();
+        var param = ParameterSpec.builder(ClassName.get(queryPackage, "Get" + aggregate.className() + "By" + condition + "Query"), "query").build();
         var method = MethodSpec.methodBuilder("execute")
             .addModifiers(Modifier.PUBLIC)
             .addParameter(param)
@@ -166,44 +294,145 @@ public class AppLayerGenerator {
             .returns(returnType)
             .build();
 
-        var queryHandler = TypeSpec.classBuilder("Get" + domainClassName + "By" + condition + "QueryHandler")
+        var queryHandler = TypeSpec.classBuilder("Get" + aggregate.className() + "By" + condition + "QueryHandler")
             .addModifiers(Modifier.PUBLIC)
             .addAnnotation(requiredArgsConstructorAnnotationClass)
             .addAnnotation(Component.class)
             .addField(adaptor)
+            .addFields(otherFields)
             .addMethod(method)
+            .addMethods(List.of(otherMethods))
             .build();
 
-        generateFile(queryHandlerPackage, queryHandler);
+        generateFile(sink, queryHandlerPackage, queryHandler);
     }
 
-    private CodeBlock getDeleteCodeBlock() {
+    /**
+     * Component holding the cached DTOs of the query by id. Entries are dropped after the transaction that updated or
+     * deleted their root committed, so that a read in between can not cache the old state for the whole TTL.
+     */
+    private ClassName generateQueryCache(Aggregate aggregate) {
+        var queryCache = aggregate.root().getQueryCache();
+        var dtoClass = ClassName.get(dtoPackage, aggregate.className() + "DTO");
+        var cacheClass = ParameterizedTypeName.get(ClassName.get(ReadThroughCache.class), ClassName.get(UUID.class), dtoClass);
+        var queryCacheClass = ClassName.get(queryHandlerPackage, aggregate.className() + "QueryCache");
+
+        var builder = TypeSpec.classBuilder(queryCacheClass)
+            .addModifiers(Modifier.PUBLIC)
+            .addAnnotation(Component.class)
+            .addField(FieldSpec.builder(int.class, "MAXIMUM_SIZE", Modifier.PRIVATE, Modifier.STATIC, Modifier.FINAL)
+                .initializer("$L", queryCache.getMaximumSize())
+                .build())
+            .addField(FieldSpec.builder(Duration.class, "TTL", Modifier.PRIVATE, Modifier.STATIC, Modifier.FINAL)
+                .initializer("$T.ofSeconds($L)", Duration.class, queryCache.getTtlSeconds())
+                .build())
+            .addField(cacheClass, "cache", Modifier.PRIVATE, Modifier.FINAL)
+            .addMethod(MethodSpec.constructorBuilder()
+                .addModifiers(Modifier.PUBLIC)
+                .addParameter(MeterRegistry.class, "meterRegistry")
+                .addStatement("this.cache = new $T<>($S, MAXIMUM_SIZE, TTL, meterRegistry)", ReadThroughCache.class, aggregate.name())
+                .build())
+            .addMethod(MethodSpec.methodBuilder("get")
+                .addModifiers(Modifier.PUBLIC)
+                .addParameter(UUID.class, aggregate.name() + "Id")
+                .addParameter(ParameterizedTypeName.get(ClassName.get(Function.class), ClassName.get(UUID.class), dtoClass), "loader")
+                .addStatement("return cache.get($LId, loader)", aggregate.name())
+                .returns(dtoClass)
+                .build());
+
+        // batch updates and deletes raise the events of their single counterparts for every root
+        var methodTypes = aggregate.root().getMethods().stream().map(MethodType::single).collect(Collectors.toSet());
+        for (var methodType : List.of(MethodType.UPDATE, MethodType.DELETE)) {
+            if (!methodTypes.contains(methodType)) {
+                continue;
+            }
+            var eventClass = ClassName.get(eventPackage, aggregate.className() + StringUtils.capitalize(methodType.name().toLowerCase() + "d") + "Event");
+            builder.addMethod(MethodSpec.methodBuilder("evict")
+                .addModifiers(Modifier.PUBLIC)
+                .addAnnotation(AnnotationSpec.builder(TransactionalEventListener.class)
+                    .addMember("fallbackExecution", "true")
+                    .build())
+                .addParameter(eventClass, "event")
+                .addStatement("cache.invalidate(event.get$L().get$LId())", aggregate.className(), aggregate.className())
+                .build());
+        }
+
+        generateFile(sink, queryHandlerPackage, builder.build());
+        return queryCacheClass;
+    }
+
+    private CodeBlock getDeleteCodeBlock(Aggregate aggregate) {
         return CodeBlock.builder()
-            .addStatement("var $L = adaptor.findBy$LId(command.get$LId())", domainName, domainClassName, domainClassName)
-            .addStatement("$L.delete()", domainName)
-            .addStatement("return adaptor.save($L)", domainName)
+            .addStatement("var $L = adaptor.findBy$LId(command.get$LId())", aggregate.name(), aggregate.className(), aggregate.className())
+            .addStatement("$L.delete()", aggregate.name())
+            .addStatement("return adaptor.save($L)", aggregate.name())
             .build();
     }
 
-    private CodeBlock getUpdateCodeBlock() {
+    private CodeBlock getUpdateCodeBlock(Aggregate aggregate) {
         return CodeBlock.builder()
-            .addStatement("var $L = adaptor.findBy$LId(command.get$LId())", domainName, domainClassName, domainClassName)
-            .addStatement("$L.update(command)", domainName)
-            .addStatement("return adaptor.save($L)", domainName)
+            .addStatement("var $L = adaptor.findBy$LId(command.get$LId())", aggregate.name(), aggregate.className(), aggregate.className())
+            .addStatement("$L.update(command)", aggregate.name())
+            .addStatement("return adaptor.save($L)", aggregate.name())
             .build();
     }
 
-    private CodeBlock getCreateCodeBlock() {
+    private CodeBlock getCreateCodeBlock(Aggregate aggregate) {
         return CodeBlock.builder()
-            .addStatement("var $L = $T.create(command)", domainName, domainClass)
-            .addStatement("return adaptor.save($L)", domainName)
+            .addStatement("var $L = $T.create(command)", aggregate.name(), aggregate.domainClass())
+            .addStatement("return adaptor.save($L)", aggregate.name())
             .build();
     }
 
-    private void generateFindByIdQuery() {
-        var operationToParams = openAPI.getPaths().values().stream()
+    private CodeBlock getBatchCreateCodeBlock(Aggregate aggregate) {
+        return CodeBlock.builder()
+            .addStatement("return adaptor.saveAll(chunk.stream().map($T::create).toList())", aggregate.domainClass())
+            .build();
+    }
+
+    private CodeBlock getBatchUpdateCodeBlock(Aggregate aggregate) {
+        var idGetter = "get" + aggregate.className() + "Id";
+        return CodeBlock.builder()
+            .addStatement("var $Ls = adaptor.findAllBy$LIdIn(chunk.stream().map($T::$L).toList()).stream()\n.collect($T.toMap($T::$L, $T.identity()))",
+                aggregate.name(), aggregate.className(), ClassName.get(commandPackage, "Update" + aggregate.className() + "Command"), idGetter,
+                Collectors.class, aggregate.domainClass(), idGetter, Function.class)
+            .addStatement("var updated = new $T<$T, $T>()", LinkedHashMap.class, UUID.class, aggregate.domainClass())
+            .beginControlFlow("for (var command : chunk)")
+            .addStatement("var $L = $Ls.get(command.$L())", aggregate.name(), aggregate.name(), idGetter)
+            .beginControlFlow("if ($L == null)", aggregate.name())
+            .addStatement("throw new $T($S + command.$L())", EntityNotFoundException.class, aggregate.className() + " not found: ", idGetter)
+            .endControlFlow()
+            .addStatement("$L.update(command)", aggregate.name())
+            .addStatement("updated.put(command.$L(), $L)", idGetter, aggregate.name())
+            .endControlFlow()
+            // saved and returned in the order of the commands, not of the lookup
+            .addStatement("return adaptor.saveAll($T.copyOf(updated.values()))", List.class)
+            .build();
+    }
+
+    private CodeBlock getBatchDeleteCodeBlock(Aggregate aggregate) {
+        var idGetter = "get" + aggregate.className() + "Id";
+        return CodeBlock.builder()
+            .addStatement("var $Ls = adaptor.findAllBy$LIdIn(chunk).stream()\n.collect($T.toMap($T::$L, $T.identity()))",
+                aggregate.name(), aggregate.className(), Collectors.class, aggregate.domainClass(), idGetter, Function.class)
+            .addStatement("var deleted = new $T<$T>()", ArrayList.class, aggregate.domainClass())
+            .beginControlFlow("for (var id : new $T<>(chunk))", LinkedHashSet.class)
+            .addStatement("var $L = $Ls.get(id)", aggregate.name(), aggregate.name())
+            .beginControlFlow("if ($L == null)", aggregate.name())
+            .addStatement("throw new $T($S + id)", EntityNotFoundException.class, aggregate.className() + " not found: ")
+            .endControlFlow()
+            .addStatement("$L.delete()", aggregate.name())
+            .addStatement("deleted.add($L)", aggregate.name())
+            .endControlFlow()
+            .addStatement("return adaptor.saveAll(deleted)")
+            .build();
+    }
+
+    private void generateFindByIdQuery(Aggregate aggregate) {
+        var operationToParams = aggregate.openAPI().getPaths().values().stream()
             .map(PathItem::getGet)
             .filter(Objects::nonNull)
+            .filter(operation -> isTaggedWith(operation, aggregate))
             .filter(operation -> operation.getParameters().stream().filter(parameter -> "path".equals(parameter.getIn())).count() == 1)
             .collect(Collectors.toMap(operation -> operation, Operation::getParameters));
 
@@ -217,7 +446,7 @@ public class AppLayerGenerator {
                 .addField(FieldSpec.builder(UUID.class, fieldName, Modifier.PRIVATE, Modifier.FINAL).build())
                 .build();
 
-            generateFile(queryPackage, findByIdQuery);
+            generateFile(sink, queryPackage, findByIdQuery);
         }
 
     }
@@ -233,10 +462,11 @@ public class AppLayerGenerator {
 //        generateFile(queryPackage, findByCriteriaQuery);
 //    }
 
-    private void generateFindByRequestParamQuery() {
-        var operationToParams = openAPI.getPaths().values().stream()
+    private void generateFindByRequestParamQuery(Aggregate aggregate) {
+        var operationToParams = aggregate.openAPI().getPaths().values().stream()
             .map(PathItem::getGet)
             .filter(Objects::nonNull)
+            .filter(operation -> isTaggedWith(operation, aggregate))
             .filter(operation -> operation.getParameters().stream().filter(parameter -> "query".equals(parameter.getIn())).count() > 1)
             .collect(Collectors.toMap(operation -> operation, Operation::getParameters));
 
@@ -263,12 +493,31 @@ public class AppLayerGenerator {
                     .addCode(codeBlockBuilder.build())
                     .returns(QuerySchema.class)
                     .build())
+                .addMethod(MethodSpec.methodBuilder("toQuerySchema")
+                    .addModifiers(Modifier.PUBLIC)
+                    .addParameter(Pageable.class, "pageable")
+                    .addStatement("return new $T(pageable, toQuerySchema().getConditions())", QuerySchema.class)
+                    .returns(QuerySchema.class)
+                    .build())
+                .addMethod(MethodSpec.methodBuilder("toQuerySchema")
+                    .addModifiers(Modifier.PUBLIC)
+                    .addParameter(Keyset.class, "keyset")
+                    .addStatement("return new $T(keyset, toQuerySchema().getConditions())", QuerySchema.class)
+                    .returns(QuerySchema.class)
+                    .build())
                 .build();
 
-            generateFile(queryPackage, findByCriteriaQuery);
+            generateFile(sink, queryPackage, findByCriteriaQuery);
         }
     }
 
+    /**
+     * Operations are tagged with their aggregate, the queries of the other aggregates of the spec are theirs to write.
+     */
+    private static boolean isTaggedWith(Operation operation, Aggregate aggregate) {
+        return !CollectionUtils.isEmpty(operation.getTags()) && aggregate.className().equals(operation.getTags().get(0));
+    }
+
     private static List<FieldSpec> getFields(List<Parameter> parameters) {
         return parameters.stream()
             .map(parameter -> FieldSpec.builder(GeneratorHelper.getTypeName(parameter.getSchema().getType()),
@@ -276,36 +525,87 @@ public class AppLayerGenerator {
             .toList();
     }
 
-    private void generateCommandHandler(MethodType methodType, CodeBlock code) {
+    private void generateCommandHandler(Aggregate aggregate, MethodType methodType, CodeBlock code) {
         var prefix = StringUtils.capitalize(methodType.name().toLowerCase());
-        var commandHandlerClassName = prefix + domainClassName + "CommandHandler";
-        var commandClassName = prefix + domainClassName + "Command";
+        var commandHandlerClassName = prefix + aggregate.className() + "CommandHandler";
+        var commandClassName = prefix + aggregate.className() + "Command";
         var commandClass = ClassName.get(commandPackage, commandClassName);
-        var interfaceClass = ParameterizedTypeName.get(ClassName.get(CommandHandler.class), domainClass, commandClass);
+        var interfaceClass = ParameterizedTypeName.get(ClassName.get(CommandHandler.class), aggregate.domainClass(), commandClass);
 
         var createCommandHandlerClass = TypeSpec.classBuilder(commandHandlerClassName)
             .addModifiers(Modifier.PUBLIC)
             .addSuperinterface(interfaceClass)
             .addAnnotation(Component.class)
             .addAnnotation(requiredArgsConstructorAnnotationClass)
-            .addField(adaptorClass, "adaptor", Modifier.PRIVATE, Modifier.FINAL)
+            .addField(aggregate.adaptorClass(), "adaptor", Modifier.PRIVATE, Modifier.FINAL)
             .addMethod(MethodSpec.methodBuilder("execute")
                 .addModifiers(Modifier.PUBLIC)
                 .addAnnotation(Override.class)
                 .addParameter(commandClass, "command")
-                .returns(domainClass)
+                .returns(aggregate.domainClass())
                 .addCode(code)
                 .build()
             )
             .build();
 
-        generateFile(commandHandlerPackage, createCommandHandlerClass);
+        generateFile(sink, commandHandlerPackage, createCommandHandlerClass);
+    }
+
+    /**
+     * Splits the batch into chunks of {@code CHUNK_SIZE}, each handled by {@code chunkCode} in a transaction of its own,
+     * so that a large import neither holds one long transaction nor commits once per aggregate.
+     *
+     * @param itemsName getter suffix of the batch items on the command
+     * @param itemClass type of the batch items, passed to {@code chunkCode} as {@code chunk}
+     */
+    private void generateBatchCommandHandler(Aggregate aggregate, MethodType methodType, String itemsName, ClassName itemClass,
+                                             CodeBlock chunkCode) {
+        var prefix = "Batch" + StringUtils.capitalize(methodType.single().name().toLowerCase());
+        var commandHandlerClassName = prefix + aggregate.className() + "CommandHandler";
+        var commandClass = ClassName.get(commandPackage, prefix + aggregate.className() + "Command");
+        var interfaceClass = ParameterizedTypeName.get(ClassName.get(BatchCommandHandler.class), aggregate.domainClass(), commandClass);
+        var domainListClass = ParameterizedTypeName.get(ClassName.get(List.class), aggregate.domainClass());
+
+        var batchCommandHandlerClass = TypeSpec.classBuilder(commandHandlerClassName)
+            .addModifiers(Modifier.PUBLIC)
+            .addSuperinterface(interfaceClass)
+            .addAnnotation(Component.class)
+            .addAnnotation(requiredArgsConstructorAnnotationClass)
+            .addField(FieldSpec.builder(int.class, "CHUNK_SIZE", Modifier.PRIVATE, Modifier.STATIC, Modifier.FINAL)
+                .initializer("$L", BATCH_CHUNK_SIZE)
+                .build())
+            .addField(aggregate.adaptorClass(), "adaptor", Modifier.PRIVATE, Modifier.FINAL)
+            .addField(TransactionTemplate.class, "transactionTemplate", Modifier.PRIVATE, Modifier.FINAL)
+            .addMethod(MethodSpec.methodBuilder("execute")
+                .addModifiers(Modifier.PUBLIC)
+                .addAnnotation(Override.class)
+                .addParameter(commandClass, "command")
+                .returns(domainListClass)
+                .addStatement("var items = command.get$L()", StringUtils.capitalize(itemsName))
+                .addStatement("var $Ls = new $T<$T>(items.size())", aggregate.name(), ArrayList.class, aggregate.domainClass())
+                .beginControlFlow("for (int from = 0; from < items.size(); from += CHUNK_SIZE)")
+                .addStatement("var chunk = items.subList(from, $T.min(from + CHUNK_SIZE, items.size()))", Math.class)
+                .addStatement("$Ls.addAll(transactionTemplate.execute(status -> executeChunk(chunk)))", aggregate.name())
+                .endControlFlow()
+                .addStatement("return $Ls", aggregate.name())
+                .build()
+            )
+            .addMethod(MethodSpec.methodBuilder("executeChunk")
+                .addModifiers(Modifier.PRIVATE)
+                .addParameter(ParameterizedTypeName.get(ClassName.get(List.class), itemClass), "chunk")
+                .returns(domainListClass)
+                .addCode(chunkCode)
+                .build()
+            )
+            .build();
+
+        generateFile(sink, commandHandlerPackage, batchCommandHandlerClass);
     }
 
-    private void generateEventHandler(MethodType methodType) {
+    private void generateEventHandler(Aggregate aggregate, MethodType methodType) {
         var prefix = StringUtils.capitalize(methodType.name().toLowerCase() + "d");
-        var eventHandlerClassName = domainClassName + prefix + "EventHandler";
-        var eventClassName = domainClassName + prefix + "Event";
+        var eventHandlerClassName = aggregate.className() + prefix + "EventHandler";
+        var eventClassName = aggregate.className() + prefix + "Event";
         var eventClass = ClassName.get(eventPackage, eventClassName);
 
         var eventCommandHandlerClass = TypeSpec.classBuilder(eventHandlerClassName)
@@ -321,30 +621,137 @@ public class AppLayerGenerator {
             )
             .build();
 
-        generateFile(eventHandlerPackage, eventCommandHandlerClass);
+        generateFile(sink, eventHandlerPackage, eventCommandHandlerClass);
     }
 
-    public void generateDto() {
-        this.openAPI = new OpenAPIV3Parser().read(this.openApiFilePath);
+    public void generateDto(OpenAPI openAPI) {
+        generateDto(openAPI, SymbolTable.of(openAPI, basePackage));
+    }
 
+    public void generateDto(OpenAPI openAPI, SymbolTable symbols) {
         var schemas = openAPI.getComponents().getSchemas();
-        var openApiHelper = new OpenApiHelper(basePackage, "DTO");
+        var openApiHelper = new OpenApiHelper(basePackage, "DTO", sink, symbols, pool);
         openApiHelper.generateBySchemas(schemas);
     }
 
 
-    private void generateMapper() {
-        var mapperClassName = aggregateRoot.getTypeName() + "AppMapper";
+    /**
+     * One read model per GET operation of the aggregate marked with {@code x-projection: true}, named after the
+     * operation, e.g. {@code GetOrderByIdProjection}. It holds the fields of the response, for a page the fields of its
+     * rows, and is constructed by JPQL from the columns named by its {@link ConstructorProperties}, so its field types
+     * are the ones of the root.
+     *
+     * @throws IllegalArgumentException when the response has a field that is no column of the root, e.g. a collection
+     */
+    private void generateProjections(Aggregate aggregate) {
+        var rootFields = aggregate.root().getFields().stream()
+            .collect(Collectors.toMap(Field::getName, Function.identity()));
+        aggregate.openAPI().getPaths().values().stream()
+            .map(PathItem::getGet)
+            .filter(Objects::nonNull)
+            .filter(operation -> isTaggedWith(operation, aggregate))
+            .filter(ResourceLayerGenerator::isProjected)
+            .forEach(operation -> generateProjection(aggregate, operation, rootFields));
+    }
+
+    private void generateProjection(Aggregate aggregate, Operation operation, Map<String, Field> rootFields) {
+        var fields = new ArrayList<FieldSpec>();
+        getProjectedSchema(aggregate, operation).getProperties().forEach((property, propertySchema) -> {
+            var fieldName = CaseUtils.toCamelCase(property, false, '_');
+            if ("id".equals(fieldName)) {
+                fields.add(FieldSpec.builder(UUID.class, aggregate.name() + "Id", Modifier.PRIVATE, Modifier.FINAL).build());
+                return;
+            }
+            var field = rootFields.get(fieldName);
+            var fieldType = field == null ? null : getProjectedType(aggregate, field);
+            if (fieldType == null) {
+                throw new IllegalArgumentException("Response of %s with x-projection has %s, which is no column of %s"
+                    .formatted(operation.getSummary(), property, aggregate.className()));
+            }
+            fields.add(FieldSpec.builder(fieldType, fieldName, Modifier.PRIVATE, Modifier.FINAL).build());
+        });
+
+        var constructor = MethodSpec.constructorBuilder()
+            .addModifiers(Modifier.PUBLIC)
+            .addAnnotation(AnnotationSpec.builder(ConstructorProperties.class)
+                .addMember("value", "{$L}", fields.stream().map(field -> CodeBlock.of("$S", field.name)).collect(CodeBlock.joining(", ")))
+                .build());
+        fields.forEach(field -> constructor.addParameter(field.type, field.name).addStatement("this.$N = $N", field, field));
+
+        var projection = TypeSpec.classBuilder(operation.getSummary() + "Projection")
+            .addModifiers(Modifier.PUBLIC, Modifier.FINAL)
+            .addAnnotation(getterAnnotationClass)
+            .addFields(fields)
+            .addMethod(constructor.build())
+            .build();
+
+        generateFile(sink, dtoPackage, projection);
+    }
+
+    /**
+     * Schema of the JSON response of a projected operation, for a page the schema of its rows: its first property
+     * that is an object or an array of objects, the others being counts and the like.
+     */
+    private static Schema<?> getProjectedSchema(Aggregate aggregate, Operation operation) {
+        var schema = Optional.ofNullable(operation.getResponses())
+            .map(responses -> responses.get("200"))
+            .map(ApiResponse::getContent)
+            .map(content -> content.get("application/json"))
+            .map(MediaType::getSchema)
+            .map(responseSchema -> resolve(aggregate, responseSchema))
+            .filter(responseSchema -> !CollectionUtils.isEmpty(responseSchema.getProperties()))
+            .orElseThrow(() -> new IllegalArgumentException("Operation %s with x-projection has no JSON object response".formatted(operation.getSummary())));
+        if (operation.getParameters().stream().filter(parameter -> "path".equals(parameter.getIn())).count() == 1) {
+            return schema;
+        }
+        return schema.getProperties().values().stream()
+            .map(property -> resolve(aggregate, property.getItems() == null ? property : property.getItems()))
+            .filter(property -> !CollectionUtils.isEmpty(property.getProperties()))
+            .findFirst()
+            .orElseThrow(() -> new IllegalArgumentException("Page response of %s with x-projection has no rows".formatted(operation.getSummary())));
+    }
+
+    private static Schema<?> resolve(Aggregate aggregate, Schema<?> schema) {
+        if (schema.get$ref() == null) {
+            return schema;
+        }
+        var name = StringUtils.substringAfterLast(schema.get$ref(), "/");
+        return Optional.ofNullable(aggregate.openAPI().getComponents().getSchemas())
+            .map(schemas -> schemas.get(name))
+            .orElseThrow(() -> new IllegalArgumentException("Can not resolve " + schema.get$ref()));
+    }
+
+    /**
+     * @return {@code null} for fields that are no column of the root
+     */
+    private static TypeName getProjectedType(Aggregate aggregate, Field field) {
+        return switch (field.getType()) {
+            case INTEGER, NUMBER, STRING, BOOLEAN -> GeneratorHelper.getJavaType(field.getType());
+            case OBJECT -> Optional.ofNullable(aggregate.domainToPackage().get(field.getReferencedType()))
+                .map(packageName -> (TypeName) ClassName.get(packageName, field.getReferencedType()))
+                .orElse(null);
+            case ENUM -> {
+                var enumType = field.getReferencedType().split("\\.");
+                yield Optional.ofNullable(aggregate.domainToPackage().get(enumType[0]))
+                    .map(packageName -> (TypeName) ClassName.get(packageName, enumType[0]).nestedClass(enumType[1]))
+                    .orElse(null);
+            }
+            case ARRAY -> null;
+        };
+    }
+
+    private void generateMapper(Aggregate aggregate) {
+        var mapperClassName = aggregate.root().getTypeName() + "AppMapper";
         var mapperInstance = FieldSpec.builder(ClassName.get(mapperPackage, mapperClassName), "INSTANCE")
             .addModifiers(Modifier.PUBLIC, Modifier.STATIC, Modifier.FINAL)
             .initializer("$T.getMapper($L.class)", ClassName.get("org.mapstruct.factory", "Mappers"), mapperClassName)
             .build();
 
-        var dtoClassName = aggregateRoot.getTypeName() + "DTO";
+        var dtoClassName = aggregate.root().getTypeName() + "DTO";
         var domainToDtoMethodName = "to" + dtoClassName;
         var domainToDtoMethod = MethodSpec.methodBuilder(domainToDtoMethodName)
             .addModifiers(Modifier.PUBLIC, Modifier.ABSTRACT)
-            .addParameter(ParameterSpec.builder(domainClass, domainName).build())
+            .addParameter(ParameterSpec.builder(aggregate.domainClass(), aggregate.name()).build())
             .returns(ClassName.get(dtoPackage, dtoClassName))
             .build();
 
@@ -356,6 +763,6 @@ public class AppLayerGenerator {
             .addMethod(domainToDtoMethod)
             .build();
 
-        generateFile(mapperPackage, mapperClass);
+        generateFile(sink, mapperPackage, mapperClass);
     }
 }
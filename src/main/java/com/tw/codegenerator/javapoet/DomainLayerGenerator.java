@@ -1,15 +1,20 @@
 package com.tw.codegenerator.javapoet;
 
 import com.tw.codegenerator.metadata.*;
+import com.tw.codegenerator.output.FileSystemOutputSink;
+import com.tw.codegenerator.output.OutputSink;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.text.WordUtils;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Slice;
 import org.springframework.javapoet.*;
 import org.springframework.util.CollectionUtils;
 
 import javax.lang.model.element.Modifier;
 import java.util.*;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
 import java.util.stream.Collectors;
 
 import static com.tw.codegenerator.utils.GeneratorHelper.convertToSnakeCase;
@@ -28,13 +33,7 @@ public class DomainLayerGenerator {
 
     private final String adaptorPackage;
 
-    private Domain aggregateRoot;
-
-    private String uncapitalizedRootName;
-
-    private String rootName;
-
-    private final Map<String, String> domainToPackage = new HashMap<>();
+    private final OutputSink sink;
 
     private static final String SEEDWORK_PACKAGE = "com.tw.common.seedwork";
 
@@ -42,11 +41,26 @@ public class DomainLayerGenerator {
 
     private static final ClassName superBuilderAnnotationClass = ClassName.get("lombok.experimental", "SuperBuilder");
 
+    private static final ClassName jacksonizedAnnotationClass = ClassName.get("lombok.extern.jackson", "Jacksonized");
+
     private static final ClassName builderDefaultAnnotationClass = ClassName.get("lombok.Builder", "Default");
 
     private static final ClassName allArgsConstructorAnnotationClass = ClassName.get("lombok", "AllArgsConstructor");
 
+    private static final TypeVariableName PROJECTION_TYPE = TypeVariableName.get("P");
+
+    /**
+     * Per-run state, so one generator can serve several aggregates concurrently.
+     */
+    private record Aggregate(String rootName, String uncapitalizedRootName, Map<String, String> domainToPackage) {
+    }
+
     public DomainLayerGenerator(String basePackage) {
+        this(basePackage, FileSystemOutputSink.sourceRoot());
+    }
+
+    public DomainLayerGenerator(String basePackage, OutputSink sink) {
+        this.sink = sink;
         var domainPackage = basePackage + ".domain";
         this.entityPackage = domainPackage + ".entity";
         this.valueObjectPackage = domainPackage + ".valueobject";
@@ -55,14 +69,32 @@ public class DomainLayerGenerator {
         this.adaptorPackage = domainPackage + ".adaptor";
     }
 
-    private List<TypeSpec> classes = new ArrayList<>();
+    public List<DomainTypeSummary> generate(List<Domain> domains) {
+        return generate(domains, typeName -> true);
+    }
 
-    public List<TypeSpec> generate(List<Domain> domains) {
-        var aggregateCount = domains.stream().filter(Domain::isAggregateRoot).count();
-        if (aggregateCount > 1) {
-            throw new RuntimeException();
+    /**
+     * @param owned whether a domain type is written by this run, types owned by another aggregate of the same
+     *              bounded context are only built so that references to them resolve
+     */
+    public List<DomainTypeSummary> generate(List<Domain> domains, Predicate<String> owned) {
+        var summaries = new ArrayList<DomainTypeSummary>(domains.size());
+        generate(domains, owned, summaries::add);
+        return summaries;
+    }
+
+    /**
+     * Streams every domain type to {@code consumer} as soon as it is written, the built class itself is not kept,
+     * so memory does not grow with the size of the domain model.
+     */
+    public void generate(List<Domain> domains, Predicate<String> owned, Consumer<DomainTypeSummary> consumer) {
+        var aggregateRoots = domains.stream().filter(Domain::isAggregateRoot).map(Domain::getTypeName).toList();
+        if (aggregateRoots.size() > 1) {
+            throw new IllegalArgumentException("Expected at most one aggregate root but got " + aggregateRoots
+                + ", split them into one GenerationRequest per aggregate.");
         }
 
+        var domainToPackage = new HashMap<String, String>();
         domains.forEach(domain -> {
             String packageName;
             if (DomainType.ENTITY.equals(domain.getDomainType())) {
@@ -70,13 +102,10 @@ public class DomainLayerGenerator {
             } else {
                 packageName = valueObjectPackage;
             }
-            if (domain.isAggregateRoot()) {
-                aggregateRoot = domain;
-                rootName = aggregateRoot.getTypeName();
-                uncapitalizedRootName = StringUtils.uncapitalize(rootName);
-            }
             domainToPackage.put(domain.getTypeName(), packageName);
         });
+        var rootName = aggregateRoots.isEmpty() ? null : aggregateRoots.get(0);
+        var aggregate = new Aggregate(rootName, StringUtils.uncapitalize(rootName), domainToPackage);
 
         domains.forEach(domain -> {
             var classBuilder = getBaseDomainBuilder(domain);
@@ -85,61 +114,65 @@ public class DomainLayerGenerator {
             if (DomainType.ENTITY.equals(domain.getDomainType())) {
                 baseFields.add(FieldSpec.builder(UUID.class, StringUtils.uncapitalize(domain.getTypeName())  + "Id", Modifier.PRIVATE).build());
             }
-            baseFields.addAll(buildFields(domain.getFields()));
+            baseFields.addAll(buildFields(aggregate, domain.getFields()));
 
             var methods = new ArrayList<MethodSpec>();
             if (domain.isAggregateRoot()) {
-                methods.addAll(buildDomainMethods(domain.getMethods(), baseFields));
-                buildAdaptor(domain.getMethods());
+                methods.addAll(buildDomainMethods(aggregate, domain.getMethods(), baseFields));
+                buildBatchCommands(aggregate, domain.getMethods());
+                buildAdaptor(aggregate, domain.getMethods());
             }
 
             var clazz = buildClass(classBuilder, baseFields, methods);
-            classes.add(clazz);
-            generateFile(domainToPackage.get(domain.getTypeName()), clazz);
+            if (owned.test(domain.getTypeName())) {
+                generateFile(sink, domainToPackage.get(domain.getTypeName()), clazz);
+            }
+            consumer.accept(DomainTypeSummary.of(clazz, domain.isAggregateRoot() ? domain.getMethods() : List.of()));
         });
-        return classes;
     }
 
-    private void buildAdaptor(List<MethodType> methodTypes) {
-        var rootClass = ClassName.get(domainToPackage.get(rootName), rootName);
+    private void buildAdaptor(Aggregate aggregate, List<MethodType> methodTypes) {
+        var rootClass = ClassName.get(aggregate.domainToPackage().get(aggregate.rootName()), aggregate.rootName());
 
-        var adaptorBuilder = TypeSpec.interfaceBuilder(rootName + "Adaptor")
+        var adaptorBuilder = TypeSpec.interfaceBuilder(aggregate.rootName() + "Adaptor")
                 .addModifiers(Modifier.PUBLIC);
 
         if (methodTypes.contains(MethodType.CREATE) || methodTypes.contains(MethodType.UPDATE)) {
             adaptorBuilder.addMethod(MethodSpec.methodBuilder("save")
                     .addModifiers(Modifier.PUBLIC, Modifier.ABSTRACT)
-                    .addParameter(rootClass, uncapitalizedRootName)
+                    .addParameter(rootClass, aggregate.uncapitalizedRootName())
                     .returns(rootClass)
                     .build());
         }
-//        if (methodTypes.contains(MethodType.BATCH_CREATE) || methodTypes.contains(MethodType.BATCH_UPDATE)) {
-//            adaptorBuilder.addMethod(MethodSpec.methodBuilder("saveAll")
-//                    .addModifiers(Modifier.PUBLIC, Modifier.ABSTRACT)
-//                    .addParameter(ParameterizedTypeName.get(ClassName.get(List.class), rootClass), uncapitalizedRootName + "s")
-//                    .returns(ParameterizedTypeName.get(ClassName.get(List.class), rootClass))
-//                    .build());
-//        }
-//        if (methodTypes.contains(MethodType.DELETE)) {
-//            adaptorBuilder.addMethod(MethodSpec.methodBuilder("delete")
-//                    .addModifiers(Modifier.PUBLIC, Modifier.ABSTRACT)
-//                    .addParameter(UUID.class, uncapitalizedRootName + "Id")
-//                    .returns(TypeName.VOID)
-//                    .build());
-//        }
-//        if (methodTypes.contains(MethodType.BATCH_DELETE)) {
-//            adaptorBuilder.addMethod(MethodSpec.methodBuilder("deleteAll")
-//                    .addModifiers(Modifier.PUBLIC, Modifier.ABSTRACT)
-//                    .addParameter(ParameterizedTypeName.get(ClassName.get(List.class), ClassName.get(UUID.class)), uncapitalizedRootName + "Id")
-//                    .returns(TypeName.VOID)
-//                    .build());
-//        }
+        var rootListClass = ParameterizedTypeName.get(ClassName.get(List.class), rootClass);
+        if (methodTypes.stream().anyMatch(MethodType::isBatch)) {
+            // batch deletes are soft deletes as well, so they are saved like every other batch
+            adaptorBuilder.addMethod(MethodSpec.methodBuilder("saveAll")
+                    .addModifiers(Modifier.PUBLIC, Modifier.ABSTRACT)
+                    .addParameter(rootListClass, aggregate.uncapitalizedRootName() + "s")
+                    .returns(rootListClass)
+                    .build());
+        }
+        if (methodTypes.contains(MethodType.BATCH_UPDATE) || methodTypes.contains(MethodType.BATCH_DELETE)) {
+            adaptorBuilder.addMethod(MethodSpec.methodBuilder("findAllBy" + aggregate.rootName() + "IdIn")
+                    .addModifiers(Modifier.PUBLIC, Modifier.ABSTRACT)
+                    .addParameter(ParameterizedTypeName.get(ClassName.get(Collection.class), ClassName.get(UUID.class)), aggregate.uncapitalizedRootName() + "Ids")
+                    .returns(rootListClass)
+                    .build());
+        }
         if (methodTypes.contains(MethodType.QUERY_BY_ID)) {
-            adaptorBuilder.addMethod(MethodSpec.methodBuilder("findBy" + rootName + "Id")
+            adaptorBuilder.addMethod(MethodSpec.methodBuilder("findBy" + aggregate.rootName() + "Id")
                     .addModifiers(Modifier.PUBLIC, Modifier.ABSTRACT)
-                    .addParameter(UUID.class, uncapitalizedRootName + "Id")
+                    .addParameter(UUID.class, aggregate.uncapitalizedRootName() + "Id")
                     .returns(rootClass)
                     .build());
+            adaptorBuilder.addMethod(MethodSpec.methodBuilder("findBy" + aggregate.rootName() + "Id")
+                    .addModifiers(Modifier.PUBLIC, Modifier.ABSTRACT)
+                    .addTypeVariable(PROJECTION_TYPE)
+                    .addParameter(UUID.class, aggregate.uncapitalizedRootName() + "Id")
+                    .addParameter(ParameterizedTypeName.get(ClassName.get(Class.class), PROJECTION_TYPE), "projection")
+                    .returns(PROJECTION_TYPE)
+                    .build());
         }
         if (methodTypes.contains(MethodType.QUERY_BY_CRITERIA)) {
             adaptorBuilder.addMethod(MethodSpec.methodBuilder("findAll")
@@ -147,31 +180,54 @@ public class DomainLayerGenerator {
                     .addParameter(ClassName.get("com.tw.common.criteria", "QuerySchema"), "querySchema")
                     .returns(ParameterizedTypeName.get(ClassName.get(Page.class), rootClass))
                     .build());
+            adaptorBuilder.addMethod(MethodSpec.methodBuilder("findAll")
+                    .addModifiers(Modifier.PUBLIC, Modifier.ABSTRACT)
+                    .addTypeVariable(PROJECTION_TYPE)
+                    .addParameter(ClassName.get("com.tw.common.criteria", "QuerySchema"), "querySchema")
+                    .addParameter(ParameterizedTypeName.get(ClassName.get(Class.class), PROJECTION_TYPE), "projection")
+                    .returns(ParameterizedTypeName.get(ClassName.get(Page.class), PROJECTION_TYPE))
+                    .build());
+            adaptorBuilder.addMethod(MethodSpec.methodBuilder("findAllSlice")
+                    .addModifiers(Modifier.PUBLIC, Modifier.ABSTRACT)
+                    .addParameter(ClassName.get("com.tw.common.criteria", "QuerySchema"), "querySchema")
+                    .returns(ParameterizedTypeName.get(ClassName.get(Slice.class), rootClass))
+                    .build());
+            adaptorBuilder.addMethod(MethodSpec.methodBuilder("findAllAfter")
+                    .addModifiers(Modifier.PUBLIC, Modifier.ABSTRACT)
+                    .addParameter(ClassName.get("com.tw.common.criteria", "QuerySchema"), "querySchema")
+                    .returns(ParameterizedTypeName.get(ClassName.get("com.tw.common.criteria", "KeysetSlice"), rootClass))
+                    .build());
         }
 
-        generateFile(adaptorPackage, adaptorBuilder.build());
+        generateFile(sink, adaptorPackage, adaptorBuilder.build());
     }
 
-    private List<MethodSpec> buildDomainMethods(List<MethodType> methods, List<FieldSpec> fields) {
+    /**
+     * A batch method needs the domain method of its single counterpart, e.g. {@code BATCH_CREATE} calls {@code create}
+     * for every command of the batch.
+     */
+    private List<MethodSpec> buildDomainMethods(Aggregate aggregate, List<MethodType> methods, List<FieldSpec> fields) {
         return methods.stream()
+                .map(MethodType::single)
+                .distinct()
                 .filter(methodType -> MethodType.CREATE.equals(methodType) || MethodType.UPDATE.equals(methodType) || MethodType.DELETE.equals(methodType))
                 .map(methodType -> {
                     if (MethodType.CREATE.equals(methodType)) {
-                        var eventName = rootName + "CreatedEvent";
-                        buildEvent(eventName);
-                        var commandName = "Create" + rootName + "Command";
-                        buildCommand(enhanceCommandFields(fields), commandName);
+                        var eventName = aggregate.rootName() + "CreatedEvent";
+                        buildEvent(aggregate, eventName);
+                        var commandName = "Create" + aggregate.rootName() + "Command";
+                        buildCommand(enhanceCommandFields(aggregate, fields), commandName);
 
                         return MethodSpec.methodBuilder("create")
                                 .addModifiers(Modifier.PUBLIC, Modifier.STATIC)
                                 .addParameter(ClassName.get(commandPackage, commandName), "command")
-                                .returns(ClassName.get(entityPackage, rootName))
-                                .addCode(getCreateMethodCode(enhanceDomainFields(fields), eventName))
+                                .returns(ClassName.get(entityPackage, aggregate.rootName()))
+                                .addCode(getCreateMethodCode(aggregate, enhanceDomainFields(fields), eventName))
                                 .build();
                     } else if (MethodType.UPDATE.equals(methodType)) {
-                        var eventName = rootName + "UpdatedEvent";
-                        buildEvent(eventName);
-                        var commandName = "Update" + rootName + "Command";
+                        var eventName = aggregate.rootName() + "UpdatedEvent";
+                        buildEvent(aggregate, eventName);
+                        var commandName = "Update" + aggregate.rootName() + "Command";
                         buildCommand(fields, commandName);
 
                         return MethodSpec.methodBuilder("update")
@@ -181,10 +237,10 @@ public class DomainLayerGenerator {
                                 .addCode(getUpdateMethodCode(enhanceDomainFields(fields), eventName))
                                 .build();
                     } else {
-                        var eventName = rootName + "DeletedEvent";
-                        buildEvent(eventName);
-                        var commandName = "Delete" + rootName + "Command";
-                        buildCommand(List.of(FieldSpec.builder(UUID.class, uncapitalizedRootName + "Id", Modifier.PRIVATE).build()), commandName);
+                        var eventName = aggregate.rootName() + "DeletedEvent";
+                        buildEvent(aggregate, eventName);
+                        var commandName = "Delete" + aggregate.rootName() + "Command";
+                        buildCommand(List.of(FieldSpec.builder(UUID.class, aggregate.uncapitalizedRootName() + "Id", Modifier.PRIVATE).build()), commandName);
 
                         return MethodSpec.methodBuilder("delete")
                                 .addModifiers(Modifier.PUBLIC)
@@ -195,14 +251,31 @@ public class DomainLayerGenerator {
                 }).toList();
     }
 
-    private CodeBlock getCreateMethodCode(List<FieldSpec> fields, String eventName) {
+    private void buildBatchCommands(Aggregate aggregate, List<MethodType> methods) {
+        methods.stream()
+                .filter(MethodType::isBatch)
+                .forEach(methodType -> {
+                    var single = StringUtils.capitalize(methodType.single().name().toLowerCase());
+                    FieldSpec field;
+                    if (MethodType.BATCH_DELETE.equals(methodType)) {
+                        field = FieldSpec.builder(ParameterizedTypeName.get(ClassName.get(List.class), ClassName.get(UUID.class)),
+                                aggregate.uncapitalizedRootName() + "Ids", Modifier.PRIVATE).build();
+                    } else {
+                        var commandClass = ClassName.get(commandPackage, single + aggregate.rootName() + "Command");
+                        field = FieldSpec.builder(ParameterizedTypeName.get(ClassName.get(List.class), commandClass), "commands", Modifier.PRIVATE).build();
+                    }
+                    buildCommand(List.of(field), "Batch" + single + aggregate.rootName() + "Command");
+                });
+    }
+
+    private CodeBlock getCreateMethodCode(Aggregate aggregate, List<FieldSpec> fields, String eventName) {
         var builder = CodeBlock.builder();
 
         var params = fields.stream()
                 .filter(field -> !field.modifiers.contains(Modifier.FINAL))
                 .map(field -> "command.get%s()".formatted(WordUtils.capitalize(field.name)))
                 .collect(Collectors.joining(", "));
-        builder.addStatement("var $L = new $L($L)", uncapitalizedRootName, rootName, params);
+        builder.addStatement("var $L = new $L($L)", aggregate.uncapitalizedRootName(), aggregate.rootName(), params);
 
         fields.stream()
                 .filter(field -> field.type instanceof ParameterizedTypeName parameterizedType
@@ -210,13 +283,13 @@ public class DomainLayerGenerator {
                 .forEach(field -> {
                     var capitalizedFieldName = WordUtils.capitalize(field.name);
                     builder.beginControlFlow("if (!$T.isEmpty(command.get$L()))", CollectionUtils.class, capitalizedFieldName)
-                            .addStatement("$L.get$L().addAll(command.get$L())", uncapitalizedRootName, capitalizedFieldName, capitalizedFieldName)
+                            .addStatement("$L.get$L().addAll(command.get$L())", aggregate.uncapitalizedRootName(), capitalizedFieldName, capitalizedFieldName)
                             .endControlFlow();
                 });
 
-        builder.addStatement("var event = new $T($L, $L)", ClassName.get(eventPackage, eventName), uncapitalizedRootName, uncapitalizedRootName)
-                .addStatement("$L.registerEvent(event)", uncapitalizedRootName)
-                .addStatement("return $L", uncapitalizedRootName);
+        builder.addStatement("var event = new $T($L, $L)", ClassName.get(eventPackage, eventName), aggregate.uncapitalizedRootName(), aggregate.uncapitalizedRootName())
+                .addStatement("$L.registerEvent(event)", aggregate.uncapitalizedRootName())
+                .addStatement("return $L", aggregate.uncapitalizedRootName());
 
         return builder.build();
     }
@@ -257,17 +330,19 @@ public class DomainLayerGenerator {
                 .addModifiers(Modifier.PUBLIC)
                 .addAnnotation(getterAnnotationClass)
                 .addAnnotation(superBuilderAnnotationClass)
+                // batch commands are read from the request body through their builders
+                .addAnnotation(jacksonizedAnnotationClass)
                 .superclass(ClassName.get(SEEDWORK_PACKAGE, "Command"))
                 .addFields(fields)
                 .build();
 
-        generateFile(commandPackage, command);
+        generateFile(sink, commandPackage, command);
     }
 
-    private List<FieldSpec> enhanceCommandFields(List<FieldSpec> fields) {
+    private List<FieldSpec> enhanceCommandFields(Aggregate aggregate, List<FieldSpec> fields) {
         return fields.stream()
                 .map(field -> {
-                    if (field.name.equals(StringUtils.uncapitalize(rootName + "Id"))) {
+                    if (field.name.equals(StringUtils.uncapitalize(aggregate.rootName() + "Id"))) {
                         return field.toBuilder()
                                 .addAnnotation(builderDefaultAnnotationClass)
                                 .initializer("$T.randomUUID()", UUID.class)
@@ -278,42 +353,42 @@ public class DomainLayerGenerator {
                 .toList();
     }
 
-    private void buildEvent(String eventName) {
+    private void buildEvent(Aggregate aggregate, String eventName) {
         var event = TypeSpec.classBuilder(eventName)
                 .addModifiers(Modifier.PUBLIC)
                 .addAnnotation(getterAnnotationClass)
                 .superclass(ClassName.get(SEEDWORK_PACKAGE, "DomainEvent"))
-                .addField(FieldSpec.builder(ClassName.get(entityPackage, rootName), WordUtils.uncapitalize(rootName), Modifier.PRIVATE, Modifier.FINAL).build())
+                .addField(FieldSpec.builder(ClassName.get(entityPackage, aggregate.rootName()), WordUtils.uncapitalize(aggregate.rootName()), Modifier.PRIVATE, Modifier.FINAL).build())
                 .addMethod(MethodSpec.constructorBuilder()
                         .addModifiers(Modifier.PUBLIC)
                         .addParameter(Object.class, "eventSource")
-                        .addParameter(ClassName.get(entityPackage, rootName), uncapitalizedRootName)
+                        .addParameter(ClassName.get(entityPackage, aggregate.rootName()), aggregate.uncapitalizedRootName())
                         .addCode(CodeBlock.builder()
                                 .addStatement("super(eventSource)")
-                                .addStatement("this.$L = $L", uncapitalizedRootName, uncapitalizedRootName)
+                                .addStatement("this.$L = $L", aggregate.uncapitalizedRootName(), aggregate.uncapitalizedRootName())
                                 .build())
                         .build())
                 .build();
 
-        generateFile(eventPackage, event);
+        generateFile(sink, eventPackage, event);
     }
 
-    private List<FieldSpec> buildFields(List<Field> fields) {
+    private List<FieldSpec> buildFields(Aggregate aggregate, List<Field> fields) {
         return fields.stream()
                 .map(field -> {
                     switch (field.getType()) {
                         case OBJECT -> {
-                            var referencedClassName = ClassName.get(domainToPackage.get(field.getReferencedType()), field.getReferencedType());
+                            var referencedClassName = ClassName.get(aggregate.domainToPackage().get(field.getReferencedType()), field.getReferencedType());
                             return FieldSpec.builder(referencedClassName, field.getName(), Modifier.PRIVATE).build();
                         }
                         case ARRAY -> {
-                            var referencedClassName = ClassName.get(domainToPackage.get(field.getReferencedType()), field.getReferencedType());
+                            var referencedClassName = ClassName.get(aggregate.domainToPackage().get(field.getReferencedType()), field.getReferencedType());
                             var parameterizedType = ParameterizedTypeName.get(ClassName.get(List.class), referencedClassName);
                             return FieldSpec.builder(parameterizedType, field.getName(), Modifier.PRIVATE).build();
                         }
                         case ENUM -> {
                             var enumType = field.getReferencedType().split("\\.");
-                            var referencedClassName = ClassName.get(domainToPackage.get(enumType[0]), enumType[0]).nestedClass(enumType[1]);
+                            var referencedClassName = ClassName.get(aggregate.domainToPackage().get(enumType[0]), enumType[0]).nestedClass(enumType[1]);
                             return FieldSpec.builder(referencedClassName, field.getName(), Modifier.PRIVATE).build();
                         }
                         case INTEGER -> {
@@ -0,0 +1,39 @@
+package com.tw.codegenerator.javapoet;
+
+import com.tw.codegenerator.metadata.MethodType;
+import com.tw.common.seedwork.AbstractAggregateRoot;
+import org.springframework.javapoet.ClassName;
+import org.springframework.javapoet.TypeName;
+import org.springframework.javapoet.TypeSpec;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * What later layers need to know of a generated domain type, without its methods, annotations and initializers.
+ *
+ * @param fieldTypes field name to type, in declaration order
+ * @param enumNames  simple names of the enums nested in the type
+ * @param methods    methods of an aggregate root, empty for every other type
+ */
+public record DomainTypeSummary(String name, Map<String, TypeName> fieldTypes, Set<String> enumNames, boolean aggregateRoot,
+                                Set<MethodType> methods) {
+
+    private static final ClassName AGGREGATE_ROOT_CLASS = ClassName.get(AbstractAggregateRoot.class);
+
+    public static DomainTypeSummary of(TypeSpec domain, Collection<MethodType> methods) {
+        var fieldTypes = new LinkedHashMap<String, TypeName>();
+        domain.fieldSpecs.forEach(field -> fieldTypes.put(field.name, field.type));
+        var enumNames = domain.typeSpecs.stream()
+            .filter(typeSpec -> typeSpec.kind == TypeSpec.Kind.ENUM)
+            .map(typeSpec -> typeSpec.name)
+            .collect(Collectors.toUnmodifiableSet());
+        return new DomainTypeSummary(domain.name, Collections.unmodifiableMap(fieldTypes), enumNames,
+            AGGREGATE_ROOT_CLASS.equals(domain.superclass), methods.isEmpty() ? Set.of() : Collections.unmodifiableSet(EnumSet.copyOf(methods)));
+    }
+}
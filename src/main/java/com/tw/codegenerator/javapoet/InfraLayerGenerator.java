@@ -1,6 +1,8 @@
 package com.tw.codegenerator.javapoet;
 
 import com.tw.codegenerator.metadata.Domain;
+import com.tw.codegenerator.output.FileSystemOutputSink;
+import com.tw.codegenerator.output.OutputSink;
 import com.tw.common.seedwork.AbstractAggregateRootEntity;
 import com.tw.common.seedwork.BaseEntity;
 import io.hypersistence.utils.hibernate.type.json.JsonType;
@@ -31,7 +33,11 @@ public class InfraLayerGenerator extends AbstractInfraLayerGenerator{
     private List<Domain> domains;
 
     public InfraLayerGenerator(String basePackage) {
-        super(basePackage);
+        this(basePackage, FileSystemOutputSink.sourceRoot());
+    }
+
+    public InfraLayerGenerator(String basePackage, OutputSink sink) {
+        super(basePackage, sink);
         this.entityPackage = basePackage + ".infra.jpa.entity";
         this.domainPackage = basePackage + ".domain";
         this.domainEntityPackage = domainPackage + ".entity";
@@ -47,8 +53,8 @@ public class InfraLayerGenerator extends AbstractInfraLayerGenerator{
 
         generateEntities(null, root);
         generateMapper(root.getTypeName());
-        generateRepository(root.getTypeName());
-        generateAdaptorImpl(root.getTypeName());
+        generateRepository(root.getTypeName(), root.getMethods());
+        generateAdaptorImpl(root.getTypeName(), root.getMethods());
     }
 
     private void generateEntities(Domain parent, Domain root) throws ClassNotFoundException {
@@ -119,7 +125,7 @@ public class InfraLayerGenerator extends AbstractInfraLayerGenerator{
         }
 
         var rootEntityClass = builder.build();
-        generateFile(entityPackage, rootEntityClass);
+        generateFile(sink, entityPackage, rootEntityClass);
     }
 
     private List<FieldSpec> getFields(Domain root) throws ClassNotFoundException {
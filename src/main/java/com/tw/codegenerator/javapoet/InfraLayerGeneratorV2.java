@@ -1,6 +1,7 @@
 package com.tw.codegenerator.javapoet;
 
-import com.tw.common.seedwork.AbstractAggregateRoot;
+import com.tw.codegenerator.output.FileSystemOutputSink;
+import com.tw.codegenerator.output.OutputSink;
 import com.tw.common.seedwork.AbstractAggregateRootEntity;
 import com.tw.common.seedwork.BaseEntity;
 import io.hypersistence.utils.hibernate.type.json.JsonType;
@@ -10,6 +11,8 @@ import org.springframework.javapoet.*;
 
 import javax.lang.model.element.Modifier;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Predicate;
 import java.util.stream.Collectors;
 
 import static com.tw.codegenerator.utils.GeneratorHelper.generateFile;
@@ -20,114 +23,157 @@ public class InfraLayerGeneratorV2 extends AbstractInfraLayerGenerator {
 
     private static final ClassName setterAnnotationClass = ClassName.get("lombok", "Setter");
 
+    private static final Map<String, Boolean> COLLECTION_TYPES = new ConcurrentHashMap<>(Map.of(
+        List.class.getName(), true,
+        Set.class.getName(), true,
+        Collection.class.getName(), true,
+        ArrayList.class.getName(), true,
+        LinkedList.class.getName(), true,
+        HashSet.class.getName(), true,
+        LinkedHashSet.class.getName(), true,
+        Map.class.getName(), false));
+
     private final String entityPackage;
 
     private final String domainPackage;
 
-    private List<TypeSpec> domains;
-
     public InfraLayerGeneratorV2(String basePackage) {
-        super(basePackage);
+        this(basePackage, FileSystemOutputSink.sourceRoot());
+    }
+
+    public InfraLayerGeneratorV2(String basePackage, OutputSink sink) {
+        super(basePackage, sink);
         this.entityPackage = basePackage + ".infra.jpa.entity";
         this.domainPackage = basePackage + ".domain";
     }
 
-    public void generateByTypeSpec(List<TypeSpec> domains) throws ClassNotFoundException {
-        this.domains = domains;
+    public void generateBySummaries(Collection<DomainTypeSummary> domains) throws ClassNotFoundException {
+        generateBySummaries(domains, typeName -> true);
+    }
 
+    /**
+     * @param owned whether the entity of a domain type is written by this run, see {@link DomainLayerGenerator#generate(List, Predicate)}
+     */
+    public void generateBySummaries(Collection<DomainTypeSummary> domains, Predicate<String> owned) throws ClassNotFoundException {
+        var domainsByName = new HashMap<String, DomainTypeSummary>();
+        domains.forEach(domain -> domainsByName.put(domain.name(), domain));
         var root = domains.stream()
-            .filter(this::isAggregateRoot)
+            .filter(DomainTypeSummary::aggregateRoot)
             .findAny()
-            .orElseThrow();
+            .orElseThrow(() -> new IllegalArgumentException("No aggregate root found in domain types."));
 
-        generateEntities(null, root);
-        generateMapper(root.name);
-        generateRepository(root.name);
-        generateAdaptorImpl(root.name);
+        generateEntities(domainsByName, owned, root);
+        generateMapper(root.name());
+        generateRepository(root.name(), root.methods());
+        generateAdaptorImpl(root.name(), root.methods());
     }
 
-    private boolean isAggregateRoot(TypeSpec domain) {
-        return domain.superclass.equals(ClassName.get(AbstractAggregateRoot.class));
-    }
-
-    private void generateEntities(TypeSpec parent, TypeSpec root) throws ClassNotFoundException {
-        var fields = getFields(root);
-        if (parent != null) {
-            var parentEntityClassName = ClassName.get(entityPackage, parent.name + "Entity");
-            var parentField = FieldSpec.builder(parentEntityClassName, StringUtils.uncapitalize(parent.name))
-                .addModifiers(Modifier.PRIVATE)
-                .addAnnotation(ManyToOne.class)
-                .addAnnotation(AnnotationSpec.builder(JoinColumn.class)
-                    .addMember("name", "$S", StringUtils.uncapitalize(parent.name + "_id"))
+    /**
+     * Walks the aggregate breadth first from its root, every entity is generated once, with a parent mapping for
+     * each entity that holds a collection of it, as every such collection is mapped by its own parent field.
+     */
+    private void generateEntities(Map<String, DomainTypeSummary> domainsByName, Predicate<String> owned, DomainTypeSummary aggregateRoot) throws ClassNotFoundException {
+        var parents = new LinkedHashMap<String, Set<DomainTypeSummary>>();
+        var pending = new ArrayDeque<DomainTypeSummary>();
+        parents.put(aggregateRoot.name(), new LinkedHashSet<>());
+        pending.add(aggregateRoot);
+
+        var builders = new LinkedHashMap<String, TypeSpec.Builder>();
+        while (!pending.isEmpty()) {
+            var root = pending.poll();
+
+            var fields = getFields(root);
+            var builder = TypeSpec.classBuilder(root.name() + "Entity")
+                .addModifiers(Modifier.PUBLIC)
+                .addAnnotation(Entity.class)
+                .addAnnotation(getterAnnotationClass)
+                .addAnnotation(setterAnnotationClass)
+                .addAnnotation(AnnotationSpec.builder(Table.class)
+                    .addMember("name", "$S", root.name().toLowerCase())
                     .build())
-                .build();
-            fields.add(parentField);
-        }
-        var builder = TypeSpec.classBuilder(root.name + "Entity")
-            .addModifiers(Modifier.PUBLIC)
-            .addAnnotation(Entity.class)
-            .addAnnotation(getterAnnotationClass)
-            .addAnnotation(setterAnnotationClass)
-            .addAnnotation(AnnotationSpec.builder(Table.class)
-                .addMember("name", "$S", root.name.toLowerCase())
-                .build())
-            .addFields(fields);
-
-        if (isAggregateRoot(root)) {
-            builder.superclass(AbstractAggregateRootEntity.class);
-        } else {
-            builder.superclass(BaseEntity.class);
-        }
+                .addFields(fields);
 
-        for (FieldSpec field : fields) {
-            if (field.type instanceof ParameterizedTypeName parameterizedTypeName
-                && (Collection.class.isAssignableFrom(Class.forName(parameterizedTypeName.rawType.canonicalName())))
-                && (!parameterizedTypeName.typeArguments.isEmpty())) {
-
-                var typeArgument = parameterizedTypeName.typeArguments.get(0);
-                var entityName = ((ClassName) typeArgument).simpleName();
-                if (entityName.endsWith("Entity")) {
-                    // 去除"Entity"后缀
-                    var domainName = entityName.substring(0, entityName.length() - "Entity".length());
-
-                    if (isAggregateRoot(root)) {
-                        builder.addMethod(MethodSpec.methodBuilder("add" + domainName)
-                            .addModifiers(Modifier.PUBLIC)
-                            .addParameter(typeArgument, StringUtils.uncapitalize(domainName))
-                            .returns(TypeName.VOID)
-                            .addCode(CodeBlock.builder()
-                                .addStatement("this.$L.add($L)", field.name, StringUtils.uncapitalize(domainName))
-                                .addStatement("$L.set$L(this)", StringUtils.uncapitalize(domainName), root.name)
-                                .build())
-                            .build()
-                        );
-                    }
+            if (root.aggregateRoot()) {
+                builder.superclass(AbstractAggregateRootEntity.class);
+            } else {
+                builder.superclass(BaseEntity.class);
+            }
 
-                    domains.stream()
-                        .filter(domain -> domainName.equals(domain.name))
-                        .findAny()
-                        .ifPresent(domain -> {
-                            try {
-                                generateEntities(root, domain);
-                            } catch (ClassNotFoundException e) {
-                                throw new RuntimeException(e);
-                            }
-                        });
+            for (FieldSpec field : fields) {
+                if (field.type instanceof ParameterizedTypeName parameterizedTypeName
+                    && isCollection(parameterizedTypeName.rawType)
+                    && (!parameterizedTypeName.typeArguments.isEmpty())) {
+
+                    var typeArgument = parameterizedTypeName.typeArguments.get(0);
+                    var entityName = ((ClassName) typeArgument).simpleName();
+                    if (entityName.endsWith("Entity")) {
+                        // 去除"Entity"后缀
+                        var domainName = entityName.substring(0, entityName.length() - "Entity".length());
+
+                        if (root.aggregateRoot()) {
+                            builder.addMethod(MethodSpec.methodBuilder("add" + domainName)
+                                .addModifiers(Modifier.PUBLIC)
+                                .addParameter(typeArgument, StringUtils.uncapitalize(domainName))
+                                .returns(TypeName.VOID)
+                                .addCode(CodeBlock.builder()
+                                    .addStatement("this.$L.add($L)", field.name, StringUtils.uncapitalize(domainName))
+                                    .addStatement("$L.set$L(this)", StringUtils.uncapitalize(domainName), root.name())
+                                    .build())
+                                .build()
+                            );
+                        }
+
+                        var child = domainsByName.get(domainName);
+                        if (child != null) {
+                            var childParents = parents.computeIfAbsent(child.name(), name -> {
+                                pending.add(child);
+                                return new LinkedHashSet<>();
+                            });
+                            childParents.add(root);
+                        }
+                    }
                 }
             }
+            builders.put(root.name(), builder);
+        }
+
+        for (var entity : builders.entrySet()) {
+            for (var parent : parents.get(entity.getKey())) {
+                var parentEntityClassName = ClassName.get(entityPackage, parent.name() + "Entity");
+                entity.getValue().addField(FieldSpec.builder(parentEntityClassName, StringUtils.uncapitalize(parent.name()))
+                    .addModifiers(Modifier.PRIVATE)
+                    .addAnnotation(ManyToOne.class)
+                    .addAnnotation(AnnotationSpec.builder(JoinColumn.class)
+                        .addMember("name", "$S", StringUtils.uncapitalize(parent.name() + "_id"))
+                        .build())
+                    .build());
+            }
+            if (owned.test(entity.getKey())) {
+                generateFile(sink, entityPackage, entity.getValue().build());
+            }
         }
+    }
 
-        var rootEntityClass = builder.build();
-        generateFile(entityPackage, rootEntityClass);
+    /**
+     * The usual collection types are known up front, anything else is loaded once and remembered.
+     */
+    private static boolean isCollection(ClassName rawType) throws ClassNotFoundException {
+        var canonicalName = rawType.canonicalName();
+        var collection = COLLECTION_TYPES.get(canonicalName);
+        if (collection == null) {
+            collection = Collection.class.isAssignableFrom(Class.forName(canonicalName));
+            COLLECTION_TYPES.put(canonicalName, collection);
+        }
+        return collection;
     }
 
-    private List<FieldSpec> getFields(TypeSpec root) {
-        return root.fieldSpecs.stream()
+    private List<FieldSpec> getFields(DomainTypeSummary root) {
+        return root.fieldTypes().entrySet().stream()
             .map(field -> {
                 var annotations = new ArrayList<AnnotationSpec>();
                 FieldSpec.Builder builder;
                 try {
-                    builder = FieldSpec.builder(getFieldType(root, field, annotations), field.name, Modifier.PRIVATE);
+                    builder = FieldSpec.builder(getFieldType(root, field.getValue(), annotations), field.getKey(), Modifier.PRIVATE);
                 } catch (ClassNotFoundException e) {
                     throw new RuntimeException(e);
                 }
@@ -138,13 +184,12 @@ public class InfraLayerGeneratorV2 extends AbstractInfraLayerGenerator {
             .collect(Collectors.toList());
     }
 
-    private TypeName getFieldType(TypeSpec root, FieldSpec field, ArrayList<AnnotationSpec> annotations) throws ClassNotFoundException {
-        var fieldType = field.type;
+    private TypeName getFieldType(DomainTypeSummary root, TypeName fieldType, ArrayList<AnnotationSpec> annotations) throws ClassNotFoundException {
         if (fieldType instanceof ParameterizedTypeName parameterizedTypeName) {
             var rawType = parameterizedTypeName.rawType;
-            if (Collection.class.isAssignableFrom(Class.forName(rawType.canonicalName()))) {
+            if (isCollection(rawType)) {
                 var annotation = AnnotationSpec.builder(OneToMany.class)
-                    .addMember("mappedBy", "$S", StringUtils.uncapitalize(root.name))
+                    .addMember("mappedBy", "$S", StringUtils.uncapitalize(root.name()))
                     .addMember("cascade", "$T.$L", CascadeType.class, "ALL")
                     .addMember("orphanRemoval", "$L", "true")
                     .build();
@@ -160,22 +205,18 @@ public class InfraLayerGeneratorV2 extends AbstractInfraLayerGenerator {
             }
         } else {
             if (fieldType.toString().startsWith(domainPackage)) {
-                var className = (ClassName) field.type;
-                root.typeSpecs.stream()
-                    .filter(typeSpec -> typeSpec.kind.name().equals("ENUM"))
-                    .filter(typeSpec -> typeSpec.name.equals(className.simpleName()))
-                    .findAny()
-                    .ifPresentOrElse(typeSpec -> {
-                        var annotation = AnnotationSpec.builder(Enumerated.class)
-                            .addMember("value", "$T.$L", EnumType.class, "STRING")
-                            .build();
-                        annotations.add(annotation);
-                    }, () -> {
-                        var annotation = AnnotationSpec.builder(org.hibernate.annotations.Type.class)
-                            .addMember("value", "$T.class", JsonType.class)
-                            .build();
-                        annotations.add(annotation);
-                    });
+                var className = (ClassName) fieldType;
+                if (root.enumNames().contains(className.simpleName())) {
+                    var annotation = AnnotationSpec.builder(Enumerated.class)
+                        .addMember("value", "$T.$L", EnumType.class, "STRING")
+                        .build();
+                    annotations.add(annotation);
+                } else {
+                    var annotation = AnnotationSpec.builder(org.hibernate.annotations.Type.class)
+                        .addMember("value", "$T.class", JsonType.class)
+                        .build();
+                    annotations.add(annotation);
+                }
             }
         }
         return fieldType;
@@ -1,6 +1,13 @@
 package com.tw.codegenerator.javapoet;
 
+import com.tw.codegenerator.output.FileSystemOutputSink;
+import com.tw.codegenerator.output.OutputSink;
+import com.tw.codegenerator.spec.OpenApiSpecRepository;
+import com.tw.codegenerator.spec.StreamingOpenApiSpec;
+import com.tw.codegenerator.spec.SymbolTable;
 import com.tw.codegenerator.utils.OpenApiHelper;
+import com.tw.common.criteria.Keyset;
+import com.tw.common.criteria.KeysetSlice;
 import io.swagger.v3.oas.models.OpenAPI;
 import io.swagger.v3.oas.models.Operation;
 import io.swagger.v3.oas.models.PathItem;
@@ -8,11 +15,13 @@ import io.swagger.v3.oas.models.media.MediaType;
 import io.swagger.v3.oas.models.parameters.Parameter;
 import io.swagger.v3.oas.models.parameters.RequestBody;
 import io.swagger.v3.oas.models.responses.ApiResponse;
-import io.swagger.v3.parser.OpenAPIV3Parser;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.lang3.tuple.Triple;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
 import org.springframework.http.ResponseEntity;
 import org.springframework.javapoet.*;
 import org.springframework.util.CollectionUtils;
@@ -20,23 +29,22 @@ import org.springframework.web.bind.annotation.*;
 
 import javax.lang.model.element.Modifier;
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
 import java.util.stream.Collectors;
 
-import static com.google.common.collect.Lists.newArrayList;
 import static com.tw.codegenerator.utils.GeneratorHelper.generateFile;
 import static com.tw.codegenerator.utils.GeneratorHelper.getTypeName;
-import static com.tw.codegenerator.utils.OpenApiHelper.getRefClassName;
-import static com.tw.codegenerator.utils.OpenApiHelper.getRefTypeName;
 
 @Slf4j
 public class ResourceLayerGenerator {
 
-    // Tag : URL - HttpMethod - Operation
-    private final Map<String, List<Triple<String, PathItem.HttpMethod, Operation>>> controllerGroup = new HashMap<>();
+    private static final ClassName requiredArgsConstructorAnnotationClass = ClassName.get("lombok", "RequiredArgsConstructor");
 
-    private final Map<String, List<Triple<String, PathItem.HttpMethod, Operation>>> queryControllerGroup = new HashMap<>();
+    private static final String PAGINATION_EXTENSION = "x-pagination";
 
-    private static final ClassName requiredArgsConstructorAnnotationClass = ClassName.get("lombok", "RequiredArgsConstructor");
+    private static final String PROJECTION_EXTENSION = "x-projection";
+
+    private static final String DEFAULT_KEYSET_SIZE = "20";
 
     private final String basePackage;
 
@@ -56,8 +64,56 @@ public class ResourceLayerGenerator {
 
     private final String commandPackage;
 
+    private final OpenApiSpecRepository specRepository;
+
+    private final OutputSink sink;
+
+    private final ForkJoinPool pool;
+
+    /**
+     * How a criteria operation pages, chosen per operation with {@code x-pagination}. {@code SLICE} and {@code KEYSET}
+     * run no count query.
+     */
+    enum Pagination {
+        PAGE, SLICE, KEYSET;
+
+        static Pagination of(Operation operation) {
+            var value = operation.getExtensions() == null ? null : operation.getExtensions().get(PAGINATION_EXTENSION);
+            if (value == null) {
+                return PAGE;
+            }
+            return Arrays.stream(values())
+                .filter(pagination -> pagination.name().equalsIgnoreCase(value.toString()))
+                .findFirst()
+                .orElseThrow(() -> new IllegalArgumentException("Unknown %s %s of operation %s".formatted(PAGINATION_EXTENSION, value, operation.getSummary())));
+        }
+    }
+
+    // Tag : URL - HttpMethod - Operation, one per run so that a generator can be shared between threads
+    private record MethodGroups(Map<String, List<Triple<String, PathItem.HttpMethod, Operation>>> controllerGroup,
+                                Map<String, List<Triple<String, PathItem.HttpMethod, Operation>>> queryControllerGroup) {
+
+        MethodGroups() {
+            this(new HashMap<>(), new HashMap<>());
+        }
+    }
+
     public ResourceLayerGenerator(String basePackage) {
+        this(basePackage, OpenApiSpecRepository.shared(), FileSystemOutputSink.sourceRoot());
+    }
+
+    public ResourceLayerGenerator(String basePackage, OpenApiSpecRepository specRepository, OutputSink sink) {
+        this(basePackage, specRepository, sink, null);
+    }
+
+    /**
+     * @param pool builds the request bodies and responses in parallel when not {@code null}
+     */
+    public ResourceLayerGenerator(String basePackage, OpenApiSpecRepository specRepository, OutputSink sink, ForkJoinPool pool) {
         this.basePackage = basePackage;
+        this.specRepository = specRepository;
+        this.sink = sink;
+        this.pool = pool;
         var resourcePackage = basePackage + ".resource";
         this.controllerPackage = resourcePackage + ".controller";
         this.responsePackage = controllerPackage + ".response";
@@ -71,24 +127,73 @@ public class ResourceLayerGenerator {
 
 
     public void generate(String openApiFilePath) {
-        var openAPI = new OpenAPIV3Parser().read(openApiFilePath);
+        generate(specRepository.get(openApiFilePath));
+    }
+
+    public void generate(OpenAPI openAPI) {
+        var symbols = SymbolTable.of(openAPI, basePackage);
+        var groups = groupMethods(openAPI.getPaths());
+
+        generateRequestBodies(openAPI.getComponents().getRequestBodies(), symbols);
+        generateResponses(groups, symbols);
+        generateMappers(groups);
+        generateControllers(groups, symbols);
+    }
+
+    /**
+     * Generates one tag at a time from operations read one by one, so only the operations of the current controller
+     * are held in memory. The app layer still needs the parsed spec for its DTOs.
+     */
+    public void generate(StreamingOpenApiSpec spec) {
+        var symbols = SymbolTable.of(basePackage, spec.getComponentNames());
+        var openApiHelper = new OpenApiHelper(basePackage, "", sink, symbols);
+        spec.forEachRequestBody(openApiHelper::generateByRequestBody);
+
+        for (String tag : spec.getTags()) {
+            var groups = new MethodGroups();
+            spec.forEachOperationOfTag(tag, (url, method, operation) -> addOperation(groups, url, method, operation));
+            generateTag(groups, symbols);
+        }
+    }
+
+    /**
+     * Responses, mapper and controllers of the operations of one tag, see {@link #pathsByTag(Map)}.
+     */
+    public void generateTag(Map<String, PathItem> taggedPaths, SymbolTable symbols) {
+        generateTag(groupMethods(taggedPaths), symbols);
+    }
 
-        groupMethods(openAPI);
+    private void generateTag(MethodGroups groups, SymbolTable symbols) {
+        generateResponses(groups, symbols);
+        generateMappers(groups);
+        generateControllers(groups, symbols);
+    }
 
-        generateRequestBodies(openAPI.getComponents().getRequestBodies());
-        generateResponses();
-        generateMappers();
-        generateControllers();
+    /**
+     * Path items per first tag of their operations, every path item holding the operations of its tag only.
+     */
+    public static Map<String, Map<String, PathItem>> pathsByTag(Map<String, PathItem> paths) {
+        var tagged = new LinkedHashMap<String, Map<String, PathItem>>();
+        paths.forEach((url, pathItem) -> pathItem.readOperationsMap().forEach((method, operation) -> {
+            if (CollectionUtils.isEmpty(operation.getTags())) {
+                log.warn("Skip untagged {} {}", method, url);
+                return;
+            }
+            tagged.computeIfAbsent(operation.getTags().get(0), key -> new LinkedHashMap<>())
+                .computeIfAbsent(url, key -> new PathItem())
+                .operation(method, operation);
+        }));
+        return tagged;
     }
 
-    private void generateRequestBodies(Map<String, RequestBody> requestBodies) {
-        var openApiHelper = new OpenApiHelper(basePackage, "");
+    public void generateRequestBodies(Map<String, RequestBody> requestBodies, SymbolTable symbols) {
+        var openApiHelper = new OpenApiHelper(basePackage, "", sink, symbols, pool);
         openApiHelper.generateByRequestBodies(requestBodies);
     }
 
-    private void generateResponses() {
-        var mergedSet = new HashSet<>(queryControllerGroup.values());
-        mergedSet.addAll(controllerGroup.values());
+    private void generateResponses(MethodGroups groups, SymbolTable symbols) {
+        var mergedSet = new HashSet<>(groups.queryControllerGroup().values());
+        mergedSet.addAll(groups.controllerGroup().values());
 
         var operations = mergedSet.stream()
             .flatMap(List::stream)
@@ -103,11 +208,12 @@ public class ResourceLayerGenerator {
             .collect(Collectors.toMap(
                 operation -> StringUtils.capitalize(operation.getSummary()),
                 Operation::getResponses));
-        var openApiHelper = new OpenApiHelper(basePackage, "");
+        var openApiHelper = new OpenApiHelper(basePackage, "", sink, symbols, pool);
         openApiHelper.generateByResponses(operations);
     }
 
-    private void generateMappers() {
+    private void generateMappers(MethodGroups groups) {
+        var queryControllerGroup = groups.queryControllerGroup();
         for (String domainName : queryControllerGroup.keySet()) {
             var mapperClassName = domainName + "RepresentationMapper";
             var mapperInstance = FieldSpec.builder(ClassName.get(mapperPackage, mapperClassName), "INSTANCE")
@@ -127,10 +233,11 @@ public class ResourceLayerGenerator {
                     var responseClassName = operation.getSummary() + "Response";
 
                     if (pathParams.size() == 1) {
-                        var dtoClass = ClassName.get(dtoPackage, domainName + "DTO");
+                        var projected = isProjected(operation);
+                        var dtoClass = projected ? getProjectionClass(operation) : ClassName.get(dtoPackage, domainName + "DTO");
                         var dtoToResponseMethod = MethodSpec.methodBuilder("to" + responseClassName)
                             .addModifiers(Modifier.PUBLIC, Modifier.ABSTRACT)
-                            .addParameter(ParameterSpec.builder(dtoClass, domainName.toLowerCase() + "Dto").build())
+                            .addParameter(ParameterSpec.builder(dtoClass, domainName.toLowerCase() + (projected ? "Projection" : "Dto")).build())
                             .returns(ClassName.get(responsePackage, responseClassName))
                             .build();
                         methods.add(dtoToResponseMethod);
@@ -138,10 +245,17 @@ public class ResourceLayerGenerator {
 
                     var queryParams = parameters.stream().filter(parameter -> parameter.getIn().equals("query")).toList();
                     if (!CollectionUtils.isEmpty(queryParams)) {
-                        var dtoPageClass = ParameterizedTypeName.get(ClassName.get(Page.class), ClassName.get(dtoPackage, domainName + "DTO"));
+                        var pagination = Pagination.of(operation);
+                        var pageClass = switch (pagination) {
+                            case PAGE -> Page.class;
+                            case SLICE -> Slice.class;
+                            case KEYSET -> KeysetSlice.class;
+                        };
+                        var dtoPageClass = ParameterizedTypeName.get(ClassName.get(pageClass),
+                            isProjected(operation) ? getProjectionClass(operation) : ClassName.get(dtoPackage, domainName + "DTO"));
                         var dtoToPageResponseMethod = MethodSpec.methodBuilder("to" + responseClassName)
                             .addModifiers(Modifier.PUBLIC, Modifier.ABSTRACT)
-                            .addParameter(ParameterSpec.builder(dtoPageClass, domainName.toLowerCase() + "DtoPage").build())
+                            .addParameter(ParameterSpec.builder(dtoPageClass, domainName.toLowerCase() + (pagination == Pagination.PAGE ? "DtoPage" : "DtoSlice")).build())
                             .returns(ClassName.get(responsePackage, responseClassName))
                             .build();
                         methods.add(dtoToPageResponseMethod);
@@ -155,13 +269,14 @@ public class ResourceLayerGenerator {
                 .addMethods(methods)
                 .build();
 
-            generateFile(mapperPackage, mapperClass);
+            generateFile(sink, mapperPackage, mapperClass);
 
         }
 
     }
 
-    private void generateControllers(Map<String, List<Triple<String, PathItem.HttpMethod, Operation>>> controllerGroup, String suffix) {
+    private void generateControllers(Map<String, List<Triple<String, PathItem.HttpMethod, Operation>>> controllerGroup, String suffix,
+                                     SymbolTable symbols) {
         for (String tag : controllerGroup.keySet()) {
             var controllerClassName = Arrays.stream(tag.split(" "))
                 .map(StringUtils::capitalize)
@@ -175,10 +290,10 @@ public class ResourceLayerGenerator {
                 .addAnnotation(RestController.class)
                 .addAnnotation(requiredArgsConstructorAnnotationClass)
                 .addFields(fields)
-                .addMethods(getControllerMethods(operations))
+                .addMethods(getControllerMethods(operations, symbols))
                 .build();
 
-            generateFile(controllerPackage, controllerClass);
+            generateFile(sink, controllerPackage, controllerClass);
         }
     }
 
@@ -188,6 +303,10 @@ public class ResourceLayerGenerator {
                 var httpMethod = triple.getMiddle();
                 var operation = triple.getRight();
                 var domainName = operation.getTags().get(0);
+                if (isBatch(httpMethod, operation)) {
+                    // batch handlers are named after their operation, e.g. BatchCreateOrder
+                    return getFieldSpec(operation.getSummary() + "CommandHandler", commandHandlerPackage);
+                }
 
                 return switch (httpMethod) {
                     case GET -> {
@@ -219,12 +338,12 @@ public class ResourceLayerGenerator {
         return FieldSpec.builder(ClassName.get(packageName, className), StringUtils.uncapitalize(className), Modifier.PRIVATE, Modifier.FINAL).build();
     }
 
-    private void generateControllers() {
-        generateControllers(queryControllerGroup, "QueryController");
-        generateControllers(controllerGroup, "Controller");
+    private void generateControllers(MethodGroups groups, SymbolTable symbols) {
+        generateControllers(groups.queryControllerGroup(), "QueryController", symbols);
+        generateControllers(groups.controllerGroup(), "Controller", symbols);
     }
 
-    private List<MethodSpec> getControllerMethods(List<Triple<String, PathItem.HttpMethod, Operation>> operations) {
+    private List<MethodSpec> getControllerMethods(List<Triple<String, PathItem.HttpMethod, Operation>> operations, SymbolTable symbols) {
         return operations.stream()
             .map(triple -> {
                 var method = triple.getMiddle();
@@ -247,29 +366,56 @@ public class ResourceLayerGenerator {
                     responseSchemaOptional.isEmpty() ? ClassName.get(Void.class) : ClassName.get(responsePackage, StringUtils.capitalize(operation.getSummary()) + "Response");
                 builder.returns(ParameterizedTypeName.get(ClassName.get(ResponseEntity.class), returnType));
 
-                var parameters = getParameters(operation);
+                var parameters = isBatch(method, operation) ? List.of(getBatchCommandParam(operation)) : getParameters(operation, symbols);
                 if (!CollectionUtils.isEmpty(parameters)) {
                     builder.addParameters(parameters);
                 }
+                if (method == PathItem.HttpMethod.GET) {
+                    switch (Pagination.of(operation)) {
+                        case SLICE -> builder.addParameter(Pageable.class, "pageable");
+                        case KEYSET -> builder.addParameters(getKeysetParameters());
+                        default -> {
+                        }
+                    }
+                }
 
                 return builder.build();
             })
             .toList();
     }
 
-    private ArrayList<ParameterSpec> getParameters(Operation operation) {
+    private ArrayList<ParameterSpec> getParameters(Operation operation, SymbolTable symbols) {
         var parameters = new ArrayList<ParameterSpec>();
         if (!CollectionUtils.isEmpty(operation.getParameters())) {
             parameters.addAll(getParameters(operation.getParameters()));
         }
         if (operation.getRequestBody() != null) {
-            parameters.add(getRequestBodyParam(operation.getRequestBody()));
+            parameters.add(getRequestBodyParam(operation.getRequestBody(), symbols));
         }
         return parameters;
     }
 
+    private static boolean isBatch(PathItem.HttpMethod method, Operation operation) {
+        return method != PathItem.HttpMethod.GET && StringUtils.startsWith(operation.getSummary(), "Batch");
+    }
+
+    /**
+     * Batch commands are bound from the request body as they are, the items of a batch have no request representation.
+     */
+    private ParameterSpec getBatchCommandParam(Operation operation) {
+        return ParameterSpec.builder(ClassName.get(commandPackage, operation.getSummary() + "Command"), "command")
+            .addAnnotation(org.springframework.web.bind.annotation.RequestBody.class)
+            .build();
+    }
+
     private CodeBlock getCodeBlock(PathItem.HttpMethod method, Operation operation) {
         var domainName = operation.getTags().get(0);
+        if (isBatch(method, operation)) {
+            return CodeBlock.builder()
+                .addStatement("$L.execute(command)", StringUtils.uncapitalize(operation.getSummary()) + "CommandHandler")
+                .addStatement("return $T.ok().build()", ResponseEntity.class)
+                .build();
+        }
         return switch (method) {
             case GET -> {
                 var parameters = operation.getParameters();
@@ -283,15 +429,32 @@ public class ResourceLayerGenerator {
                 if (pathParams.size() == 1) {
                     yield CodeBlock.builder()
                         .addStatement("var query = $T.builder().build()", ClassName.get(queryPackage, operation.getSummary() + "Query"))
-                        .addStatement("var dto = $LQueryHandler.execute(query)", StringUtils.uncapitalize(operation.getSummary()))
+                        .add(getExecuteStatement("dto", operation))
                         .addStatement("var response = $T.INSTANCE.to$LResponse(dto)", ClassName.get(mapperPackage, domainName + "RepresentationMapper"), operation.getSummary())
                         .addStatement("return $T.ok(response)", ResponseEntity.class)
                         .build();
                 }
+                if ((pathParams.size() > 1 || !queryParams.isEmpty()) && Pagination.of(operation) == Pagination.SLICE) {
+                    yield CodeBlock.builder()
+                        .addStatement("var query = $T.builder().build()", ClassName.get(queryPackage, operation.getSummary() + "Query"))
+                        .addStatement("var dtoSlice = $LQueryHandler.executeSlice(query, pageable)", StringUtils.uncapitalize(operation.getSummary()))
+                        .addStatement("var response = $T.INSTANCE.to$LResponse(dtoSlice)", ClassName.get(mapperPackage, domainName + "RepresentationMapper"), operation.getSummary())
+                        .addStatement("return $T.ok(response)", ResponseEntity.class)
+                        .build();
+                }
+                if ((pathParams.size() > 1 || !queryParams.isEmpty()) && Pagination.of(operation) == Pagination.KEYSET) {
+                    yield CodeBlock.builder()
+                        .addStatement("var query = $T.builder().build()", ClassName.get(queryPackage, operation.getSummary() + "Query"))
+                        .addStatement("var dtoSlice = $LQueryHandler.executeAfter(query, new $T(sort, size, continuationToken))",
+                            StringUtils.uncapitalize(operation.getSummary()), Keyset.class)
+                        .addStatement("var response = $T.INSTANCE.to$LResponse(dtoSlice)", ClassName.get(mapperPackage, domainName + "RepresentationMapper"), operation.getSummary())
+                        .addStatement("return $T.ok(response)", ResponseEntity.class)
+                        .build();
+                }
                 if (pathParams.size() > 1 || !queryParams.isEmpty()) {
                     yield CodeBlock.builder()
                         .addStatement("var query = $T.builder().build()", ClassName.get(queryPackage, operation.getSummary() + "Query"))
-                        .addStatement("var dtoPage = $LQueryHandler.execute(query)", StringUtils.uncapitalize(operation.getSummary()))
+                        .add(getExecuteStatement("dtoPage", operation))
                         .addStatement("var response = $T.INSTANCE.to$LResponse(dtoPage)", ClassName.get(mapperPackage, domainName + "RepresentationMapper"), operation.getSummary())
                         .addStatement("return $T.ok(response)", ResponseEntity.class)
                         .build();
@@ -328,27 +491,24 @@ public class ResourceLayerGenerator {
         };
     }
 
-    private void groupMethods(OpenAPI openAPI) {
-        for (Map.Entry<String, PathItem> urlPathItemEntry : openAPI.getPaths().entrySet()) {
-            var url = urlPathItemEntry.getKey();
-            var pathItem = urlPathItemEntry.getValue();
-
-            handlePathItem(pathItem.getGet(), queryControllerGroup, url, "GET");
-            handlePathItem(pathItem.getPost(), controllerGroup, url, "POST");
-            handlePathItem(pathItem.getPut(), controllerGroup, url, "PUT");
-            handlePathItem(pathItem.getPatch(), controllerGroup, url, "PATCH");
-            handlePathItem(pathItem.getDelete(), controllerGroup, url, "DELETE");
-        }
+    private MethodGroups groupMethods(Map<String, PathItem> paths) {
+        var groups = new MethodGroups();
+        paths.forEach((url, pathItem) -> new EnumMap<>(pathItem.readOperationsMap())
+            .forEach((method, operation) -> addOperation(groups, url, method, operation)));
+        return groups;
     }
 
-    private void handlePathItem(Operation pathItem, Map<String, List<Triple<String, PathItem.HttpMethod, Operation>>> queryControllerGroup, String url, String httpMethod) {
-        if (pathItem != null) {
-            var methods = queryControllerGroup.get(pathItem.getTags().get(0));
-            if (methods == null) {
-                queryControllerGroup.put(pathItem.getTags().get(0), newArrayList(Triple.of(url, PathItem.HttpMethod.valueOf(httpMethod), pathItem)));
-            } else {
-                methods.add(Triple.of(url, PathItem.HttpMethod.valueOf(httpMethod), pathItem));
-            }
+    /**
+     * GET operations go to the query controller of their first tag, POST, PUT, PATCH and DELETE to its controller.
+     */
+    private static void addOperation(MethodGroups groups, String url, PathItem.HttpMethod method, Operation operation) {
+        var group = switch (method) {
+            case GET -> groups.queryControllerGroup();
+            case POST, PUT, PATCH, DELETE -> groups.controllerGroup();
+            case HEAD, OPTIONS, TRACE -> null;
+        };
+        if (group != null) {
+            group.computeIfAbsent(operation.getTags().get(0), tag -> new ArrayList<>()).add(Triple.of(url, method, operation));
         }
     }
 
@@ -376,10 +536,58 @@ public class ResourceLayerGenerator {
             .collect(Collectors.toList());
     }
 
-    private ParameterSpec getRequestBodyParam(RequestBody requestBody) {
+    /**
+     * Read operations marked with {@code x-projection: true} select the columns of their response only, instead of
+     * loading the aggregate and mapping it to a DTO, see {@link AppLayerGenerator} for their projections.
+     *
+     * @throws IllegalArgumentException when the operation is read in slices, only by id and page reads are projected
+     */
+    static boolean isProjected(Operation operation) {
+        var projected = operation.getExtensions() != null && Boolean.parseBoolean(String.valueOf(operation.getExtensions().get(PROJECTION_EXTENSION)));
+        if (projected && Pagination.of(operation) != Pagination.PAGE) {
+            throw new IllegalArgumentException("Operation %s has %s and %s %s, only pages are projected"
+                .formatted(operation.getSummary(), PROJECTION_EXTENSION, PAGINATION_EXTENSION, Pagination.of(operation).name().toLowerCase()));
+        }
+        return projected;
+    }
+
+    private ClassName getProjectionClass(Operation operation) {
+        return ClassName.get(dtoPackage, operation.getSummary() + "Projection");
+    }
+
+    private CodeBlock getExecuteStatement(String variable, Operation operation) {
+        var handler = StringUtils.uncapitalize(operation.getSummary()) + "QueryHandler";
+        if (isProjected(operation)) {
+            return CodeBlock.builder().addStatement("var $L = $L.executeProjection(query, $T.class)", variable, handler, getProjectionClass(operation)).build();
+        }
+        return CodeBlock.builder().addStatement("var $L = $L.execute(query)", variable, handler).build();
+    }
+
+    /**
+     * {@code sort} is resolved from {@code ?sort=property,direction} by Spring Data web support.
+     */
+    private static List<ParameterSpec> getKeysetParameters() {
+        return List.of(
+            ParameterSpec.builder(Sort.class, "sort").build(),
+            ParameterSpec.builder(int.class, "size")
+                .addAnnotation(AnnotationSpec.builder(RequestParam.class)
+                    .addMember("value", "$S", "size")
+                    .addMember("defaultValue", "$S", DEFAULT_KEYSET_SIZE)
+                    .build())
+                .build(),
+            ParameterSpec.builder(String.class, "continuationToken")
+                .addAnnotation(AnnotationSpec.builder(RequestParam.class)
+                    .addMember("value", "$S", "continuation_token")
+                    .addMember("required", "$L", false)
+                    .build())
+                .build());
+    }
+
+    private ParameterSpec getRequestBodyParam(RequestBody requestBody, SymbolTable symbols) {
         var ref = requestBody.get$ref();
         if (ref != null) {
-            return ParameterSpec.builder(getRefTypeName(ref, basePackage), StringUtils.uncapitalize(getRefClassName(ref)))
+            var refTypeName = symbols.resolve(ref);
+            return ParameterSpec.builder(refTypeName, StringUtils.uncapitalize(refTypeName.simpleName()))
                 .addAnnotation(AnnotationSpec.builder(RequestParam.class).build())
                 .build();
         }
@@ -16,4 +16,9 @@ public class Domain {
     private List<Field> fields;
 
     private List<MethodType> methods;
+
+    /**
+     * Caches the query by id of an aggregate root, {@code null} for no cache.
+     */
+    private QueryCache queryCache;
 }
\ No newline at end of file
@@ -5,8 +5,24 @@ public enum MethodType {
     DELETE,
     UPDATE,
     QUERY_BY_ID,
-    QUERY_BY_CRITERIA
-//    BATCH_CREATE,
-//    BATCH_UPDATE,
-//    BATCH_DELETE,
+    QUERY_BY_CRITERIA,
+    BATCH_CREATE,
+    BATCH_UPDATE,
+    BATCH_DELETE;
+
+    public boolean isBatch() {
+        return this == BATCH_CREATE || this == BATCH_UPDATE || this == BATCH_DELETE;
+    }
+
+    /**
+     * The method a batch method applies to every aggregate of the batch, the method itself otherwise.
+     */
+    public MethodType single() {
+        return switch (this) {
+            case BATCH_CREATE -> CREATE;
+            case BATCH_UPDATE -> UPDATE;
+            case BATCH_DELETE -> DELETE;
+            default -> this;
+        };
+    }
 }
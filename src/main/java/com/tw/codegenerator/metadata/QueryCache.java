@@ -0,0 +1,15 @@
+package com.tw.codegenerator.metadata;
+
+import lombok.Data;
+
+/**
+ * In-process cache in front of the query by id of an aggregate root, entries are dropped when the root is updated
+ * or deleted.
+ */
+@Data
+public class QueryCache {
+
+    private int maximumSize = 10_000;
+
+    private long ttlSeconds = 300;
+}
@@ -0,0 +1,170 @@
+package com.tw.codegenerator.metrics;
+
+import com.tw.codegenerator.output.OutputSink;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Comparator;
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Micrometer meters of one code generation run, tagged by aggregate and layer.
+ * <ul>
+ *     <li>{@code generation.phase} timers, additionally tagged by {@link GenerationPhase}</li>
+ *     <li>{@code generation.files}, {@code generation.bytes} and {@code generation.types} counters</li>
+ * </ul>
+ * They are kept in a registry of their own, which {@link #report()} turns into a {@link GenerationRunReport}. Pass the
+ * application {@link MeterRegistry} to expose them through actuator as well, there they are only tagged by phase and
+ * layer, as aggregate names come from the generation requests.
+ */
+public class GenerationMetrics {
+
+    static final String PHASE_TIMER = "generation.phase";
+
+    static final String FILES_COUNTER = "generation.files";
+
+    static final String BYTES_COUNTER = "generation.bytes";
+
+    static final String TYPES_COUNTER = "generation.types";
+
+    private final MeterRegistry registry = new SimpleMeterRegistry();
+
+    private final MeterRegistry sharedRegistry;
+
+    /**
+     * A timer of this run and its counterpart in the shared registry, if any.
+     */
+    record PhaseTimer(Timer timer, Timer shared) {
+
+        void record(long nanos) {
+            timer.record(nanos, TimeUnit.NANOSECONDS);
+            if (shared != null) {
+                shared.record(nanos, TimeUnit.NANOSECONDS);
+            }
+        }
+    }
+
+    /**
+     * A counter of this run and its counterpart in the shared registry, if any.
+     */
+    record OutputCounter(Counter counter, Counter shared) {
+
+        void increment(double amount) {
+            counter.increment(amount);
+            if (shared != null) {
+                shared.increment(amount);
+            }
+        }
+    }
+
+    public GenerationMetrics() {
+        this(null);
+    }
+
+    /**
+     * @param sharedRegistry registry outliving the run, {@code null} for none
+     */
+    public GenerationMetrics(MeterRegistry sharedRegistry) {
+        this.sharedRegistry = sharedRegistry;
+    }
+
+    /**
+     * The meters of this run only.
+     */
+    public MeterRegistry getRegistry() {
+        return registry;
+    }
+
+    public Timer timer(GenerationPhase phase, String layer, String aggregate) {
+        return Timer.builder(PHASE_TIMER)
+            .tag("phase", phase.tagValue())
+            .tag("layer", layer)
+            .tag("aggregate", aggregate)
+            .register(registry);
+    }
+
+    PhaseTimer phaseTimer(GenerationPhase phase, String layer, String aggregate) {
+        var shared = sharedRegistry == null ? null : Timer.builder(PHASE_TIMER)
+            .tag("phase", phase.tagValue())
+            .tag("layer", layer)
+            .register(sharedRegistry);
+        return new PhaseTimer(timer(phase, layer, aggregate), shared);
+    }
+
+    public <T> T record(GenerationPhase phase, String layer, String aggregate, Callable<T> action) throws Exception {
+        var start = System.nanoTime();
+        try {
+            return action.call();
+        } finally {
+            phaseTimer(phase, layer, aggregate).record(System.nanoTime() - start);
+        }
+    }
+
+    public void record(GenerationPhase phase, String layer, String aggregate, Duration duration) {
+        phaseTimer(phase, layer, aggregate).record(duration.toNanos());
+    }
+
+    /**
+     * Wraps {@code delegate} so that build, render and write time and the emitted files, bytes and types count towards
+     * {@code layer} of {@code aggregate}, create it right before the layer generator runs.
+     */
+    public MeteredOutputSink meter(OutputSink delegate, String layer, String aggregate) {
+        return new MeteredOutputSink(delegate, phaseTimer(GenerationPhase.JAVAPOET_BUILD, layer, aggregate),
+            phaseTimer(GenerationPhase.RENDER, layer, aggregate),
+            phaseTimer(GenerationPhase.WRITE, layer, aggregate),
+            outputCounter(FILES_COUNTER, layer, aggregate),
+            outputCounter(BYTES_COUNTER, layer, aggregate),
+            outputCounter(TYPES_COUNTER, layer, aggregate));
+    }
+
+    private Counter counter(String name, String layer, String aggregate) {
+        return Counter.builder(name)
+            .tag("layer", layer)
+            .tag("aggregate", aggregate)
+            .register(registry);
+    }
+
+    private OutputCounter outputCounter(String name, String layer, String aggregate) {
+        var shared = sharedRegistry == null ? null : Counter.builder(name)
+            .tag("layer", layer)
+            .register(sharedRegistry);
+        return new OutputCounter(counter(name, layer, aggregate), shared);
+    }
+
+    public GenerationRunReport report() {
+        var phases = registry.find(PHASE_TIMER).timers().stream()
+            .map(timer -> new GenerationRunReport.PhaseEntry(
+                timer.getId().getTag("aggregate"),
+                timer.getId().getTag("layer"),
+                timer.getId().getTag("phase"),
+                timer.count(),
+                timer.totalTime(TimeUnit.MILLISECONDS),
+                timer.max(TimeUnit.MILLISECONDS)))
+            .sorted(Comparator.comparing(GenerationRunReport.PhaseEntry::aggregate)
+                .thenComparing(GenerationRunReport.PhaseEntry::layer)
+                .thenComparing(entry -> GenerationPhase.valueOf(entry.phase().toUpperCase())))
+            .toList();
+
+        var outputs = registry.find(FILES_COUNTER).counters().stream()
+            .map(Meter::getId)
+            .map(id -> {
+                var layer = id.getTag("layer");
+                var aggregate = id.getTag("aggregate");
+                return new GenerationRunReport.OutputEntry(aggregate, layer,
+                    (long) counter(FILES_COUNTER, layer, aggregate).count(),
+                    (long) counter(BYTES_COUNTER, layer, aggregate).count(),
+                    (long) counter(TYPES_COUNTER, layer, aggregate).count());
+            })
+            .sorted(Comparator.comparing(GenerationRunReport.OutputEntry::aggregate)
+                .thenComparing(GenerationRunReport.OutputEntry::layer))
+            .toList();
+
+        return new GenerationRunReport(Instant.now().toString(), phases, outputs);
+    }
+}
@@ -0,0 +1,31 @@
+package com.tw.codegenerator.metrics;
+
+/**
+ * Where the time of one layer of one aggregate goes.
+ */
+public enum GenerationPhase {
+    /**
+     * Reading and parsing the OpenAPI spec.
+     */
+    PARSE,
+    /**
+     * Preparing generator inputs, like resolving the aggregate root and hashing inputs for incremental generation.
+     */
+    MODEL_BUILD,
+    /**
+     * Building TypeSpecs, measured per JavaFile as the time of a layer generator before it hands the file over.
+     */
+    JAVAPOET_BUILD,
+    /**
+     * Turning JavaFiles into source text.
+     */
+    RENDER,
+    /**
+     * Handing source text to the output sink.
+     */
+    WRITE;
+
+    public String tagValue() {
+        return name().toLowerCase();
+    }
+}
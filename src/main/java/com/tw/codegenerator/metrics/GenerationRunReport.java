@@ -0,0 +1,40 @@
+package com.tw.codegenerator.metrics;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * JSON friendly snapshot of {@link GenerationMetrics}, one entry per aggregate, layer and phase.
+ */
+public record GenerationRunReport(String createdAt, List<PhaseEntry> phases, List<OutputEntry> outputs) {
+
+    private static final Gson GSON = new GsonBuilder().setPrettyPrinting().create();
+
+    public record PhaseEntry(String aggregate, String layer, String phase, long count, double totalMillis, double maxMillis) {
+    }
+
+    public record OutputEntry(String aggregate, String layer, long files, long bytes, long types) {
+    }
+
+    public String toJson() {
+        return GSON.toJson(this);
+    }
+
+    public void write(Path file) {
+        try {
+            if (file.getParent() != null) {
+                Files.createDirectories(file.getParent());
+            }
+            Files.writeString(file, toJson(), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package com.tw.codegenerator.metrics;
+
+import com.tw.codegenerator.output.OutputSink;
+import org.springframework.javapoet.JavaFile;
+import org.springframework.javapoet.TypeSpec;
+
+/**
+ * Created by {@link GenerationMetrics#meter} right before a layer generator runs. The generator hands its files over
+ * from one thread, so the time since the sink was created or since the previous file was written is the time spent
+ * building the next JavaFile, recorded as {@link GenerationPhase#JAVAPOET_BUILD}.
+ */
+public class MeteredOutputSink implements OutputSink {
+
+    private final OutputSink delegate;
+
+    private final GenerationMetrics.PhaseTimer buildTimer;
+
+    private final GenerationMetrics.PhaseTimer renderTimer;
+
+    private final GenerationMetrics.PhaseTimer writeTimer;
+
+    private final GenerationMetrics.OutputCounter files;
+
+    private final GenerationMetrics.OutputCounter bytes;
+
+    private final GenerationMetrics.OutputCounter types;
+
+    private long handedOverAt = System.nanoTime();
+
+    MeteredOutputSink(OutputSink delegate, GenerationMetrics.PhaseTimer buildTimer, GenerationMetrics.PhaseTimer renderTimer,
+                      GenerationMetrics.PhaseTimer writeTimer, GenerationMetrics.OutputCounter files, GenerationMetrics.OutputCounter bytes,
+                      GenerationMetrics.OutputCounter types) {
+        this.delegate = delegate;
+        this.buildTimer = buildTimer;
+        this.renderTimer = renderTimer;
+        this.writeTimer = writeTimer;
+        this.files = files;
+        this.bytes = bytes;
+        this.types = types;
+    }
+
+    @Override
+    public void write(JavaFile javaFile) {
+        var start = System.nanoTime();
+        buildTimer.record(start - handedOverAt);
+        var content = javaFile.toString();
+        renderTimer.record(System.nanoTime() - start);
+
+        types.increment(countTypes(javaFile.typeSpec));
+        write(OutputSink.pathOf(javaFile), content);
+    }
+
+    @Override
+    public void write(String relativePath, String content) {
+        var start = System.nanoTime();
+        delegate.write(relativePath, content);
+        handedOverAt = System.nanoTime();
+        writeTimer.record(handedOverAt - start);
+
+        files.increment(1);
+        bytes.increment(utf8Length(content));
+    }
+
+    @Override
+    public void flush() {
+        delegate.flush();
+    }
+
+    private static int countTypes(TypeSpec typeSpec) {
+        var count = 1;
+        for (TypeSpec nested : typeSpec.typeSpecs) {
+            count += countTypes(nested);
+        }
+        return count;
+    }
+
+    private static long utf8Length(String content) {
+        long length = 0;
+        for (int i = 0; i < content.length(); i++) {
+            var c = content.charAt(i);
+            if (c < 0x80) {
+                length++;
+            } else if (c < 0x800) {
+                length += 2;
+            } else if (Character.isHighSurrogate(c)) {
+                length += 4;
+                i++;
+            } else {
+                length += 3;
+            }
+        }
+        return length;
+    }
+}
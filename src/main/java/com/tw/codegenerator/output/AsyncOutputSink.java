@@ -0,0 +1,154 @@
+package com.tw.codegenerator.output;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Hands rendered sources to a pool of writer threads through bounded queues, so generators do not block on
+ * file creation. A full queue slows generators down instead of buffering the whole run in memory.
+ * Every writer drains its own queue and a path always goes to the same one, so writes of one path land in the order
+ * they were made and the last one wins, like with a synchronous sink.
+ * {@link #flush()} returns once every queued write has landed and rethrows the first write failure.
+ */
+@Slf4j
+public class AsyncOutputSink implements OutputSink {
+
+    private static final PendingWrite STOP = new PendingWrite(null, null);
+
+    private final OutputSink delegate;
+
+    private final List<BlockingQueue<PendingWrite>> queues = new ArrayList<>();
+
+    private final List<Thread> writers = new ArrayList<>();
+
+    private final AtomicReference<RuntimeException> failure = new AtomicReference<>();
+
+    private final Object monitor = new Object();
+
+    private long pending;
+
+    private volatile boolean closed;
+
+    private record PendingWrite(String relativePath, String content) {
+    }
+
+    public AsyncOutputSink(OutputSink delegate) {
+        this(delegate, 1024, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * @param queueCapacity pending writes of all writers together
+     */
+    public AsyncOutputSink(OutputSink delegate, int queueCapacity, int writerThreads) {
+        this.delegate = delegate;
+        for (int i = 0; i < writerThreads; i++) {
+            var queue = new ArrayBlockingQueue<PendingWrite>(Math.max(queueCapacity / writerThreads, 1));
+            queues.add(queue);
+            var writer = new Thread(() -> drain(queue), "async-output-writer-" + i);
+            writer.setDaemon(true);
+            writer.start();
+            writers.add(writer);
+        }
+    }
+
+    public OutputSink getDelegate() {
+        return delegate;
+    }
+
+    @Override
+    public void write(String relativePath, String content) {
+        if (closed) {
+            throw new IllegalStateException("AsyncOutputSink is closed.");
+        }
+        rethrowFailure();
+        synchronized (monitor) {
+            pending++;
+        }
+        try {
+            queues.get(Math.floorMod(relativePath.hashCode(), queues.size())).put(new PendingWrite(relativePath, content));
+        } catch (InterruptedException e) {
+            completed();
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while queueing " + relativePath, e);
+        }
+    }
+
+    @Override
+    public void flush() {
+        synchronized (monitor) {
+            while (pending > 0) {
+                try {
+                    monitor.wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IllegalStateException("Interrupted while waiting for pending writes", e);
+                }
+            }
+        }
+        delegate.flush();
+        rethrowFailure();
+    }
+
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        try {
+            flush();
+        } finally {
+            closed = true;
+            queues.forEach(queue -> queue.add(STOP));
+            for (Thread writer : writers) {
+                try {
+                    writer.join();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            delegate.close();
+        }
+    }
+
+    private void drain(BlockingQueue<PendingWrite> queue) {
+        while (true) {
+            PendingWrite pendingWrite;
+            try {
+                pendingWrite = queue.take();
+            } catch (InterruptedException e) {
+                return;
+            }
+            if (pendingWrite == STOP) {
+                return;
+            }
+            try {
+                delegate.write(pendingWrite.relativePath(), pendingWrite.content());
+            } catch (RuntimeException e) {
+                log.error("Can not write {}", pendingWrite.relativePath(), e);
+                failure.compareAndSet(null, e);
+            } finally {
+                completed();
+            }
+        }
+    }
+
+    private void completed() {
+        synchronized (monitor) {
+            if (--pending == 0) {
+                monitor.notifyAll();
+            }
+        }
+    }
+
+    private void rethrowFailure() {
+        var exception = failure.get();
+        if (exception != null) {
+            throw exception;
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package com.tw.codegenerator.output;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static java.nio.file.StandardOpenOption.*;
+
+public class FileSystemOutputSink implements OutputSink {
+
+    public static final Path SOURCE_ROOT = Path.of("src/main/java");
+
+    // encoder and buffer are reused by every write of the same thread instead of allocating a byte[] per file
+    private static final ThreadLocal<CharsetEncoder> ENCODER = ThreadLocal.withInitial(StandardCharsets.UTF_8::newEncoder);
+
+    private static final ThreadLocal<ByteBuffer> BUFFER = ThreadLocal.withInitial(() -> ByteBuffer.allocateDirect(64 * 1024));
+
+    private final Path root;
+
+    private final Set<Path> createdDirectories = ConcurrentHashMap.newKeySet();
+
+    public FileSystemOutputSink(Path root) {
+        this.root = root;
+    }
+
+    public static FileSystemOutputSink sourceRoot() {
+        return new FileSystemOutputSink(SOURCE_ROOT);
+    }
+
+    public Path getRoot() {
+        return root;
+    }
+
+    @Override
+    public void write(String relativePath, String content) {
+        var file = root.resolve(relativePath);
+        try {
+            createDirectories(file);
+            try (var channel = FileChannel.open(file, CREATE, TRUNCATE_EXISTING, WRITE)) {
+                encodeTo(channel, content);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public Writer openWriter(String relativePath) {
+        var file = root.resolve(relativePath);
+        try {
+            createDirectories(file);
+            return Files.newBufferedWriter(file, StandardCharsets.UTF_8, CREATE, TRUNCATE_EXISTING, WRITE);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void createDirectories(Path file) throws IOException {
+        var directory = file.getParent();
+        if (directory != null && !createdDirectories.contains(directory)) {
+            Files.createDirectories(directory);
+            createdDirectories.add(directory);
+        }
+    }
+
+    private static void encodeTo(FileChannel channel, String content) throws IOException {
+        var encoder = ENCODER.get().reset();
+        var buffer = BUFFER.get().clear();
+        var chars = CharBuffer.wrap(content);
+
+        CoderResult result;
+        do {
+            result = encoder.encode(chars, buffer, true);
+            if (result.isError()) {
+                result.throwException();
+            }
+            drain(buffer, channel);
+        } while (result.isOverflow());
+
+        while (encoder.flush(buffer).isOverflow()) {
+            drain(buffer, channel);
+        }
+        drain(buffer, channel);
+    }
+
+    private static void drain(ByteBuffer buffer, FileChannel channel) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+}
@@ -0,0 +1,27 @@
+package com.tw.codegenerator.output;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+public class InMemoryOutputSink implements OutputSink {
+
+    private final NavigableMap<String, String> files = new ConcurrentSkipListMap<>();
+
+    @Override
+    public void write(String relativePath, String content) {
+        files.put(relativePath, content);
+    }
+
+    public String get(String relativePath) {
+        return files.get(relativePath);
+    }
+
+    /**
+     * Generated files sorted by path.
+     */
+    public Map<String, String> getFiles() {
+        return Collections.unmodifiableMap(files);
+    }
+}
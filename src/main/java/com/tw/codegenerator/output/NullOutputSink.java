@@ -0,0 +1,47 @@
+package com.tw.codegenerator.output;
+
+import java.io.Writer;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Discards every write and only counts files and characters, to measure generators without any I/O.
+ */
+public class NullOutputSink implements OutputSink {
+
+    private final LongAdder files = new LongAdder();
+
+    private final LongAdder characters = new LongAdder();
+
+    @Override
+    public void write(String relativePath, String content) {
+        files.increment();
+        characters.add(content.length());
+    }
+
+    @Override
+    public Writer openWriter(String relativePath) {
+        files.increment();
+        return new Writer() {
+            @Override
+            public void write(char[] buffer, int offset, int length) {
+                characters.add(length);
+            }
+
+            @Override
+            public void flush() {
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+    }
+
+    public long getFiles() {
+        return files.sum();
+    }
+
+    public long getCharacters() {
+        return characters.sum();
+    }
+}
@@ -0,0 +1,58 @@
+package com.tw.codegenerator.output;
+
+import org.springframework.javapoet.JavaFile;
+
+import java.io.Closeable;
+import java.io.StringWriter;
+import java.io.Writer;
+
+/**
+ * Destination of generated sources. Paths are relative to the source root and use '/' as separator.
+ * Implementations must accept writes from several threads.
+ */
+public interface OutputSink extends Closeable {
+
+    void write(String relativePath, String content);
+
+    default void write(JavaFile javaFile) {
+        write(pathOf(javaFile), javaFile.toString());
+    }
+
+    /**
+     * Writer for generated content that is not a {@link JavaFile}, the file is complete once the writer is closed.
+     * Sinks that can stream to their destination override this, by default the content is collected and written on close.
+     */
+    default Writer openWriter(String relativePath) {
+        var sink = this;
+        return new StringWriter() {
+
+            private boolean closed;
+
+            @Override
+            public void close() {
+                if (!closed) {
+                    closed = true;
+                    sink.write(relativePath, toString());
+                }
+            }
+        };
+    }
+
+    /**
+     * Blocks until every write issued so far has landed.
+     */
+    default void flush() {
+    }
+
+    @Override
+    default void close() {
+        flush();
+    }
+
+    static String pathOf(JavaFile javaFile) {
+        if (javaFile.packageName.isEmpty()) {
+            return javaFile.typeSpec.name + ".java";
+        }
+        return javaFile.packageName.replace('.', '/') + "/" + javaFile.typeSpec.name + ".java";
+    }
+}
@@ -0,0 +1,77 @@
+package com.tw.codegenerator.output;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.jar.Attributes;
+import java.util.jar.JarOutputStream;
+import java.util.jar.Manifest;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Streams every generated file as an entry of one zip or jar archive instead of creating files on disk.
+ */
+@Slf4j
+public class ZipOutputSink implements OutputSink {
+
+    private final ZipOutputStream zipOutputStream;
+
+    private final Set<String> entries = new HashSet<>();
+
+    public ZipOutputSink(OutputStream outputStream) {
+        this(new ZipOutputStream(outputStream));
+    }
+
+    private ZipOutputSink(ZipOutputStream zipOutputStream) {
+        this.zipOutputStream = zipOutputStream;
+    }
+
+    public static ZipOutputSink jar(OutputStream outputStream) {
+        var manifest = new Manifest();
+        manifest.getMainAttributes().put(Attributes.Name.MANIFEST_VERSION, "1.0");
+        try {
+            return new ZipOutputSink(new JarOutputStream(outputStream, manifest));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public synchronized void write(String relativePath, String content) {
+        if (!entries.add(relativePath)) {
+            log.warn("Skip duplicated archive entry {}", relativePath);
+            return;
+        }
+        try {
+            zipOutputStream.putNextEntry(new ZipEntry(relativePath));
+            zipOutputStream.write(content.getBytes(StandardCharsets.UTF_8));
+            zipOutputStream.closeEntry();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public synchronized void flush() {
+        try {
+            zipOutputStream.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public synchronized void close() {
+        try {
+            zipOutputStream.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package com.tw.codegenerator.pipeline;
+
+import com.tw.codegenerator.metadata.Domain;
+import com.tw.codegenerator.metadata.DomainType;
+import com.tw.codegenerator.metadata.Field;
+import com.tw.codegenerator.metadata.FieldType;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.*;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Domain metadata of a bounded context holding any number of aggregates, generated into one base package from
+ * one OpenAPI spec.
+ */
+@Slf4j
+public record BoundedContext(String basePackage, List<Domain> domains, String openApiFilePath) {
+
+    /**
+     * Splits the context into one {@link GenerationRequest} per aggregate root. A request holds the root and every
+     * type reachable from it. A value object reachable from several roots is owned by the first of them, the other
+     * requests only build it so that references resolve. An entity belongs to one aggregate only, sharing it fails.
+     */
+    public List<GenerationRequest> partition() {
+        var byName = domains.stream()
+            .collect(Collectors.toMap(Domain::getTypeName, Function.identity(), (first, second) -> {
+                throw new IllegalArgumentException("Duplicate domain type %s in %s".formatted(first.getTypeName(), basePackage));
+            }, LinkedHashMap::new));
+        var roots = domains.stream().filter(Domain::isAggregateRoot).toList();
+        if (roots.isEmpty()) {
+            throw new IllegalArgumentException("No aggregate root found in domains of " + basePackage);
+        }
+
+        var owners = new HashMap<String, String>();
+        var requests = new ArrayList<GenerationRequest>();
+        for (Domain root : roots) {
+            var reachable = reachableFrom(root, byName);
+            var owned = new HashSet<String>();
+            for (String typeName : reachable.keySet()) {
+                var owner = owners.putIfAbsent(typeName, root.getTypeName());
+                if (owner == null) {
+                    owned.add(typeName);
+                } else if (DomainType.ENTITY.equals(reachable.get(typeName).getDomainType())) {
+                    // the entity would need a parent mapping in each aggregate, but is mapped with its owner only
+                    throw new IllegalArgumentException(("Entity %s is shared by aggregates %s and %s of %s, "
+                        + "make it a value object or refer to it by id.").formatted(typeName, owner, root.getTypeName(), basePackage));
+                } else {
+                    log.warn("{} is shared by aggregates {} and {} of {}, it is generated with {}",
+                        typeName, owner, root.getTypeName(), basePackage, owner);
+                }
+            }
+            requests.add(new GenerationRequest(basePackage, List.copyOf(reachable.values()), openApiFilePath, owned));
+        }
+
+        var unreachable = byName.keySet().stream().filter(typeName -> !owners.containsKey(typeName)).toList();
+        if (!unreachable.isEmpty()) {
+            log.warn("{} of {} are not reachable from any aggregate root and are skipped", unreachable, basePackage);
+        }
+        return requests;
+    }
+
+    private Map<String, Domain> reachableFrom(Domain root, Map<String, Domain> byName) {
+        var reachable = new LinkedHashMap<String, Domain>();
+        var pending = new ArrayDeque<Domain>();
+        pending.add(root);
+        while (!pending.isEmpty()) {
+            var domain = pending.poll();
+            if (reachable.putIfAbsent(domain.getTypeName(), domain) != null) {
+                continue;
+            }
+            for (Field field : Optional.ofNullable(domain.getFields()).orElse(List.of())) {
+                var referenced = referencedTypeOf(field);
+                if (referenced == null || !byName.containsKey(referenced)) {
+                    continue;
+                }
+                var target = byName.get(referenced);
+                if (target.isAggregateRoot() && target != root) {
+                    throw new IllegalArgumentException("%s.%s references aggregate root %s, refer to other aggregates by id."
+                        .formatted(domain.getTypeName(), field.getName(), referenced));
+                }
+                pending.add(target);
+            }
+        }
+        return reachable;
+    }
+
+    private static String referencedTypeOf(Field field) {
+        if (FieldType.OBJECT.equals(field.getType()) || FieldType.ARRAY.equals(field.getType())) {
+            return field.getReferencedType();
+        }
+        if (FieldType.ENUM.equals(field.getType()) && field.getReferencedType() != null) {
+            // enums are nested in their owner type, e.g. Order.Status
+            return field.getReferencedType().split("\\.")[0];
+        }
+        return null;
+    }
+}
@@ -0,0 +1,117 @@
+package com.tw.codegenerator.pipeline;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+
+/**
+ * A dependency graph of named stages. Every stage starts as soon as all of its dependencies have finished,
+ * so stages without a path between them run concurrently on the given executor.
+ */
+@Slf4j
+public class GenerationPipeline {
+
+    private final Map<String, Stage> stages = new LinkedHashMap<>();
+
+    private record Stage(String name, List<String> dependsOn, StageAction<?> action) {
+    }
+
+    public GenerationPipeline addStage(String name, StageAction<?> action, String... dependsOn) {
+        if (stages.containsKey(name)) {
+            throw new IllegalArgumentException("Stage %s is already defined.".formatted(name));
+        }
+        stages.put(name, new Stage(name, List.of(dependsOn), action));
+        return this;
+    }
+
+    public PipelineReport run(Executor executor) {
+        var results = new StageResults();
+        var timings = new ConcurrentLinkedQueue<PipelineReport.StageTiming>();
+        var futures = new HashMap<String, CompletableFuture<Void>>();
+        var startedAt = System.nanoTime();
+
+        for (Stage stage : topologicalOrder()) {
+            var dependencies = stage.dependsOn().stream()
+                .map(futures::get)
+                .toArray(CompletableFuture[]::new);
+            var future = CompletableFuture.allOf(dependencies)
+                .thenRunAsync(() -> execute(stage, results, timings, startedAt), executor);
+            futures.put(stage.name(), future);
+        }
+
+        try {
+            CompletableFuture.allOf(futures.values().toArray(CompletableFuture[]::new)).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new RuntimeException(e.getCause());
+        }
+
+        var sortedTimings = timings.stream()
+            .sorted(Comparator.comparing(PipelineReport.StageTiming::startOffset))
+            .toList();
+        return new PipelineReport(Duration.ofNanos(System.nanoTime() - startedAt), sortedTimings);
+    }
+
+    private void execute(Stage stage, StageResults results, Queue<PipelineReport.StageTiming> timings, long startedAt) {
+        var start = System.nanoTime();
+        var failed = true;
+        try {
+            results.put(stage.name(), stage.action().execute(results));
+            failed = false;
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new CompletionException(e);
+        } finally {
+            var end = System.nanoTime();
+            timings.add(new PipelineReport.StageTiming(stage.name(), Duration.ofNanos(start - startedAt),
+                Duration.ofNanos(end - start), Thread.currentThread().getName(), failed));
+            log.debug("Stage {} finished in {}ms", stage.name(), Duration.ofNanos(end - start).toMillis());
+        }
+    }
+
+    private List<Stage> topologicalOrder() {
+        var inDegree = new HashMap<String, Integer>();
+        var dependents = new HashMap<String, List<String>>();
+        for (Stage stage : stages.values()) {
+            inDegree.putIfAbsent(stage.name(), 0);
+            for (String dependency : stage.dependsOn()) {
+                if (!stages.containsKey(dependency)) {
+                    throw new IllegalArgumentException("Stage %s depends on unknown stage %s.".formatted(stage.name(), dependency));
+                }
+                inDegree.merge(stage.name(), 1, Integer::sum);
+                dependents.computeIfAbsent(dependency, key -> new ArrayList<>()).add(stage.name());
+            }
+        }
+
+        var ready = new ArrayDeque<String>();
+        inDegree.forEach((name, degree) -> {
+            if (degree == 0) {
+                ready.add(name);
+            }
+        });
+
+        var ordered = new ArrayList<Stage>();
+        while (!ready.isEmpty()) {
+            var name = ready.poll();
+            ordered.add(stages.get(name));
+            for (String dependent : dependents.getOrDefault(name, List.of())) {
+                if (inDegree.merge(dependent, -1, Integer::sum) == 0) {
+                    ready.add(dependent);
+                }
+            }
+        }
+
+        if (ordered.size() != stages.size()) {
+            throw new IllegalStateException("Pipeline stages contain a dependency cycle.");
+        }
+        return ordered;
+    }
+}
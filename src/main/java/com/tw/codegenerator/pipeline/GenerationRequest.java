@@ -0,0 +1,27 @@
+package com.tw.codegenerator.pipeline;
+
+import com.tw.codegenerator.metadata.Domain;
+
+import java.util.List;
+import java.util.Set;
+
+/**
+ * @param ownedTypes domain types written by this request, {@code null} for all of them, see {@link BoundedContext#partition()}
+ */
+public record GenerationRequest(String basePackage, List<Domain> domains, String openApiFilePath, Set<String> ownedTypes) {
+
+    public GenerationRequest(String basePackage, List<Domain> domains, String openApiFilePath) {
+        this(basePackage, domains, openApiFilePath, null);
+    }
+
+    public Domain aggregateRoot() {
+        return domains.stream()
+            .filter(Domain::isAggregateRoot)
+            .findAny()
+            .orElseThrow(() -> new IllegalArgumentException("No aggregate root found in domains of " + basePackage));
+    }
+
+    public boolean owns(String typeName) {
+        return ownedTypes == null || ownedTypes.contains(typeName);
+    }
+}
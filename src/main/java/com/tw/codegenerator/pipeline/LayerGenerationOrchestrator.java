@@ -0,0 +1,244 @@
+package com.tw.codegenerator.pipeline;
+
+import com.google.gson.Gson;
+import com.tw.codegenerator.incremental.IncrementalGeneration;
+import com.tw.codegenerator.javapoet.AppLayerGenerator;
+import com.tw.codegenerator.javapoet.DomainLayerGenerator;
+import com.tw.codegenerator.javapoet.DomainTypeSummary;
+import com.tw.codegenerator.javapoet.InfraLayerGeneratorV2;
+import com.tw.codegenerator.javapoet.ResourceLayerGenerator;
+import com.tw.codegenerator.metrics.GenerationMetrics;
+import com.tw.codegenerator.output.AsyncOutputSink;
+import com.tw.codegenerator.output.FileSystemOutputSink;
+import com.tw.codegenerator.output.OutputSink;
+import com.tw.codegenerator.spec.OpenApiSpecRepository;
+import com.tw.codegenerator.spec.SymbolTable;
+import com.tw.codegenerator.utils.ContentHash;
+import io.swagger.v3.core.util.Json;
+import io.swagger.v3.oas.models.OpenAPI;
+import lombok.extern.slf4j.Slf4j;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+
+import static com.tw.codegenerator.metrics.GenerationPhase.*;
+
+/**
+ * Runs the layer generators of one or more aggregates as a {@link GenerationPipeline}.
+ * The infra layer depends on the domain layer and the app and resource layers depend on the parsed spec,
+ * everything else of every aggregate runs concurrently.
+ * <p>
+ * With a manifest file every layer of every aggregate becomes an {@link IncrementalGeneration} unit keyed by
+ * the hash of the domain metadata or spec fragments it reads. Incremental mode needs a {@link FileSystemOutputSink},
+ * optionally wrapped in an {@link AsyncOutputSink}.
+ * <p>
+ * Every layer of every aggregate is measured through {@link GenerationMetrics}.
+ * <p>
+ * Requests sharing a base package and a spec, like the aggregates of a {@link BoundedContext}, generate the spec
+ * derived DTOs and the resource layer once, with the first of them.
+ */
+@Slf4j
+public class LayerGenerationOrchestrator {
+
+    private static final Gson GSON = new Gson();
+
+    private final Executor executor;
+
+    private final OpenApiSpecRepository specRepository;
+
+    private final OutputSink sink;
+
+    private final Path manifestFile;
+
+    private final GenerationMetrics metrics;
+
+    private final ForkJoinPool componentPool;
+
+    private record ParsedSpec(OpenAPI openAPI, SymbolTable symbols) {
+    }
+
+    public LayerGenerationOrchestrator() {
+        this(ForkJoinPool.commonPool(), OpenApiSpecRepository.shared(), FileSystemOutputSink.sourceRoot(), null);
+    }
+
+    public LayerGenerationOrchestrator(Path manifestFile) {
+        this(ForkJoinPool.commonPool(), OpenApiSpecRepository.shared(), FileSystemOutputSink.sourceRoot(), manifestFile);
+    }
+
+    public LayerGenerationOrchestrator(OutputSink sink) {
+        this(ForkJoinPool.commonPool(), OpenApiSpecRepository.shared(), sink, null);
+    }
+
+    public LayerGenerationOrchestrator(Executor executor, OpenApiSpecRepository specRepository, OutputSink sink, Path manifestFile) {
+        this(executor, specRepository, sink, manifestFile, new GenerationMetrics());
+    }
+
+    public LayerGenerationOrchestrator(Executor executor, OpenApiSpecRepository specRepository, OutputSink sink, Path manifestFile,
+                                       GenerationMetrics metrics) {
+        this(executor, specRepository, sink, manifestFile, metrics, null);
+    }
+
+    /**
+     * @param componentPool builds the classes of the spec components of a layer in parallel, opt in for specs with
+     *                      many components, {@code null} builds them on the thread of the layer
+     */
+    public LayerGenerationOrchestrator(Executor executor, OpenApiSpecRepository specRepository, OutputSink sink, Path manifestFile,
+                                       GenerationMetrics metrics, ForkJoinPool componentPool) {
+        if (manifestFile != null && outputRootOf(sink) == null) {
+            throw new IllegalArgumentException("Incremental generation needs a FileSystemOutputSink.");
+        }
+        this.executor = executor;
+        this.specRepository = specRepository;
+        this.sink = sink;
+        this.manifestFile = manifestFile;
+        this.metrics = metrics;
+        this.componentPool = componentPool;
+    }
+
+    public GenerationMetrics getMetrics() {
+        return metrics;
+    }
+
+    public PipelineReport generate(GenerationRequest request) {
+        return generate(List.of(request));
+    }
+
+    public PipelineReport generateContexts(List<BoundedContext> contexts) {
+        return generate(contexts.stream()
+            .flatMap(context -> context.partition().stream())
+            .toList());
+    }
+
+    public PipelineReport generate(List<GenerationRequest> requests) {
+        var incremental = manifestFile == null
+            ? null
+            : IncrementalGeneration.open(outputRootOf(sink), manifestFile, sink);
+
+        var pipeline = new GenerationPipeline();
+        var specs = new HashSet<String>();
+        requests.forEach(request -> {
+            var specOwner = specs.add(request.basePackage() + "|" + request.openApiFilePath());
+            addLayerStages(pipeline, request, specOwner, incremental);
+        });
+
+        var report = pipeline.run(executor);
+        if (incremental != null) {
+            incremental.finish();
+        } else {
+            sink.flush();
+        }
+        log.info("Generation finished\n{}", report.format());
+        log.info("Generation metrics\n{}", metrics.report().toJson());
+        return report;
+    }
+
+    /**
+     * @param specOwner whether this request generates the DTOs and the resource layer of its spec
+     */
+    private void addLayerStages(GenerationPipeline pipeline, GenerationRequest request, boolean specOwner, IncrementalGeneration incremental) {
+        var modelBuildStart = System.nanoTime();
+        var basePackage = request.basePackage();
+        var aggregateRoot = request.aggregateRoot();
+        var aggregate = aggregateRoot.getTypeName();
+        var prefix = basePackage + "/" + aggregate + "/";
+        var domainStage = prefix + "domain";
+        var specStage = prefix + "spec";
+        var domainHash = incremental == null ? null : ContentHash.sha256(basePackage + GSON.toJson(request.domains()) + request.ownedTypes());
+        metrics.record(MODEL_BUILD, "domain", aggregate, Duration.ofNanos(System.nanoTime() - modelBuildStart));
+
+        pipeline.addStage(specStage, results -> {
+                OpenAPI openAPI = metrics.record(PARSE, "spec", aggregate, () -> specRepository.get(request.openApiFilePath()));
+                // dangling refs fail here, before any layer is generated
+                var symbols = metrics.record(MODEL_BUILD, "spec", aggregate, () -> SymbolTable.of(openAPI, basePackage));
+                return new ParsedSpec(openAPI, symbols);
+            })
+            .addStage(domainStage, results -> {
+                // infra needs the domain type summaries, so domain is rebuilt whenever infra is stale
+                var force = incremental != null && !incremental.isUpToDate(prefix + "infra", domainHash);
+                return runUnit(incremental, prefix + "domain", "domain", aggregate, domainHash, force,
+                    unitSink -> new DomainLayerGenerator(basePackage, unitSink).generate(request.domains(), request::owns));
+            })
+            .addStage(prefix + "infra", results -> runUnit(incremental, prefix + "infra", "infra", aggregate, domainHash, false, unitSink -> {
+                List<DomainTypeSummary> domains = results.get(domainStage);
+                new InfraLayerGeneratorV2(basePackage, unitSink).generateBySummaries(domains, request::owns);
+                return null;
+            }), domainStage)
+            .addStage(prefix + "app", results -> {
+                ParsedSpec spec = results.get(specStage);
+                var openAPI = spec.openAPI();
+                if (specOwner) {
+                    // the DTOs of every schema are a unit of their own, so editing a schema no aggregate reaches only
+                    // regenerates them
+                    var schemasHash = incremental == null ? null : metrics.record(MODEL_BUILD, "dto", aggregate, () -> ContentHash.sha256(
+                        basePackage + Json.mapper().writeValueAsString(openAPI.getComponents().getSchemas())));
+                    runUnit(incremental, prefix + "dto", "dto", aggregate, schemasHash, false, unitSink -> {
+                        new AppLayerGenerator(basePackage, specRepository, unitSink, componentPool).generateDto(openAPI, spec.symbols());
+                        return null;
+                    });
+                }
+                // handlers and projections read the operations tagged with the aggregate and the components they reach
+                var inputHash = incremental == null ? null : metrics.record(MODEL_BUILD, "app", aggregate, () -> {
+                    var taggedPaths = ResourceLayerGenerator.pathsByTag(openAPI.getPaths()).getOrDefault(aggregate, Map.of());
+                    return ContentHash.sha256(basePackage + GSON.toJson(request.domains())
+                        + Json.mapper().writeValueAsString(taggedPaths)
+                        + Json.mapper().writeValueAsString(SymbolTable.componentsOf(openAPI, taggedPaths)));
+                });
+                return runUnit(incremental, prefix + "app", "app", aggregate, inputHash, false, unitSink -> {
+                    new AppLayerGenerator(basePackage, specRepository, unitSink, componentPool)
+                        .generateAggregate(aggregateRoot, request.domains(), openAPI);
+                    return null;
+                });
+            }, specStage);
+        if (!specOwner) {
+            return;
+        }
+        pipeline.addStage(prefix + "resource", results -> {
+            ParsedSpec spec = results.get(specStage);
+            var openAPI = spec.openAPI();
+            // one unit per tag, so editing an operation only regenerates the controllers of its tag, each unit hashes
+            // the components it refers to as well
+            var requestBodies = openAPI.getComponents().getRequestBodies();
+            var requestBodiesHash = incremental == null ? null : metrics.record(MODEL_BUILD, "resource", aggregate, () -> ContentHash.sha256(
+                basePackage + Json.mapper().writeValueAsString(requestBodies)
+                    + Json.mapper().writeValueAsString(SymbolTable.componentsOf(openAPI, requestBodies == null ? List.of() : requestBodies.values()))));
+            runUnit(incremental, prefix + "resource", "resource", aggregate, requestBodiesHash, false, unitSink -> {
+                new ResourceLayerGenerator(basePackage, specRepository, unitSink, componentPool).generateRequestBodies(requestBodies, spec.symbols());
+                return null;
+            });
+            for (var tagged : ResourceLayerGenerator.pathsByTag(openAPI.getPaths()).entrySet()) {
+                var tagHash = incremental == null ? null : metrics.record(MODEL_BUILD, "resource", aggregate, () -> ContentHash.sha256(
+                    basePackage + Json.mapper().writeValueAsString(tagged.getValue())
+                        + Json.mapper().writeValueAsString(SymbolTable.componentsOf(openAPI, tagged.getValue()))));
+                runUnit(incremental, prefix + "resource/" + tagged.getKey(), "resource", aggregate, tagHash, false, unitSink -> {
+                    new ResourceLayerGenerator(basePackage, specRepository, unitSink, componentPool).generateTag(tagged.getValue(), spec.symbols());
+                    return null;
+                });
+            }
+            return null;
+        }, specStage);
+    }
+
+    private static Path outputRootOf(OutputSink sink) {
+        if (sink instanceof FileSystemOutputSink fileSystemOutputSink) {
+            return fileSystemOutputSink.getRoot();
+        }
+        if (sink instanceof AsyncOutputSink asyncOutputSink) {
+            return outputRootOf(asyncOutputSink.getDelegate());
+        }
+        return null;
+    }
+
+    private <T> T runUnit(IncrementalGeneration incremental, String unitKey, String layer, String aggregate, String inputHash,
+                          boolean force, IncrementalGeneration.UnitGeneration<T> generation) throws Exception {
+        IncrementalGeneration.UnitGeneration<T> metered = unitSink -> generation.generate(metrics.meter(unitSink, layer, aggregate));
+        if (incremental == null) {
+            return metered.generate(sink);
+        }
+        return incremental.run(unitKey, inputHash, force, metered).orElse(null);
+    }
+}
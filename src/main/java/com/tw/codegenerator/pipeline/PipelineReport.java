@@ -0,0 +1,25 @@
+package com.tw.codegenerator.pipeline;
+
+import java.time.Duration;
+import java.util.List;
+
+public record PipelineReport(Duration total, List<StageTiming> stages) {
+
+    public record StageTiming(String stage, Duration startOffset, Duration duration, String thread, boolean failed) {
+    }
+
+    public String format() {
+        var builder = new StringBuilder();
+        builder.append("%-40s %10s %10s  %s%n".formatted("stage", "start(ms)", "took(ms)", "thread"));
+        for (StageTiming timing : stages) {
+            builder.append("%-40s %10d %10d  %s%s%n".formatted(
+                timing.stage(),
+                timing.startOffset().toMillis(),
+                timing.duration().toMillis(),
+                timing.thread(),
+                timing.failed() ? "  FAILED" : ""));
+        }
+        builder.append("total %dms".formatted(total.toMillis()));
+        return builder.toString();
+    }
+}
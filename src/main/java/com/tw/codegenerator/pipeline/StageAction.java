@@ -0,0 +1,7 @@
+package com.tw.codegenerator.pipeline;
+
+@FunctionalInterface
+public interface StageAction<T> {
+
+    T execute(StageResults results) throws Exception;
+}
@@ -0,0 +1,20 @@
+package com.tw.codegenerator.pipeline;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+public class StageResults {
+
+    private final Map<String, Object> results = new ConcurrentHashMap<>();
+
+    void put(String stageName, Object result) {
+        if (result != null) {
+            results.put(stageName, result);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    public <T> T get(String stageName) {
+        return (T) results.get(stageName);
+    }
+}
@@ -0,0 +1,25 @@
+package com.tw.codegenerator.server;
+
+import com.tw.codegenerator.metadata.Domain;
+
+import java.util.List;
+
+/**
+ * Body of {@code POST /generations}, read with Gson like the rest of the domain metadata.
+ *
+ * @param openApi content of the OpenAPI spec, YAML or JSON
+ */
+public record GenerateSourcesRequest(String basePackage, String openApi, List<Domain> domains) {
+
+    public void validate() {
+        if (basePackage == null || basePackage.isBlank()) {
+            throw new IllegalArgumentException("basePackage is required.");
+        }
+        if (openApi == null || openApi.isBlank()) {
+            throw new IllegalArgumentException("openApi is required.");
+        }
+        if (domains == null || domains.isEmpty()) {
+            throw new IllegalArgumentException("domains is required.");
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package com.tw.codegenerator.server;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import com.tw.codegenerator.output.ZipOutputSink;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.net.URI;
+
+/**
+ * Generation over HTTP, so callers share one warm JVM instead of starting one per run.
+ * <ul>
+ *     <li>{@code POST /generations} generates a {@link GenerateSourcesRequest} and keeps the result</li>
+ *     <li>{@code GET /generations/{id}/sources} streams the kept result as a zip</li>
+ * </ul>
+ */
+@RestController
+@RequestMapping("/generations")
+@Profile("server")
+public class GenerationController {
+
+    private static final Gson GSON = new Gson();
+
+    private final GenerationService generationService;
+
+    private final GenerationResultStore resultStore;
+
+    public GenerationController(GenerationService generationService, GenerationResultStore resultStore) {
+        this.generationService = generationService;
+        this.resultStore = resultStore;
+    }
+
+    @PostMapping(consumes = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<GenerationResult.GenerationSummary> generate(@RequestBody String body) {
+        GenerateSourcesRequest request;
+        try {
+            request = GSON.fromJson(body, GenerateSourcesRequest.class);
+        } catch (JsonParseException e) {
+            throw new IllegalArgumentException("Malformed generation request: " + e.getMessage(), e);
+        }
+        if (request == null) {
+            throw new IllegalArgumentException("Generation request is empty.");
+        }
+        var result = generationService.generate(request);
+        return ResponseEntity.created(URI.create("/generations/%s/sources".formatted(result.id())))
+            .body(result.summary());
+    }
+
+    @GetMapping(value = "/{id}/sources", produces = "application/zip")
+    public ResponseEntity<StreamingResponseBody> sources(@PathVariable("id") String id) {
+        var result = resultStore.get(id)
+            .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Generation %s not found.".formatted(id)));
+
+        StreamingResponseBody body = outputStream -> {
+            try (var sink = new ZipOutputSink(outputStream)) {
+                result.files().forEach(sink::write);
+            }
+        };
+        return ResponseEntity.ok()
+            .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"%s.zip\"".formatted(id))
+            .body(body);
+    }
+
+    @ExceptionHandler(IllegalArgumentException.class)
+    public ResponseEntity<String> badRequest(IllegalArgumentException e) {
+        return ResponseEntity.badRequest().body(e.getMessage());
+    }
+}
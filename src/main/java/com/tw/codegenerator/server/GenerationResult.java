@@ -0,0 +1,20 @@
+package com.tw.codegenerator.server;
+
+import com.tw.codegenerator.pipeline.PipelineReport;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * @param files generated sources by path relative to the source root
+ */
+public record GenerationResult(String id, Map<String, String> files, PipelineReport report) {
+
+    public GenerationSummary summary() {
+        return new GenerationSummary(id, files.size(), report.total().toMillis(),
+            report.stages().stream().map(PipelineReport.StageTiming::stage).toList());
+    }
+
+    public record GenerationSummary(String id, int files, long tookMillis, List<String> stages) {
+    }
+}
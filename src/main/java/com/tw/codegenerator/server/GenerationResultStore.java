@@ -0,0 +1,48 @@
+package com.tw.codegenerator.server;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Keeps the latest generation results in memory until they are downloaded, the least recently used one is
+ * dropped once {@code generator.server.max-results} is reached.
+ */
+@Component
+@Profile("server")
+public class GenerationResultStore {
+
+    private final int maxResults;
+
+    private final Map<String, GenerationResult> results;
+
+    public GenerationResultStore(@Value("${generator.server.max-results:32}") int maxResults) {
+        this.maxResults = maxResults;
+        this.results = new LinkedHashMap<>(16, 0.75f, true);
+    }
+
+    public int getMaxResults() {
+        return maxResults;
+    }
+
+    /**
+     * @return the result dropped to make room, if any
+     */
+    public synchronized Optional<GenerationResult> put(GenerationResult result) {
+        results.put(result.id(), result);
+        if (results.size() <= maxResults) {
+            return Optional.empty();
+        }
+        var eldest = results.entrySet().iterator().next();
+        results.remove(eldest.getKey());
+        return Optional.of(eldest.getValue());
+    }
+
+    public synchronized Optional<GenerationResult> get(String id) {
+        return Optional.ofNullable(results.get(id));
+    }
+}
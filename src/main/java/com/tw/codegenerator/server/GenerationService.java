@@ -0,0 +1,117 @@
+package com.tw.codegenerator.server;
+
+import com.tw.codegenerator.metrics.GenerationMetrics;
+import com.tw.codegenerator.output.InMemoryOutputSink;
+import com.tw.codegenerator.pipeline.BoundedContext;
+import com.tw.codegenerator.pipeline.LayerGenerationOrchestrator;
+import com.tw.codegenerator.spec.OpenApiSpecRepository;
+import com.tw.codegenerator.utils.ContentHash;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Runs one generation per request. Every request gets its own sink, orchestrator and metrics, only the parsed specs,
+ * the compiled templates and the meter registry are shared, the latter only sees meters tagged by phase and layer.
+ * Posted specs are kept as long as a stored result was generated from them.
+ */
+@Slf4j
+@Service
+@Profile("server")
+public class GenerationService {
+
+    private final GenerationResultStore resultStore;
+
+    private final MeterRegistry meterRegistry;
+
+    private final Path specDirectory;
+
+    private final OpenApiSpecRepository specRepository;
+
+    /**
+     * Spec file of every stored or running generation, by generation id.
+     */
+    private final Map<String, Path> specFiles = new HashMap<>();
+
+    public GenerationService(GenerationResultStore resultStore, MeterRegistry meterRegistry,
+                             @Value("${generator.server.spec-directory:build/openapi-specs}") Path specDirectory) {
+        this.resultStore = resultStore;
+        this.meterRegistry = meterRegistry;
+        this.specDirectory = specDirectory;
+        this.specRepository = new OpenApiSpecRepository(resultStore.getMaxResults());
+    }
+
+    public GenerationResult generate(GenerateSourcesRequest request) {
+        request.validate();
+        var id = UUID.randomUUID().toString();
+        var specFile = storeSpec(id, request.openApi());
+        GenerationResult result;
+        try {
+            var sink = new InMemoryOutputSink();
+            var orchestrator = new LayerGenerationOrchestrator(ForkJoinPool.commonPool(), specRepository, sink, null,
+                new GenerationMetrics(meterRegistry));
+
+            var report = orchestrator.generateContexts(List.of(new BoundedContext(request.basePackage(), request.domains(), specFile.toString())));
+            result = new GenerationResult(id, Collections.unmodifiableMap(new TreeMap<>(sink.getFiles())), report);
+        } catch (RuntimeException e) {
+            releaseSpec(id);
+            throw e;
+        }
+        resultStore.put(result).ifPresent(evicted -> releaseSpec(evicted.id()));
+        log.info("Generation {} of {} produced {} files in {}ms", result.id(), request.basePackage(), result.files().size(),
+            result.report().total().toMillis());
+        return result;
+    }
+
+    /**
+     * Specs are stored by content hash, so a spec posted again is served from the {@link OpenApiSpecRepository} cache.
+     */
+    private synchronized Path storeSpec(String id, String openApi) {
+        var content = openApi.getBytes(StandardCharsets.UTF_8);
+        var extension = openApi.stripLeading().startsWith("{") ? ".json" : ".yaml";
+        var specFile = specDirectory.resolve(ContentHash.sha256(content) + extension);
+        if (!Files.exists(specFile)) {
+            try {
+                Files.createDirectories(specDirectory);
+                var tempFile = Files.createTempFile(specDirectory, "spec", ".tmp");
+                Files.write(tempFile, content);
+                Files.move(tempFile, specFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        specFiles.put(id, specFile);
+        return specFile;
+    }
+
+    /**
+     * Deletes the spec file of the generation unless another stored or running generation uses it as well.
+     */
+    private synchronized void releaseSpec(String id) {
+        var specFile = specFiles.remove(id);
+        if (specFile == null || specFiles.containsValue(specFile)) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(specFile);
+        } catch (IOException e) {
+            log.warn("Can not delete spec file {}", specFile, e);
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package com.tw.codegenerator.server;
+
+import com.tw.codegenerator.freemarker.TemplateEngine;
+import com.tw.codegenerator.javapoet.ResourceLayerGenerator;
+import com.tw.codegenerator.output.NullOutputSink;
+import com.tw.codegenerator.spec.OpenApiSpecRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+/**
+ * Runs the bundled reference spec through the generators before the first request, so that classes are loaded,
+ * templates are compiled and the hot paths are already JIT compiled.
+ */
+@Slf4j
+@Component
+@Profile("server")
+public class ServerWarmUp implements ApplicationRunner {
+
+    private final int iterations;
+
+    public ServerWarmUp(@Value("${generator.server.warm-up-iterations:20}") int iterations) {
+        this.iterations = iterations;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        var start = System.nanoTime();
+        TemplateEngine.shared();
+        var openAPI = OpenApiSpecRepository.shared().get("reference/Order.yaml");
+        var sink = new NullOutputSink();
+        for (int i = 0; i < iterations; i++) {
+            new ResourceLayerGenerator("com.tw.warmup", OpenApiSpecRepository.shared(), sink).generate(openAPI);
+        }
+        log.info("Warmed up with {} iterations, {} files in {}ms", iterations, sink.getFiles(), (System.nanoTime() - start) / 1_000_000);
+    }
+}
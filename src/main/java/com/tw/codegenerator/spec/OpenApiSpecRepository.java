@@ -0,0 +1,175 @@
+package com.tw.codegenerator.spec;
+
+import com.tw.codegenerator.utils.ContentHash;
+import io.swagger.v3.core.util.Json;
+import io.swagger.v3.oas.models.OpenAPI;
+import io.swagger.v3.parser.OpenAPIV3Parser;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+
+/**
+ * Parses every OpenAPI spec once and shares the result between generators.
+ * Specs are keyed by the hash of their content and of every file they reference with an external {@code $ref}, so an
+ * edited spec or referenced file is parsed again while an unchanged one is served from memory, or from the serialized
+ * form under the cache directory on a warm run.
+ */
+@Slf4j
+public class OpenApiSpecRepository {
+
+    private static final OpenApiSpecRepository SHARED = new OpenApiSpecRepository(Path.of("build", "openapi-cache"));
+
+    /**
+     * Value of a {@code $ref} in YAML or JSON that points into another file, remote or local.
+     */
+    private static final Pattern EXTERNAL_REF = Pattern.compile("\\$ref[\"']?\\s*:\\s*[\"']?([^\"'#\\s,}]+)");
+
+    private final Map<String, OpenAPI> specs;
+
+    private final Path cacheDirectory;
+
+    public OpenApiSpecRepository() {
+        this(null);
+    }
+
+    public OpenApiSpecRepository(Path cacheDirectory) {
+        this.specs = new ConcurrentHashMap<>();
+        this.cacheDirectory = cacheDirectory;
+    }
+
+    /**
+     * Repository keeping at most {@code maxSpecs} parsed specs in memory, the least recently used one is dropped
+     * beyond. Nothing is written to disk, for callers that see an unbounded number of specs.
+     */
+    public OpenApiSpecRepository(int maxSpecs) {
+        this.specs = Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, OpenAPI> eldest) {
+                return size() > maxSpecs;
+            }
+        });
+        this.cacheDirectory = null;
+    }
+
+    public static OpenApiSpecRepository shared() {
+        return SHARED;
+    }
+
+    public OpenAPI get(String location) {
+        var hash = hashOf(location);
+        return specs.computeIfAbsent(hash, key -> readFromDisk(key).orElseGet(() -> parse(location, key)));
+    }
+
+    /**
+     * Hash of the spec and, transitively, of the local files it references. A remote reference only counts with its
+     * URL, and a missing file is left for the parser to report.
+     */
+    String hashOf(String location) {
+        var root = readContent(location);
+        var hashes = new StringBuilder(ContentHash.sha256(root));
+        var visited = new HashSet<>(List.of(location));
+        var pending = new ArrayDeque<>(referencesOf(location, root));
+        while (!pending.isEmpty()) {
+            var reference = pending.poll();
+            if (!visited.add(reference)) {
+                continue;
+            }
+            var content = findContent(reference);
+            if (content.isPresent()) {
+                hashes.append('\n').append(ContentHash.sha256(content.get()));
+                pending.addAll(referencesOf(reference, content.get()));
+            }
+        }
+        // a spec without references keeps the hash of its content, and with it its cache file
+        return visited.size() == 1 ? hashes.toString() : ContentHash.sha256(hashes.toString());
+    }
+
+    private static List<String> referencesOf(String location, byte[] content) {
+        var references = new ArrayList<String>();
+        var matcher = EXTERNAL_REF.matcher(new String(content, StandardCharsets.UTF_8));
+        while (matcher.find()) {
+            var reference = matcher.group(1);
+            if (!reference.contains("://")) {
+                var parent = Path.of(location).getParent();
+                var path = parent == null ? Path.of(reference) : parent.resolve(reference);
+                references.add(path.normalize().toString().replace(File.separatorChar, '/'));
+            }
+        }
+        return references;
+    }
+
+    private OpenAPI parse(String location, String hash) {
+        var openAPI = new OpenAPIV3Parser().read(location);
+        if (openAPI == null) {
+            throw new IllegalArgumentException("Can not parse OpenAPI spec " + location);
+        }
+        log.info("Parsed OpenAPI spec {} ({})", location, hash);
+        writeToDisk(hash, openAPI);
+        return openAPI;
+    }
+
+    private Optional<OpenAPI> readFromDisk(String hash) {
+        if (cacheDirectory == null) {
+            return Optional.empty();
+        }
+        var cacheFile = cacheDirectory.resolve(hash + ".json");
+        if (!Files.exists(cacheFile)) {
+            return Optional.empty();
+        }
+        try {
+            return Optional.of(Json.mapper().readValue(cacheFile.toFile(), OpenAPI.class));
+        } catch (IOException e) {
+            log.warn("Ignore unreadable OpenAPI cache file {}", cacheFile, e);
+            return Optional.empty();
+        }
+    }
+
+    private void writeToDisk(String hash, OpenAPI openAPI) {
+        if (cacheDirectory == null) {
+            return;
+        }
+        try {
+            Files.createDirectories(cacheDirectory);
+            var tempFile = Files.createTempFile(cacheDirectory, hash, ".tmp");
+            Files.write(tempFile, Json.mapper().writeValueAsBytes(openAPI));
+            Files.move(tempFile, cacheDirectory.resolve(hash + ".json"), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            log.warn("Can not write OpenAPI cache file for {}", hash, e);
+        }
+    }
+
+    private byte[] readContent(String location) {
+        return findContent(location).orElseThrow(() -> new IllegalArgumentException("OpenAPI spec %s not found.".formatted(location)));
+    }
+
+    private Optional<byte[]> findContent(String location) {
+        try {
+            var path = Path.of(location);
+            if (Files.isRegularFile(path)) {
+                return Optional.of(Files.readAllBytes(path));
+            }
+            try (var inputStream = getClass().getClassLoader().getResourceAsStream(StringUtils.removeStart(location, "/"))) {
+                return inputStream == null ? Optional.empty() : Optional.of(inputStream.readAllBytes());
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
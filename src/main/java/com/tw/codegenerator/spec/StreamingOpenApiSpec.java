@@ -0,0 +1,318 @@
+package com.tw.codegenerator.spec;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.swagger.v3.core.util.Json;
+import io.swagger.v3.core.util.Yaml;
+import io.swagger.v3.oas.models.Operation;
+import io.swagger.v3.oas.models.PathItem;
+import io.swagger.v3.oas.models.media.Schema;
+import io.swagger.v3.oas.models.parameters.Parameter;
+import io.swagger.v3.oas.models.parameters.RequestBody;
+import io.swagger.v3.oas.models.responses.ApiResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.function.BiConsumer;
+
+import static java.nio.file.StandardOpenOption.*;
+
+/**
+ * OpenAPI spec read for specs too large to hold as one {@link io.swagger.v3.oas.models.OpenAPI}.
+ * <p>
+ * {@link #open} walks the document once with a streaming parser. Every path item and every component is written
+ * as a JSON fragment to a spill file, so only an index of names and offsets stays in memory. Path items and
+ * components are deserialized one at a time when they are visited. Like {@code OpenAPIV3Parser}, path level
+ * parameters are merged into the operations and parameter and response {@code $ref}s are inlined, these are
+ * resolved on demand through a bounded LRU cache. Schema {@code $ref}s are kept, generators only need their names.
+ */
+@Slf4j
+public class StreamingOpenApiSpec implements Closeable {
+
+    private static final Set<String> OPERATIONS = Set.of("get", "put", "post", "delete", "options", "head", "patch", "trace");
+
+    private static final String COMPONENTS_PREFIX = "#/components/";
+
+    private final Path spillFile;
+
+    private final FileChannel spill;
+
+    private final Map<String, Fragment> paths = new LinkedHashMap<>();
+
+    private final Map<String, Set<String>> pathsByTag = new LinkedHashMap<>();
+
+    private final Map<String, Map<String, Fragment>> components = new LinkedHashMap<>();
+
+    private final Map<String, Object> resolved;
+
+    private long spillSize;
+
+    private record Fragment(long offset, int length) {
+    }
+
+    private StreamingOpenApiSpec(int refCacheSize) throws IOException {
+        this.spillFile = Files.createTempFile("openapi-", ".spill");
+        this.spill = FileChannel.open(spillFile, READ, WRITE, TRUNCATE_EXISTING);
+        this.resolved = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Object> eldest) {
+                return size() > refCacheSize;
+            }
+        };
+    }
+
+    public static StreamingOpenApiSpec open(String location) {
+        return open(location, 256);
+    }
+
+    /**
+     * @param location     file path or classpath resource, JSON when it ends with {@code .json}, YAML otherwise
+     * @param refCacheSize how many resolved {@code $ref}s are kept in memory
+     */
+    public static StreamingOpenApiSpec open(String location, int refCacheSize) {
+        try {
+            var spec = new StreamingOpenApiSpec(refCacheSize);
+            try (var inputStream = openStream(location)) {
+                spec.index(mapperFor(location).createParser(inputStream));
+            } catch (IOException | RuntimeException e) {
+                spec.close();
+                throw e;
+            }
+            log.info("Indexed OpenAPI spec {}: {} paths, {} tags", location, spec.paths.size(), spec.pathsByTag.size());
+            return spec;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public Set<String> getTags() {
+        return Collections.unmodifiableSet(pathsByTag.keySet());
+    }
+
+    /**
+     * Names of the indexed components per section, e.g. {@code schemas}.
+     */
+    public Map<String, Set<String>> getComponentNames() {
+        var names = new HashMap<String, Set<String>>();
+        components.forEach((section, fragments) -> names.put(section, Set.copyOf(fragments.keySet())));
+        return names;
+    }
+
+    public void forEachPath(BiConsumer<String, PathItem> consumer) {
+        paths.forEach((url, fragment) -> consumer.accept(url, loadPathItem(fragment)));
+    }
+
+    /**
+     * Hands over the operations whose first tag is {@code tag} one at a time, in {@link PathItem.HttpMethod} order
+     * within a path. Only the path item of the current operation is deserialized.
+     */
+    public void forEachOperationOfTag(String tag, OperationConsumer consumer) {
+        for (String url : pathsByTag.getOrDefault(tag, Set.of())) {
+            new EnumMap<>(loadPathItem(paths.get(url)).readOperationsMap()).forEach((method, operation) -> {
+                if (tag.equals(firstTag(operation))) {
+                    consumer.accept(url, method, operation);
+                }
+            });
+        }
+    }
+
+    public interface OperationConsumer {
+        void accept(String url, PathItem.HttpMethod method, Operation operation);
+    }
+
+    public void forEachSchema(BiConsumer<String, Schema> consumer) {
+        forEachComponent("schemas", Schema.class, consumer);
+    }
+
+    public void forEachRequestBody(BiConsumer<String, RequestBody> consumer) {
+        forEachComponent("requestBodies", RequestBody.class, consumer);
+    }
+
+    public void forEachResponse(BiConsumer<String, ApiResponse> consumer) {
+        forEachComponent("responses", ApiResponse.class, consumer);
+    }
+
+    public <T> void forEachComponent(String section, Class<T> type, BiConsumer<String, T> consumer) {
+        components.getOrDefault(section, Map.of()).forEach((name, fragment) -> consumer.accept(name, load(fragment, type)));
+    }
+
+    /**
+     * @param ref local reference like {@code #/components/responses/OrderResponse}
+     */
+    public <T> T resolve(String ref, Class<T> type) {
+        synchronized (resolved) {
+            var cached = resolved.get(ref);
+            if (cached != null) {
+                return type.cast(cached);
+            }
+        }
+        var fragment = Optional.of(ref)
+            .filter(value -> value.startsWith(COMPONENTS_PREFIX))
+            .map(value -> value.substring(COMPONENTS_PREFIX.length()).split("/", 2))
+            .filter(parts -> parts.length == 2)
+            .map(parts -> components.getOrDefault(parts[0], Map.of()).get(parts[1]))
+            .orElseThrow(() -> new IllegalArgumentException("Can not resolve $ref " + ref));
+        var value = load(fragment, type);
+        synchronized (resolved) {
+            resolved.put(ref, value);
+        }
+        return value;
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            spill.close();
+        } finally {
+            Files.deleteIfExists(spillFile);
+        }
+    }
+
+    private void index(JsonParser parser) throws IOException {
+        try (parser) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new IllegalArgumentException("OpenAPI spec must be an object.");
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                var field = parser.getCurrentName();
+                parser.nextToken();
+                switch (field) {
+                    case "paths" -> indexPaths(parser);
+                    case "components" -> indexComponents(parser);
+                    default -> parser.skipChildren();
+                }
+            }
+        }
+    }
+
+    private void indexPaths(JsonParser parser) throws IOException {
+        if (parser.currentToken() != JsonToken.START_OBJECT) {
+            parser.skipChildren();
+            return;
+        }
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            var url = parser.getCurrentName();
+            parser.nextToken();
+            JsonNode pathItem = parser.readValueAsTree();
+            paths.put(url, write(pathItem));
+
+            pathItem.fields().forEachRemaining(entry -> {
+                if (!OPERATIONS.contains(entry.getKey())) {
+                    return;
+                }
+                var tag = entry.getValue().path("tags").path(0);
+                if (!tag.isTextual()) {
+                    log.warn("Skip untagged {} {}", entry.getKey().toUpperCase(), url);
+                    return;
+                }
+                pathsByTag.computeIfAbsent(tag.asText(), key -> new LinkedHashSet<>()).add(url);
+            });
+        }
+    }
+
+    private void indexComponents(JsonParser parser) throws IOException {
+        if (parser.currentToken() != JsonToken.START_OBJECT) {
+            parser.skipChildren();
+            return;
+        }
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            var section = parser.getCurrentName();
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                parser.skipChildren();
+                continue;
+            }
+            var fragments = components.computeIfAbsent(section, key -> new LinkedHashMap<>());
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                var name = parser.getCurrentName();
+                parser.nextToken();
+                fragments.put(name, write(parser.readValueAsTree()));
+            }
+        }
+    }
+
+    private Fragment write(JsonNode node) throws IOException {
+        var buffer = ByteBuffer.wrap(Json.mapper().writeValueAsBytes(node));
+        var fragment = new Fragment(spillSize, buffer.remaining());
+        while (buffer.hasRemaining()) {
+            spillSize += spill.write(buffer, spillSize);
+        }
+        return fragment;
+    }
+
+    private <T> T load(Fragment fragment, Class<T> type) {
+        var buffer = ByteBuffer.allocate(fragment.length());
+        try {
+            while (buffer.hasRemaining()) {
+                if (spill.read(buffer, fragment.offset() + buffer.position()) < 0) {
+                    throw new IllegalStateException("Spill file %s is truncated.".formatted(spillFile));
+                }
+            }
+            return Json.mapper().readValue(buffer.array(), type);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private PathItem loadPathItem(Fragment fragment) {
+        var pathItem = load(fragment, PathItem.class);
+        var pathParameters = resolveParameters(pathItem.getParameters());
+        for (Operation operation : pathItem.readOperations()) {
+            var operationParameters = resolveParameters(operation.getParameters());
+            if (pathParameters != null) {
+                var merged = new LinkedHashMap<String, Parameter>();
+                pathParameters.forEach(parameter -> merged.put(parameter.getIn() + ":" + parameter.getName(), parameter));
+                if (operationParameters != null) {
+                    operationParameters.forEach(parameter -> merged.put(parameter.getIn() + ":" + parameter.getName(), parameter));
+                }
+                operationParameters = new ArrayList<>(merged.values());
+            }
+            operation.setParameters(operationParameters);
+
+            if (operation.getResponses() != null) {
+                operation.getResponses().replaceAll((code, response) ->
+                    response.get$ref() == null ? response : resolve(response.get$ref(), ApiResponse.class));
+            }
+        }
+        return pathItem;
+    }
+
+    private List<Parameter> resolveParameters(List<Parameter> parameters) {
+        if (parameters == null) {
+            return null;
+        }
+        return parameters.stream()
+            .map(parameter -> parameter.get$ref() == null ? parameter : resolve(parameter.get$ref(), Parameter.class))
+            .toList();
+    }
+
+    private static String firstTag(Operation operation) {
+        return operation.getTags() == null || operation.getTags().isEmpty() ? null : operation.getTags().get(0);
+    }
+
+    private static ObjectMapper mapperFor(String location) {
+        return location.endsWith(".json") ? Json.mapper() : Yaml.mapper();
+    }
+
+    private static InputStream openStream(String location) throws IOException {
+        var path = Path.of(location);
+        if (Files.isRegularFile(path)) {
+            return Files.newInputStream(path);
+        }
+        var inputStream = StreamingOpenApiSpec.class.getClassLoader().getResourceAsStream(StringUtils.removeStart(location, "/"));
+        if (inputStream == null) {
+            throw new IllegalArgumentException("OpenAPI spec %s not found.".formatted(location));
+        }
+        return inputStream;
+    }
+}
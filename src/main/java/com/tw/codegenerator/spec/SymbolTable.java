@@ -0,0 +1,280 @@
+package com.tw.codegenerator.spec;
+
+import com.tw.codegenerator.utils.OpenApiHelper;
+import io.swagger.v3.oas.models.Components;
+import io.swagger.v3.oas.models.OpenAPI;
+import io.swagger.v3.oas.models.Operation;
+import io.swagger.v3.oas.models.PathItem;
+import io.swagger.v3.oas.models.media.Content;
+import io.swagger.v3.oas.models.media.Schema;
+import io.swagger.v3.oas.models.parameters.Parameter;
+import io.swagger.v3.oas.models.parameters.RequestBody;
+import io.swagger.v3.oas.models.responses.ApiResponse;
+import org.springframework.javapoet.ClassName;
+import org.springframework.javapoet.ParameterizedTypeName;
+import org.springframework.javapoet.TypeName;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+/**
+ * Java types of the {@code $ref}s and primitive types of one spec, generated into one base package.
+ * <p>
+ * {@link #of(OpenAPI, String)} resolves every {@code $ref} of the spec up front and fails on refs pointing at
+ * components that do not exist, so that generators look types up instead of parsing ref strings per field.
+ */
+public class SymbolTable {
+
+    private static final String COMPONENTS_PREFIX = "#/components/";
+
+    private static final Set<String> TYPE_SECTIONS = Set.of("schemas", "requestBodies", "responses");
+
+    private static final Map<String, TypeName> PRIMITIVES = Map.of(
+        "string", ClassName.get(String.class),
+        "number", ClassName.get(Double.class),
+        "integer", ClassName.get(Integer.class),
+        "boolean", ClassName.get(Boolean.class),
+        "array", ParameterizedTypeName.get(ClassName.get(List.class), TypeName.OBJECT));
+
+    private final String basePackage;
+
+    private final Map<String, Set<String>> componentNames;
+
+    private final Map<String, ClassName> refs = new ConcurrentHashMap<>();
+
+    private SymbolTable(String basePackage, Map<String, Set<String>> componentNames) {
+        this.basePackage = basePackage;
+        this.componentNames = componentNames;
+    }
+
+    /**
+     * Table without knowledge of the spec, refs are resolved and cached on first use but never checked.
+     */
+    public static SymbolTable unchecked(String basePackage) {
+        return new SymbolTable(basePackage, null);
+    }
+
+    /**
+     * Table of a spec that is not available as a whole, e.g. a {@link StreamingOpenApiSpec}. Refs are resolved on
+     * first use and checked against {@code componentNames}, section to names.
+     */
+    public static SymbolTable of(String basePackage, Map<String, Set<String>> componentNames) {
+        return new SymbolTable(basePackage, componentNames);
+    }
+
+    /**
+     * @throws IllegalArgumentException when the spec holds dangling refs
+     */
+    public static SymbolTable of(OpenAPI openAPI, String basePackage) {
+        var componentNames = new HashMap<String, Set<String>>();
+        var components = openAPI.getComponents();
+        if (components != null) {
+            componentNames.put("schemas", namesOf(components.getSchemas()));
+            componentNames.put("requestBodies", namesOf(components.getRequestBodies()));
+            componentNames.put("responses", namesOf(components.getResponses()));
+            componentNames.put("parameters", namesOf(components.getParameters()));
+            componentNames.put("headers", namesOf(components.getHeaders()));
+            componentNames.put("examples", namesOf(components.getExamples()));
+        }
+        var symbolTable = new SymbolTable(basePackage, componentNames);
+
+        var collector = new RefCollector();
+        collector.visit(openAPI);
+        var dangling = new TreeSet<String>();
+        for (String ref : collector.refs) {
+            if (!symbolTable.exists(ref)) {
+                dangling.add(ref);
+            } else if (isTypeRef(ref)) {
+                symbolTable.resolve(ref);
+            }
+        }
+        if (!dangling.isEmpty()) {
+            throw new IllegalArgumentException("Dangling $ref in OpenAPI spec: " + dangling);
+        }
+        return symbolTable;
+    }
+
+    /**
+     * Components the path items refer to, directly or through other components, keyed by their ref. Refs into other
+     * documents are left out.
+     */
+    public static SortedMap<String, Object> componentsOf(OpenAPI openAPI, Map<String, PathItem> paths) {
+        var collector = new RefCollector(openAPI.getComponents());
+        RefCollector.forEach(paths, collector::visit);
+        return collector.components;
+    }
+
+    /**
+     * Components the request bodies refer to, see {@link #componentsOf(OpenAPI, Map)}.
+     */
+    public static SortedMap<String, Object> componentsOf(OpenAPI openAPI, Collection<RequestBody> requestBodies) {
+        var collector = new RefCollector(openAPI.getComponents());
+        requestBodies.forEach(collector::visit);
+        return collector.components;
+    }
+
+    /**
+     * @param ref {@code $ref} of a schema, request body or response
+     */
+    public ClassName resolve(String ref) {
+        var className = refs.get(ref);
+        if (className != null) {
+            return className;
+        }
+        if (!exists(ref)) {
+            throw new IllegalArgumentException("Dangling $ref " + ref);
+        }
+        return refs.computeIfAbsent(ref, key -> OpenApiHelper.getRefTypeName(key, basePackage));
+    }
+
+    public static TypeName primitive(String type) {
+        var typeName = PRIMITIVES.get(type);
+        if (typeName == null) {
+            throw new IllegalStateException("Unexpected value: " + type);
+        }
+        return typeName;
+    }
+
+    /**
+     * Refs into other documents are not checked, they are resolved by their last path segment like before.
+     */
+    private boolean exists(String ref) {
+        if (componentNames == null || !ref.startsWith(COMPONENTS_PREFIX)) {
+            return true;
+        }
+        var parts = ref.substring(COMPONENTS_PREFIX.length()).split("/", 2);
+        return parts.length == 2 && componentNames.getOrDefault(parts[0], Set.of()).contains(parts[1]);
+    }
+
+    private static boolean isTypeRef(String ref) {
+        return TYPE_SECTIONS.stream().anyMatch(section -> ref.contains("/" + section + "/"));
+    }
+
+    private static Set<String> namesOf(Map<String, ?> components) {
+        return components == null ? Set.of() : Set.copyOf(components.keySet());
+    }
+
+    /**
+     * Walks the spec once and collects every {@code $ref}, schemas are visited once however often they are nested.
+     * Given the components, it follows the refs into them as well.
+     */
+    private static class RefCollector {
+
+        private final Set<String> refs = new HashSet<>();
+
+        private final Set<Schema<?>> visitedSchemas = Collections.newSetFromMap(new IdentityHashMap<>());
+
+        private final Components followed;
+
+        private final SortedMap<String, Object> components = new TreeMap<>();
+
+        RefCollector() {
+            this(null);
+        }
+
+        RefCollector(Components followed) {
+            this.followed = followed;
+        }
+
+        void visit(OpenAPI openAPI) {
+            var components = openAPI.getComponents();
+            if (components != null) {
+                forEach(components.getSchemas(), this::visit);
+                forEach(components.getRequestBodies(), this::visit);
+                forEach(components.getResponses(), this::visit);
+                forEach(components.getParameters(), this::visit);
+            }
+            forEach(openAPI.getPaths(), this::visit);
+        }
+
+        private void visit(PathItem pathItem) {
+            Optional.ofNullable(pathItem.getParameters()).ifPresent(parameters -> parameters.forEach(this::visit));
+            pathItem.readOperations().forEach(this::visit);
+        }
+
+        private void visit(Operation operation) {
+            Optional.ofNullable(operation.getParameters()).ifPresent(parameters -> parameters.forEach(this::visit));
+            if (operation.getRequestBody() != null) {
+                visit(operation.getRequestBody());
+            }
+            forEach(operation.getResponses(), this::visit);
+        }
+
+        private void visit(Parameter parameter) {
+            addRef(parameter.get$ref());
+            visit(parameter.getSchema());
+        }
+
+        private void visit(RequestBody requestBody) {
+            addRef(requestBody.get$ref());
+            visit(requestBody.getContent());
+        }
+
+        private void visit(ApiResponse response) {
+            addRef(response.get$ref());
+            visit(response.getContent());
+        }
+
+        private void visit(Content content) {
+            forEach(content, mediaType -> visit(mediaType.getSchema()));
+        }
+
+        private void visit(Schema<?> schema) {
+            if (schema == null || !visitedSchemas.add(schema)) {
+                return;
+            }
+            addRef(schema.get$ref());
+            forEach(schema.getProperties(), this::visit);
+            visit(schema.getItems());
+            if (schema.getAdditionalProperties() instanceof Schema<?> additionalProperties) {
+                visit(additionalProperties);
+            }
+            Optional.ofNullable(schema.getAllOf()).ifPresent(schemas -> schemas.forEach(this::visit));
+            Optional.ofNullable(schema.getAnyOf()).ifPresent(schemas -> schemas.forEach(this::visit));
+            Optional.ofNullable(schema.getOneOf()).ifPresent(schemas -> schemas.forEach(this::visit));
+        }
+
+        private void addRef(String ref) {
+            if (ref != null && refs.add(ref) && followed != null && ref.startsWith(COMPONENTS_PREFIX)) {
+                follow(ref);
+            }
+        }
+
+        private void follow(String ref) {
+            var parts = ref.substring(COMPONENTS_PREFIX.length()).split("/", 2);
+            if (parts.length != 2) {
+                return;
+            }
+            var name = parts[1];
+            switch (parts[0]) {
+                case "schemas" -> Optional.ofNullable(followed.getSchemas()).map(schemas -> schemas.get(name)).ifPresent(schema -> {
+                    components.put(ref, schema);
+                    visit(schema);
+                });
+                case "requestBodies" -> Optional.ofNullable(followed.getRequestBodies()).map(requestBodies -> requestBodies.get(name))
+                    .ifPresent(requestBody -> {
+                        components.put(ref, requestBody);
+                        visit(requestBody);
+                    });
+                case "responses" -> Optional.ofNullable(followed.getResponses()).map(responses -> responses.get(name)).ifPresent(response -> {
+                    components.put(ref, response);
+                    visit(response);
+                });
+                case "parameters" -> Optional.ofNullable(followed.getParameters()).map(parameters -> parameters.get(name))
+                    .ifPresent(parameter -> {
+                        components.put(ref, parameter);
+                        visit(parameter);
+                    });
+                default -> {
+                }
+            }
+        }
+
+        private static <T> void forEach(Map<String, T> values, Consumer<T> consumer) {
+            if (values != null) {
+                values.values().forEach(consumer);
+            }
+        }
+    }
+}
@@ -1,13 +1,11 @@
 package com.tw.codegenerator.utils;
 
 import com.tw.codegenerator.metadata.FieldType;
+import com.tw.codegenerator.output.OutputSink;
+import com.tw.codegenerator.spec.SymbolTable;
 import org.apache.commons.lang3.StringUtils;
 import org.springframework.javapoet.*;
 
-import java.io.File;
-import java.io.IOException;
-import java.util.List;
-
 public class GeneratorHelper {
 
     public static String convertToSnakeCase(String input) {
@@ -78,13 +76,12 @@ public class GeneratorHelper {
         }
     }
 
-    public static void generateFile(String packageName, TypeSpec clazz) {
-        var adaptorFile = JavaFile.builder(packageName, clazz).indent("    ").build();
-        try {
-            adaptorFile.writeTo(new File("src/main/java"));
-        } catch (IOException e) {
-            throw new RuntimeException(e);
-        }
+    public static void generateFile(OutputSink sink, String packageName, TypeSpec clazz) {
+        sink.write(buildFile(packageName, clazz));
+    }
+
+    public static JavaFile buildFile(String packageName, TypeSpec clazz) {
+        return JavaFile.builder(packageName, clazz).indent("    ").build();
     }
 
     public static TypeName getJavaType(FieldType type) {
@@ -105,25 +102,10 @@ public class GeneratorHelper {
         }
     }
 
+    /**
+     * @see SymbolTable#primitive(String)
+     */
     public static TypeName getTypeName(String typeName) {
-        switch (typeName) {
-            // Add more cases for other types as needed
-            case "string" -> {
-                return ClassName.get(String.class);
-            }
-            case "number" -> {
-                return ClassName.get(Double.class);
-            }
-            case "integer" -> {
-                return TypeName.get(Integer.class);
-            }
-            case "boolean" -> {
-                return TypeName.get(Boolean.class);
-            }
-            case "array" -> {
-                return ParameterizedTypeName.get(ClassName.get(List.class), TypeName.OBJECT);
-            }
-            default -> throw new IllegalStateException("Unexpected value: " + typeName);
-        }
+        return SymbolTable.primitive(typeName);
     }
 }
@@ -1,5 +1,7 @@
 package com.tw.codegenerator.utils;
 
+import com.tw.codegenerator.output.OutputSink;
+import com.tw.codegenerator.spec.SymbolTable;
 import io.swagger.v3.oas.models.media.Schema;
 import io.swagger.v3.oas.models.parameters.RequestBody;
 import io.swagger.v3.oas.models.responses.ApiResponse;
@@ -8,6 +10,7 @@ import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.text.CaseUtils;
 import org.springframework.javapoet.ClassName;
+import org.springframework.javapoet.JavaFile;
 import org.springframework.javapoet.ParameterizedTypeName;
 import org.springframework.javapoet.TypeName;
 import org.springframework.javapoet.TypeSpec;
@@ -16,6 +19,8 @@ import org.springframework.util.CollectionUtils;
 import javax.lang.model.element.Modifier;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.BiFunction;
 
 import static com.tw.codegenerator.utils.GeneratorHelper.*;
 import static com.tw.codegenerator.utils.GeneratorHelper.removePluralSuffix;
@@ -39,7 +44,27 @@ public class OpenApiHelper {
 
     private final String suffix;
 
-    public OpenApiHelper(String basePackage, String suffix) {
+    private final OutputSink sink;
+
+    private final SymbolTable symbols;
+
+    private final ForkJoinPool pool;
+
+    public OpenApiHelper(String basePackage, String suffix, OutputSink sink) {
+        this(basePackage, suffix, sink, SymbolTable.unchecked(basePackage));
+    }
+
+    public OpenApiHelper(String basePackage, String suffix, OutputSink sink, SymbolTable symbols) {
+        this(basePackage, suffix, sink, symbols, null);
+    }
+
+    /**
+     * @param pool builds the classes of the plural {@code generateBy} methods in parallel when not {@code null}
+     */
+    public OpenApiHelper(String basePackage, String suffix, OutputSink sink, SymbolTable symbols, ForkJoinPool pool) {
+        this.sink = sink;
+        this.symbols = symbols;
+        this.pool = pool;
         this.basePackage = basePackage;
         this.dtoPackage = basePackage + ".app.dto";
         this.requestPackage = basePackage + ".resource.controller.request";
@@ -48,48 +73,70 @@ public class OpenApiHelper {
     }
 
     public void generateBySchemas(Map<String, Schema> schemas) {
-        for (String schemaName : schemas.keySet()) {
-            var classSchema = schemas.get(schemaName);
-            var className = StringUtils.capitalize(schemaName.replace(" ", ""));
+        generateAll(schemas, this::buildBySchema);
+    }
 
-            generateBySchema(className, classSchema, dtoPackage);
-        }
+    public void generateBySchema(String schemaName, Schema classSchema) {
+        sink.write(buildBySchema(schemaName, classSchema));
+    }
+
+    private JavaFile buildBySchema(String schemaName, Schema classSchema) {
+        var className = StringUtils.capitalize(schemaName.replace(" ", ""));
+
+        return buildBySchema(className, classSchema, dtoPackage);
     }
 
     public void generateByRequestBodies(Map<String, RequestBody> requestBodies) {
-        for (String bodyName : requestBodies.keySet()) {
-            var requestBody = requestBodies.get(bodyName);
+        generateAll(requestBodies, this::buildByRequestBody);
+    }
+
+    public void generateByRequestBody(String bodyName, RequestBody requestBody) {
+        sink.write(buildByRequestBody(bodyName, requestBody));
+    }
 
-            var classSchema = requestBody.getContent().get("application/json").getSchema();
-            var className = StringUtils.capitalize(bodyName.replace(" ", ""));
+    private JavaFile buildByRequestBody(String bodyName, RequestBody requestBody) {
+        var classSchema = requestBody.getContent().get("application/json").getSchema();
+        var className = StringUtils.capitalize(bodyName.replace(" ", ""));
 
-            generateBySchema(className, classSchema, requestPackage);
-        }
+        return buildBySchema(className, classSchema, requestPackage);
     }
 
     public void generateByResponse(Map<String, ApiResponse> responses) {
-        for (String responseName : responses.keySet()) {
-            var response = responses.get(responseName);
-
+        generateAll(responses, (responseName, response) -> {
             var classSchema = response.getContent().get("application/json").getSchema();
             var className = StringUtils.capitalize(responseName.replace(" ", ""));
 
-            generateBySchema(className, classSchema, responsePackage);
-        }
+            return buildBySchema(className, classSchema, responsePackage);
+        });
     }
 
     public void generateByResponses(Map<String, ApiResponses> responses) {
-        for (String controllerName : responses.keySet()) {
-            var apiResponses = responses.get(controllerName);
-
+        generateAll(responses, (controllerName, apiResponses) -> {
             var classSchema = apiResponses.get("200").getContent().get("application/json").getSchema();
             var className = StringUtils.capitalize(controllerName) + "Response";
 
-            generateBySchema(className, classSchema, responsePackage);
+            return buildBySchema(className, classSchema, responsePackage);
+        });
+    }
+
+    /**
+     * With a pool, classes are built in parallel but handed to the sink in the iteration order of
+     * {@code components}, so that ordered sinks like {@link com.tw.codegenerator.output.ZipOutputSink} stay
+     * deterministic, and a metered sink still renders and counts every file.
+     */
+    private <T> void generateAll(Map<String, T> components, BiFunction<String, T, JavaFile> build) {
+        if (pool == null) {
+            components.forEach((name, component) -> sink.write(build.apply(name, component)));
+            return;
         }
+        var javaFiles = pool.submit(() -> components.entrySet().parallelStream()
+                .map(entry -> build.apply(entry.getKey(), entry.getValue()))
+                .toList())
+            .join();
+        javaFiles.forEach(sink::write);
     }
 
-    private void generateBySchema(String className, Schema classSchema, String packageName) {
+    private JavaFile buildBySchema(String className, Schema classSchema, String packageName) {
         var classBuilder = TypeSpec.classBuilder(className + suffix)
                 .addModifiers(Modifier.PUBLIC)
                 .addAnnotation(getterAnnotationClass)
@@ -101,10 +148,10 @@ public class OpenApiHelper {
 
         var ref = classSchema.get$ref();
         if (ref != null) {
-            classBuilder.superclass(getRefTypeName(ref, basePackage));
+            classBuilder.superclass(symbols.resolve(ref));
         }
 
-        generateFile(packageName, classBuilder.build());
+        return buildFile(packageName, classBuilder.build());
     }
 
     private void generateFieldsAndInnerClasses(TypeSpec.Builder classBuilder, String packageName, String className, Map<String, Schema> properties) {
@@ -118,7 +165,7 @@ public class OpenApiHelper {
             var ref = fieldSchema.get$ref();
 
             if (ref != null) {
-                var refClassName = getRefTypeName(ref, basePackage);
+                var refClassName = symbols.resolve(ref);
                 classBuilder.addField(refClassName, fieldName, Modifier.PRIVATE, Modifier.FINAL);
                 continue;
             }
@@ -167,7 +214,7 @@ public class OpenApiHelper {
         var items = fieldSchema.getItems();
         var itemRef = items.get$ref();
         if (itemRef != null) {
-            var refClassName = getRefTypeName(itemRef, basePackage);
+            var refClassName = symbols.resolve(itemRef);
             log.info(refClassName.toString());
             classBuilder.addField(ParameterizedTypeName.get(ClassName.get(List.class), refClassName), fieldName, Modifier.PRIVATE, Modifier.FINAL);
         } else {
@@ -0,0 +1,30 @@
+package com.tw.codegenerator.verify;
+
+import javax.tools.Diagnostic;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Result of compiling generated sources, with diagnostics grouped by the generated type they belong to.
+ */
+public record CompilationReport(Map<String, List<TypeDiagnostic>> diagnostics, Set<String> compiledTypes, Set<String> cachedTypes) {
+
+    public record TypeDiagnostic(Diagnostic.Kind kind, long line, long column, String message) {
+
+        @Override
+        public String toString() {
+            return "%s %d:%d %s".formatted(kind, line, column, message);
+        }
+    }
+
+    public boolean hasErrors() {
+        return diagnostics.values().stream()
+            .flatMap(List::stream)
+            .anyMatch(diagnostic -> diagnostic.kind() == Diagnostic.Kind.ERROR);
+    }
+
+    public List<TypeDiagnostic> diagnosticsOf(String typeName) {
+        return diagnostics.getOrDefault(typeName, List.of());
+    }
+}
@@ -0,0 +1,376 @@
+package com.tw.codegenerator.verify;
+
+import com.tw.codegenerator.utils.ContentHash;
+import lombok.extern.slf4j.Slf4j;
+
+import com.sun.source.tree.IdentifierTree;
+import com.sun.source.tree.MemberSelectTree;
+import com.sun.source.util.JavacTask;
+import com.sun.source.util.TaskEvent;
+import com.sun.source.util.TaskListener;
+import com.sun.source.util.TreePathScanner;
+import com.sun.source.util.Trees;
+
+import javax.lang.model.element.NestingKind;
+import javax.lang.model.element.TypeElement;
+import javax.tools.*;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Compiles generated sources with the in-process {@link JavaCompiler}, keeping sources and class files in memory.
+ * Generated code relies on Lombok and MapStruct, so their annotation processors run as in the Gradle build, from the
+ * path in the {@value #PROCESSOR_PATH_PROPERTY} system property.
+ * <p>
+ * Types that compiled cleanly are cached by source hash together with the source hashes of the generated types they
+ * reference. On the next run a type is not compiled again when its source and, transitively, the sources of those
+ * types are unchanged, its cached class files are offered to the compiler on the class path instead. Types that
+ * failed are always compiled again, a change in another type may fix them.
+ */
+@Slf4j
+public class GeneratedSourceCompiler {
+
+    public static final String PROCESSOR_PATH_PROPERTY = "codegenerator.verify.processorpath";
+
+    private final JavaCompiler compiler;
+
+    private final List<String> options;
+
+    private final Map<String, CompiledType> cache = new ConcurrentHashMap<>();
+
+    /**
+     * @param dependencies generated types referenced by the type, with their source hashes when it was compiled
+     */
+    private record CompiledType(String typeName, List<CompilationReport.TypeDiagnostic> diagnostics, Map<String, byte[]> classes,
+                                Map<String, String> dependencies) {
+    }
+
+    public GeneratedSourceCompiler() {
+        this(System.getProperty("java.class.path"), System.getProperty(PROCESSOR_PATH_PROPERTY));
+    }
+
+    /**
+     * @param processorPath Lombok and MapStruct processors, {@code null} to look them up on the class path
+     */
+    public GeneratedSourceCompiler(String classpath, String processorPath) {
+        this.compiler = ToolProvider.getSystemJavaCompiler();
+        if (compiler == null) {
+            throw new IllegalStateException("No system Java compiler, verification needs a JDK.");
+        }
+        if (processorPath == null) {
+            this.options = List.of("-classpath", classpath, "-Xlint:none");
+        } else {
+            // the processor path holds the Lombok annotations as well
+            this.options = List.of("-classpath", classpath + File.pathSeparator + processorPath, "-processorpath", processorPath, "-Xlint:none");
+        }
+    }
+
+    /**
+     * @param sources generated sources keyed by their path relative to the source root
+     */
+    public CompilationReport verify(Map<String, String> sources) {
+        var hashes = new HashMap<String, String>();
+        var allUnits = new ArrayList<SourceUnit>();
+        sources.forEach((path, content) -> {
+            if (path.endsWith(".java")) {
+                var unit = new SourceUnit(path, content, ContentHash.sha256(content));
+                hashes.put(unit.typeName, unit.hash);
+                allUnits.add(unit);
+            }
+        });
+
+        var stale = staleTypes(allUnits, hashes);
+        var cached = new LinkedHashMap<String, CompiledType>();
+        var units = new ArrayList<SourceUnit>();
+        for (var unit : allUnits) {
+            if (stale.contains(unit.typeName)) {
+                units.add(unit);
+            } else {
+                cached.put(unit.typeName, cache.get(unit.hash));
+            }
+        }
+
+        var diagnostics = new TreeMap<String, List<CompilationReport.TypeDiagnostic>>();
+        cached.values().forEach(compiledType -> diagnostics.put(compiledType.typeName(), compiledType.diagnostics()));
+        var compiledTypes = new TreeSet<String>();
+        if (!units.isEmpty()) {
+            compile(units, cached.values(), hashes, diagnostics);
+            units.forEach(unit -> compiledTypes.add(unit.typeName));
+        }
+
+        var cachedTypes = new TreeSet<String>();
+        cached.values().forEach(compiledType -> cachedTypes.add(compiledType.typeName()));
+        log.info("Verified {} generated types, {} compiled and {} from cache", compiledTypes.size() + cachedTypes.size(),
+            compiledTypes.size(), cachedTypes.size());
+        return new CompilationReport(diagnostics, compiledTypes, cachedTypes);
+    }
+
+    /**
+     * Types not cached, referencing a generated type whose source changed or is gone, or referencing a stale type.
+     */
+    private Set<String> staleTypes(List<SourceUnit> units, Map<String, String> hashes) {
+        var stale = new HashSet<String>();
+        var pending = new ArrayDeque<String>();
+        var dependents = new HashMap<String, List<String>>();
+        for (var unit : units) {
+            var compiledType = cache.get(unit.hash);
+            if (compiledType == null || compiledType.dependencies().entrySet().stream()
+                    .anyMatch(dependency -> !dependency.getValue().equals(hashes.get(dependency.getKey())))) {
+                stale.add(unit.typeName);
+                pending.add(unit.typeName);
+            } else {
+                compiledType.dependencies().keySet()
+                    .forEach(dependency -> dependents.computeIfAbsent(dependency, key -> new ArrayList<>()).add(unit.typeName));
+            }
+        }
+        while (!pending.isEmpty()) {
+            for (var dependent : dependents.getOrDefault(pending.poll(), List.of())) {
+                if (stale.add(dependent)) {
+                    pending.add(dependent);
+                }
+            }
+        }
+        return stale;
+    }
+
+    private void compile(List<SourceUnit> units, Collection<CompiledType> cached, Map<String, String> hashes,
+                         Map<String, List<CompilationReport.TypeDiagnostic>> diagnostics) {
+        var cachedClasses = new HashMap<String, byte[]>();
+        cached.forEach(compiledType -> cachedClasses.putAll(compiledType.classes()));
+
+        var collector = new DiagnosticCollector<JavaFileObject>();
+        try (var fileManager = new InMemoryFileManager(compiler.getStandardFileManager(collector, Locale.ROOT, null), cachedClasses)) {
+            var task = (JavacTask) compiler.getTask(null, fileManager, collector, options, null, units);
+            var references = new ReferenceCollector(Trees.instance(task));
+            task.addTaskListener(references);
+            task.call();
+
+            units.forEach(unit -> diagnostics.put(unit.typeName, new ArrayList<>()));
+            for (var diagnostic : collector.getDiagnostics()) {
+                var typeName = diagnostic.getSource() instanceof SourceUnit unit ? unit.typeName : "<compiler>";
+                diagnostics.computeIfAbsent(typeName, key -> new ArrayList<>()).add(new CompilationReport.TypeDiagnostic(
+                    diagnostic.getKind(), diagnostic.getLineNumber(), diagnostic.getColumnNumber(), diagnostic.getMessage(Locale.ROOT)));
+            }
+
+            for (var unit : units) {
+                var unitDiagnostics = diagnostics.get(unit.typeName);
+                if (unitDiagnostics.stream().noneMatch(diagnostic -> diagnostic.kind() == Diagnostic.Kind.ERROR)) {
+                    var dependencies = new HashMap<String, String>();
+                    references.of(unit).stream()
+                        .filter(typeName -> hashes.containsKey(typeName) && !typeName.equals(unit.typeName))
+                        .forEach(typeName -> dependencies.put(typeName, hashes.get(typeName)));
+                    cache.put(unit.hash, new CompiledType(unit.typeName, List.copyOf(unitDiagnostics), fileManager.classesOf(unit),
+                        Map.copyOf(dependencies)));
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static class SourceUnit extends SimpleJavaFileObject {
+
+        private final String content;
+
+        private final String hash;
+
+        private final String typeName;
+
+        SourceUnit(String path, String content, String hash) {
+            super(URI.create("string:///" + path), Kind.SOURCE);
+            this.content = content;
+            this.hash = hash;
+            this.typeName = path.substring(0, path.length() - Kind.SOURCE.extension.length()).replace('/', '.');
+        }
+
+        @Override
+        public CharSequence getCharContent(boolean ignoreEncodingErrors) {
+            return content;
+        }
+    }
+
+    /**
+     * Top level types every source unit references after attribution, including those Lombok added members refer to.
+     */
+    private static class ReferenceCollector implements TaskListener {
+
+        private final Trees trees;
+
+        private final Map<URI, Set<String>> references = new HashMap<>();
+
+        ReferenceCollector(Trees trees) {
+            this.trees = trees;
+        }
+
+        @Override
+        public void finished(TaskEvent event) {
+            if (event.getKind() != TaskEvent.Kind.ANALYZE) {
+                return;
+            }
+            // the compiler hands out wrappers of the source units, so they are told apart by URI
+            var unitReferences = references.computeIfAbsent(event.getSourceFile().toUri(), key -> new HashSet<>());
+            new TreePathScanner<Void, Void>() {
+
+                @Override
+                public Void visitIdentifier(IdentifierTree node, Void unused) {
+                    addReference();
+                    return super.visitIdentifier(node, unused);
+                }
+
+                @Override
+                public Void visitMemberSelect(MemberSelectTree node, Void unused) {
+                    addReference();
+                    return super.visitMemberSelect(node, unused);
+                }
+
+                private void addReference() {
+                    var element = trees.getElement(getCurrentPath());
+                    while (element != null && !(element instanceof TypeElement type && type.getNestingKind() == NestingKind.TOP_LEVEL)) {
+                        element = element.getEnclosingElement();
+                    }
+                    if (element != null) {
+                        unitReferences.add(((TypeElement) element).getQualifiedName().toString());
+                    }
+                }
+            }.scan(event.getCompilationUnit(), null);
+        }
+
+        Set<String> of(SourceUnit unit) {
+            return references.getOrDefault(unit.toUri(), Set.of());
+        }
+    }
+
+    private static class OutputFile extends SimpleJavaFileObject {
+
+        private final String binaryName;
+
+        private final FileObject sibling;
+
+        private volatile byte[] bytes;
+
+        OutputFile(String binaryName, Kind kind, FileObject sibling) {
+            super(URI.create("mem:///" + binaryName.replace('.', '/') + kind.extension), kind);
+            this.binaryName = binaryName;
+            this.sibling = sibling;
+        }
+
+        @Override
+        public OutputStream openOutputStream() {
+            return new ByteArrayOutputStream() {
+                @Override
+                public void close() {
+                    bytes = toByteArray();
+                }
+            };
+        }
+
+        /**
+         * Sources generated by annotation processors, e.g. MapStruct mappers, are read back by the compiler.
+         */
+        @Override
+        public CharSequence getCharContent(boolean ignoreEncodingErrors) {
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+    }
+
+    private static class CachedClass extends SimpleJavaFileObject {
+
+        private final String binaryName;
+
+        private final byte[] bytes;
+
+        CachedClass(String binaryName, byte[] bytes) {
+            super(URI.create("cache:///" + binaryName.replace('.', '/') + Kind.CLASS.extension), Kind.CLASS);
+            this.binaryName = binaryName;
+            this.bytes = bytes;
+        }
+
+        @Override
+        public InputStream openInputStream() {
+            return new ByteArrayInputStream(bytes);
+        }
+    }
+
+    private static class InMemoryFileManager extends ForwardingJavaFileManager<StandardJavaFileManager> {
+
+        private final Map<String, CachedClass> cachedClasses = new HashMap<>();
+
+        private final List<OutputFile> outputs = Collections.synchronizedList(new ArrayList<>());
+
+        InMemoryFileManager(StandardJavaFileManager fileManager, Map<String, byte[]> cachedClasses) {
+            super(fileManager);
+            cachedClasses.forEach((name, bytes) -> this.cachedClasses.put(name, new CachedClass(name, bytes)));
+        }
+
+        @Override
+        public JavaFileObject getJavaFileForOutput(Location location, String className, JavaFileObject.Kind kind, FileObject sibling) {
+            var output = new OutputFile(className, kind, sibling);
+            outputs.add(output);
+            return output;
+        }
+
+        @Override
+        public FileObject getFileForOutput(Location location, String packageName, String relativeName, FileObject sibling) {
+            var name = packageName.isEmpty() ? relativeName : packageName + "." + relativeName;
+            var output = new OutputFile(name, JavaFileObject.Kind.OTHER, sibling);
+            outputs.add(output);
+            return output;
+        }
+
+        @Override
+        public Iterable<JavaFileObject> list(Location location, String packageName, Set<JavaFileObject.Kind> kinds,
+                                             boolean recurse) throws IOException {
+            var listed = super.list(location, packageName, kinds, recurse);
+            if (location != StandardLocation.CLASS_PATH || !kinds.contains(JavaFileObject.Kind.CLASS) || cachedClasses.isEmpty()) {
+                return listed;
+            }
+            var result = new ArrayList<JavaFileObject>();
+            listed.forEach(result::add);
+            cachedClasses.values().stream()
+                .filter(cachedClass -> isInPackage(cachedClass.binaryName, packageName, recurse))
+                .forEach(result::add);
+            return result;
+        }
+
+        @Override
+        public String inferBinaryName(Location location, JavaFileObject file) {
+            if (file instanceof CachedClass cachedClass) {
+                return cachedClass.binaryName;
+            }
+            return super.inferBinaryName(location, file);
+        }
+
+        @Override
+        public boolean isSameFile(FileObject a, FileObject b) {
+            if (a instanceof SimpleJavaFileObject || b instanceof SimpleJavaFileObject) {
+                return a.toUri().equals(b.toUri());
+            }
+            return super.isSameFile(a, b);
+        }
+
+        Map<String, byte[]> classesOf(SourceUnit unit) {
+            var classes = new HashMap<String, byte[]>();
+            synchronized (outputs) {
+                outputs.stream()
+                    .filter(output -> output.sibling == unit && output.getKind() == JavaFileObject.Kind.CLASS && output.bytes != null)
+                    .forEach(output -> classes.put(output.binaryName, output.bytes));
+            }
+            return classes;
+        }
+
+        private static boolean isInPackage(String binaryName, String packageName, boolean recurse) {
+            var lastDot = binaryName.lastIndexOf('.');
+            var classPackage = lastDot < 0 ? "" : binaryName.substring(0, lastDot);
+            return classPackage.equals(packageName) || recurse && classPackage.startsWith(packageName + ".");
+        }
+    }
+}
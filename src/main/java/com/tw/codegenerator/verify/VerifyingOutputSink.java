@@ -0,0 +1,46 @@
+package com.tw.codegenerator.verify;
+
+import com.tw.codegenerator.output.OutputSink;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * Forwards every write to the delegate and keeps the Java sources, so everything a generation emitted can be
+ * compiled afterwards with {@link #verify()}.
+ */
+public class VerifyingOutputSink implements OutputSink {
+
+    private final OutputSink delegate;
+
+    private final GeneratedSourceCompiler compiler;
+
+    private final Map<String, String> sources = new ConcurrentSkipListMap<>();
+
+    public VerifyingOutputSink(OutputSink delegate, GeneratedSourceCompiler compiler) {
+        this.delegate = delegate;
+        this.compiler = compiler;
+    }
+
+    @Override
+    public void write(String relativePath, String content) {
+        if (relativePath.endsWith(".java")) {
+            sources.put(relativePath, content);
+        }
+        delegate.write(relativePath, content);
+    }
+
+    @Override
+    public void flush() {
+        delegate.flush();
+    }
+
+    @Override
+    public void close() {
+        delegate.close();
+    }
+
+    public CompilationReport verify() {
+        return compiler.verify(sources);
+    }
+}
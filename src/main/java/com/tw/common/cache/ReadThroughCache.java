@@ -0,0 +1,149 @@
+package com.tw.common.cache;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+
+/**
+ * In-process cache in front of a loader, bounded by size with least recently used eviction and by time to live.
+ * <p>
+ * Meters, tagged with {@code cache} = name like the ones of Spring's cache metrics:
+ * <ul>
+ *     <li>{@code cache.gets} counters, tagged {@code result} = {@code hit} or {@code miss}</li>
+ *     <li>{@code cache.evictions} counter of entries dropped for size or age</li>
+ *     <li>{@code cache.size} gauge</li>
+ * </ul>
+ * Loads run outside the lock, one per key at a time, concurrent misses of a key wait for the load in flight. A load
+ * that overlaps an {@link #invalidate} of its key is returned but not cached, so that a value read before a write
+ * committed does not outlive the invalidation of that write.
+ */
+public class ReadThroughCache<K, V> {
+
+    private record Entry<V>(V value, long expiresAt) {
+    }
+
+    private final long ttlNanos;
+
+    private final LongSupplier ticker;
+
+    private final Map<K, Entry<V>> entries;
+
+    /**
+     * Loads in flight by key, an invalidation drops the load of its key so that its value is not cached.
+     */
+    private final Map<K, CompletableFuture<V>> loads = new HashMap<>();
+
+    private final Counter hits;
+
+    private final Counter misses;
+
+    private final Counter evictions;
+
+    public ReadThroughCache(String name, int maximumSize, Duration ttl, MeterRegistry registry) {
+        this(name, maximumSize, ttl, registry, System::nanoTime);
+    }
+
+    /**
+     * @param ticker current time in nanoseconds, like {@link System#nanoTime()}
+     */
+    ReadThroughCache(String name, int maximumSize, Duration ttl, MeterRegistry registry, LongSupplier ticker) {
+        if (maximumSize < 1) {
+            throw new IllegalArgumentException("Maximum size must be positive, but is " + maximumSize);
+        }
+        this.ttlNanos = ttl.toNanos();
+        this.ticker = ticker;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, Entry<V>> eldest) {
+                var evict = size() > maximumSize;
+                if (evict) {
+                    evictions.increment();
+                }
+                return evict;
+            }
+        };
+        this.hits = Counter.builder("cache.gets").tag("cache", name).tag("result", "hit").register(registry);
+        this.misses = Counter.builder("cache.gets").tag("cache", name).tag("result", "miss").register(registry);
+        this.evictions = Counter.builder("cache.evictions").tag("cache", name).register(registry);
+        Gauge.builder("cache.size", this, ReadThroughCache::size).tag("cache", name).register(registry);
+    }
+
+    /**
+     * @param loader called on a miss, nothing is cached when it throws
+     */
+    public V get(K key, Function<? super K, ? extends V> loader) {
+        CompletableFuture<V> load;
+        boolean loading;
+        synchronized (this) {
+            var entry = entries.get(key);
+            if (entry != null && entry.expiresAt() - ticker.getAsLong() > 0) {
+                hits.increment();
+                return entry.value();
+            }
+            if (entry != null) {
+                entries.remove(key);
+                evictions.increment();
+            }
+            misses.increment();
+            load = loads.get(key);
+            loading = load == null;
+            if (loading) {
+                load = new CompletableFuture<>();
+                loads.put(key, load);
+            }
+        }
+        if (!loading) {
+            return await(load);
+        }
+
+        V value;
+        try {
+            value = loader.apply(key);
+        } catch (RuntimeException | Error e) {
+            synchronized (this) {
+                loads.remove(key, load);
+            }
+            load.completeExceptionally(e);
+            throw e;
+        }
+        synchronized (this) {
+            if (loads.remove(key, load) && value != null) {
+                entries.put(key, new Entry<>(value, ticker.getAsLong() + ttlNanos));
+            }
+        }
+        load.complete(value);
+        return value;
+    }
+
+    public synchronized void invalidate(K key) {
+        loads.remove(key);
+        entries.remove(key);
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    private static <V> V await(CompletableFuture<V> load) {
+        try {
+            return load.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            if (e.getCause() instanceof Error cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+}
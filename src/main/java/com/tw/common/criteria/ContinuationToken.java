@@ -0,0 +1,87 @@
+package com.tw.common.criteria;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.experimental.UtilityClass;
+import org.springframework.beans.BeanWrapperImpl;
+import org.springframework.beans.NullValueInNestedPathException;
+import org.springframework.data.domain.Sort;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+
+/**
+ * Opaque token holding the sort keys of the last row of a {@link KeysetSlice}, base64url encoded JSON.
+ * Clients pass it back unchanged to get the next page.
+ */
+@UtilityClass
+public class ContinuationToken {
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    private record Body(List<String> keys, List<String> values) {
+    }
+
+    /**
+     * A {@code null} sort key is kept as {@code null}, the next page then starts after the {@code null} rows of the
+     * key, see {@link Keyset}.
+     *
+     * @throws IllegalStateException when a sort key of {@code row} without a null handling is {@code null}
+     */
+    public static String of(Sort sort, Object row) {
+        var keys = new ArrayList<String>();
+        var values = new ArrayList<String>();
+        var wrapper = new BeanWrapperImpl(row);
+        for (Sort.Order order : sort) {
+            var value = valueOf(wrapper, order.getProperty());
+            if (value == null && order.getNullHandling() == Sort.NullHandling.NATIVE) {
+                throw new IllegalStateException("Sort key %s of %s is null, but the sort does not tell where null keys go."
+                    .formatted(order.getProperty(), row.getClass().getSimpleName()));
+            }
+            keys.add(order.getProperty());
+            values.add(value == null ? null : value instanceof Enum<?> constant ? constant.name() : value.toString());
+        }
+        try {
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(OBJECT_MAPPER.writeValueAsBytes(new Body(keys, values)));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Can not encode continuation token", e);
+        }
+    }
+
+    /**
+     * A key behind a {@code null} association is {@code null}, like the left join of the association in the query.
+     */
+    private static Object valueOf(BeanWrapperImpl wrapper, String property) {
+        try {
+            return wrapper.getPropertyValue(property);
+        } catch (NullValueInNestedPathException e) {
+            return null;
+        }
+    }
+
+    /**
+     * @return the values of the sort keys, in the order of {@code sort}, {@code null} for a {@code null} key
+     * @throws IllegalArgumentException when the token is malformed or was issued for another sort
+     */
+    public static List<String> decode(String token, Sort sort) {
+        Body body;
+        try {
+            body = OBJECT_MAPPER.readValue(Base64.getUrlDecoder().decode(token.getBytes(StandardCharsets.US_ASCII)), Body.class);
+        } catch (Exception e) {
+            throw new IllegalArgumentException("Malformed continuation token " + token, e);
+        }
+        var keys = sort.stream().map(Sort.Order::getProperty).toList();
+        if (!keys.equals(body.keys()) || body.values() == null || body.values().size() != keys.size()) {
+            throw new IllegalArgumentException("Continuation token was issued for sort %s, not %s".formatted(body.keys(), keys));
+        }
+        var index = 0;
+        for (Sort.Order order : sort) {
+            if (body.values().get(index++) == null && order.getNullHandling() == Sort.NullHandling.NATIVE) {
+                throw new IllegalArgumentException("Continuation token has no value of sort key " + order.getProperty());
+            }
+        }
+        return body.values();
+    }
+}
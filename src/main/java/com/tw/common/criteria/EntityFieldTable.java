@@ -0,0 +1,117 @@
+package com.tw.common.criteria;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.ParameterizedType;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Condition field names of one entity class resolved to where they live, built once per class by reflection and
+ * only read afterwards.
+ * <p>
+ * A name is a field of the entity itself or, failing that, of the element type of one of its collections, e.g.
+ * {@code productName} of {@code orderItems}. Fields of super classes count as well.
+ */
+final class EntityFieldTable {
+
+    private static final Map<Class<?>, EntityFieldTable> TABLES = new ConcurrentHashMap<>();
+
+    /**
+     * @param collection collection field of the entity holding the field, {@code null} for a field of the entity
+     */
+    record EntityField(String collection, String attribute, Class<?> javaType) {
+
+        boolean isChild() {
+            return collection != null;
+        }
+    }
+
+    private final Class<?> entityClass;
+
+    private final Map<String, EntityField> fields;
+
+    private EntityFieldTable(Class<?> entityClass, Map<String, EntityField> fields) {
+        this.entityClass = entityClass;
+        this.fields = fields;
+    }
+
+    static EntityFieldTable of(Class<?> entityClass) {
+        return TABLES.computeIfAbsent(entityClass, EntityFieldTable::build);
+    }
+
+    /**
+     * @throws IllegalArgumentException when neither the entity nor one of its collections has the field
+     */
+    EntityField resolve(String fieldName) {
+        var field = fields.get(fieldName);
+        if (field == null) {
+            throw new IllegalArgumentException("Can not find field %s of %s".formatted(fieldName, entityClass.getSimpleName()));
+        }
+        return field;
+    }
+
+    /**
+     * Fields along a property path of the entity, e.g. {@code address.city}, every segment a field of the type before.
+     * A path does not go through a collection, the rows of the entity would be repeated per element.
+     *
+     * @throws IllegalArgumentException when a segment is no such field or follows a collection
+     */
+    List<EntityField> pathOf(String path) {
+        var segments = new ArrayList<EntityField>();
+        Class<?> type = entityClass;
+        for (String segment : path.split("\\.")) {
+            if (Collection.class.isAssignableFrom(type)) {
+                throw new IllegalArgumentException("Property path %s of %s goes through a collection".formatted(path, entityClass.getSimpleName()));
+            }
+            var field = of(type).resolve(segment);
+            if (field.isChild()) {
+                throw new IllegalArgumentException("Can not find field %s of %s".formatted(segment, type.getSimpleName()));
+            }
+            segments.add(field);
+            type = field.javaType();
+        }
+        return segments;
+    }
+
+    /**
+     * Type of a property path of the entity, see {@link #pathOf}.
+     */
+    Class<?> typeOf(String path) {
+        var segments = pathOf(path);
+        return segments.get(segments.size() - 1).javaType();
+    }
+
+    private static EntityFieldTable build(Class<?> entityClass) {
+        var mainFields = new HashMap<String, EntityField>();
+        var childFields = new HashMap<String, EntityField>();
+        for (Field field : fieldsOf(entityClass)) {
+            mainFields.putIfAbsent(field.getName(), new EntityField(null, field.getName(), field.getType()));
+            if (Collection.class.isAssignableFrom(field.getType())
+                    && field.getGenericType() instanceof ParameterizedType collectionType
+                    && collectionType.getActualTypeArguments()[0] instanceof Class<?> elementClass) {
+                for (Field childField : fieldsOf(elementClass)) {
+                    childFields.put(childField.getName(), new EntityField(field.getName(), childField.getName(), childField.getType()));
+                }
+            }
+        }
+        childFields.putAll(mainFields);
+        return new EntityFieldTable(entityClass, Map.copyOf(childFields));
+    }
+
+    private static Collection<Field> fieldsOf(Class<?> clazz) {
+        var fields = new ArrayList<Field>();
+        for (Class<?> current = clazz; current != null && current != Object.class; current = current.getSuperclass()) {
+            for (Field field : current.getDeclaredFields()) {
+                if (!Modifier.isStatic(field.getModifiers())) {
+                    fields.add(field);
+                }
+            }
+        }
+        return fields;
+    }
+}
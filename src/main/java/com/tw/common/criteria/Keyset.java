@@ -0,0 +1,54 @@
+package com.tw.common.criteria;
+
+import org.springframework.data.domain.Sort;
+
+/**
+ * Keyset (seek) pagination: the next page is selected by the sort keys of the last row of the previous page instead
+ * of an offset, so every page costs the same however deep it is.
+ * <p>
+ * The sort always ends with {@code id}, in the direction of the last sort key, so that rows with equal sort keys
+ * still have a total order. Sort keys may be {@code null}, so that the position of the {@code null} rows does not
+ * depend on the database, sort keys without a null handling sort them last. Sort keys can not ignore case: the
+ * order would compare upper cased keys while the seek predicate compares the keys as they are.
+ *
+ * @param continuationToken {@code null} for the first page, otherwise {@link KeysetSlice#getContinuationToken()} of
+ *                          the previous page
+ */
+public record Keyset(Sort sort, int size, String continuationToken) {
+
+    public static final String TIE_BREAKER = "id";
+
+    public Keyset {
+        if (size < 1) {
+            throw new IllegalArgumentException("Keyset size must be positive but was " + size);
+        }
+        for (Sort.Order order : sort == null ? Sort.unsorted() : sort) {
+            if (order.isIgnoreCase()) {
+                throw new IllegalArgumentException("Keyset can not sort %s ignoring case".formatted(order.getProperty()));
+            }
+        }
+        sort = withTieBreaker(withNullHandling(sort == null ? Sort.unsorted() : sort));
+    }
+
+    public static Keyset first(Sort sort, int size) {
+        return new Keyset(sort, size, null);
+    }
+
+    public Keyset after(String continuationToken) {
+        return new Keyset(sort, size, continuationToken);
+    }
+
+    private static Sort withNullHandling(Sort sort) {
+        return Sort.by(sort.stream()
+            .map(order -> order.getNullHandling() == Sort.NullHandling.NATIVE ? order.nullsLast() : order)
+            .toList());
+    }
+
+    private static Sort withTieBreaker(Sort sort) {
+        if (sort.getOrderFor(TIE_BREAKER) != null) {
+            return sort;
+        }
+        var direction = sort.stream().reduce((first, second) -> second).map(Sort.Order::getDirection).orElse(Sort.Direction.ASC);
+        return sort.and(Sort.by(direction, TIE_BREAKER));
+    }
+}
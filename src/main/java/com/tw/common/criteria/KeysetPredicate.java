@@ -0,0 +1,80 @@
+package com.tw.common.criteria;
+
+import org.springframework.data.domain.Sort;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * Rows after a continuation token in the order of a keyset sort, for sort keys {@code a, b, id}:
+ * {@code a > :a or (a = :a and b > :b) or (a = :a and b = :b and id > :id)}, with {@code <} for descending keys.
+ * <p>
+ * Keys with a null handling may be {@code null}. Sorting nulls last, a {@code null} key is after any value and
+ * nothing is after a {@code null} value, sorting nulls first, any value is after a {@code null} value. Equal to a
+ * {@code null} value is {@code is null}.
+ * <p>
+ * Built once here and rendered by {@link Terms}, as JPQL text by {@link QueryTemplate} and as a criteria predicate by
+ * {@link SpecificationBuilder}, so that both seek the same rows.
+ */
+final class KeysetPredicate {
+
+    /**
+     * Predicates on the sort key at an index of the sort and its value in the continuation token.
+     */
+    interface Terms<P> {
+
+        /**
+         * Key after the value in the direction of its order.
+         */
+        P after(int key, boolean ascending);
+
+        P equal(int key);
+
+        P isNull(int key);
+
+        P isNotNull(int key);
+
+        P and(List<P> predicates);
+
+        P or(List<P> predicates);
+
+        /**
+         * Matches no row.
+         */
+        P none();
+    }
+
+    private KeysetPredicate() {
+    }
+
+    /**
+     * @param nullKeys indexes of the sort keys the continuation token has no value of
+     */
+    static <P> P of(Sort sort, BitSet nullKeys, Terms<P> terms) {
+        var alternatives = new ArrayList<P>();
+        var equalities = new ArrayList<P>();
+        var key = 0;
+        for (Sort.Order order : sort) {
+            var nullKey = nullKeys.get(key);
+            P next;
+            if (nullKey) {
+                // only the rows with a key sort after null rows placed first, nothing sorts after null rows placed last
+                next = order.getNullHandling() == Sort.NullHandling.NULLS_FIRST ? terms.isNotNull(key) : null;
+            } else {
+                next = terms.after(key, order.isAscending());
+                if (order.getNullHandling() == Sort.NullHandling.NULLS_LAST) {
+                    next = terms.or(List.of(next, terms.isNull(key)));
+                }
+            }
+            if (next != null) {
+                var after = new ArrayList<>(equalities);
+                after.add(next);
+                alternatives.add(terms.and(after));
+            }
+            equalities.add(nullKey ? terms.isNull(key) : terms.equal(key));
+            key++;
+        }
+        return alternatives.isEmpty() ? terms.none() : terms.or(alternatives);
+    }
+}
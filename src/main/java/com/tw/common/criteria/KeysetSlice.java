@@ -0,0 +1,30 @@
+package com.tw.common.criteria;
+
+import lombok.Getter;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.SliceImpl;
+
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * One page of a {@link Keyset} query, {@link #getContinuationToken()} selects the next one.
+ */
+@Getter
+public class KeysetSlice<T> extends SliceImpl<T> {
+
+    /**
+     * {@code null} on the last page.
+     */
+    private final String continuationToken;
+
+    public KeysetSlice(List<T> content, Pageable pageable, boolean hasNext, String continuationToken) {
+        super(content, pageable, hasNext);
+        this.continuationToken = continuationToken;
+    }
+
+    @Override
+    public <U> KeysetSlice<U> map(Function<? super T, ? extends U> converter) {
+        return new KeysetSlice<>(getConvertedContent(converter), getPageable(), hasNext(), continuationToken);
+    }
+}
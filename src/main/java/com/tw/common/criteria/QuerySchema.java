@@ -20,6 +20,11 @@ public class QuerySchema {
 
     private Pageable pageable = PageRequest.of(0, Integer.MAX_VALUE);
 
+    /**
+     * Set for keyset pagination, see {@link SpecificationQueries#findKeysetSlice}.
+     */
+    private Keyset keyset;
+
     public QuerySchema(Map<String, Object> queryParams) {
         queryParams.forEach((fieldName, value) -> conditions.add(new Condition(fieldName, value)));
     }
@@ -53,6 +58,17 @@ public class QuerySchema {
         this.conditions = conditions;
     }
 
+    public QuerySchema(Keyset keyset, List<Condition> conditions) {
+        this(AND, keyset, conditions);
+    }
+
+    public QuerySchema(LogicalOperator logicalOperator, Keyset keyset, List<Condition> conditions) {
+        this.logicalOperator = logicalOperator;
+        this.keyset = keyset;
+        this.pageable = PageRequest.of(0, keyset.size(), keyset.sort());
+        this.conditions = conditions;
+    }
+
     public QuerySchema(LogicalOperator logicalOperator, Condition... conditions) {
         this.logicalOperator = logicalOperator;
         this.conditions = List.of(conditions);
@@ -63,4 +79,15 @@ public class QuerySchema {
         this.pageable = pageable;
         this.conditions = List.of(conditions);
     }
+
+    /**
+     * The conditions in the order of their {@link #getShape() shape}.
+     */
+    public List<Condition> getNormalizedConditions() {
+        return conditions.stream().sorted(QueryShape.CONDITION_ORDER).toList();
+    }
+
+    public QueryShape getShape() {
+        return QueryShape.of(logicalOperator, getNormalizedConditions());
+    }
 }
@@ -0,0 +1,31 @@
+package com.tw.common.criteria;
+
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * What a {@link QuerySchema} queries without the values, two schemas of the same shape run the same query string.
+ * Conditions are in {@link #CONDITION_ORDER}, so the order they were added in does not matter.
+ *
+ * @param conditions in the order of {@link QuerySchema#getNormalizedConditions()}
+ */
+public record QueryShape(LogicalOperator logicalOperator, List<ConditionShape> conditions) {
+
+    static final Comparator<Condition> CONDITION_ORDER = Comparator.comparing(Condition::getFieldName)
+        .thenComparing(Condition::getComparatorOperator)
+        .thenComparing(condition -> condition.getValue() == null);
+
+    static QueryShape of(LogicalOperator logicalOperator, List<Condition> normalizedConditions) {
+        return new QueryShape(logicalOperator, normalizedConditions.stream().map(ConditionShape::of).toList());
+    }
+
+    /**
+     * @param nullValue {@code EQUAL} and {@code NOT_EQUAL} to {@code null} become {@code is null} and {@code is not null}
+     */
+    public record ConditionShape(String fieldName, ComparatorOperator comparatorOperator, boolean nullValue) {
+
+        static ConditionShape of(Condition condition) {
+            return new ConditionShape(condition.getFieldName(), condition.getComparatorOperator(), condition.getValue() == null);
+        }
+    }
+}
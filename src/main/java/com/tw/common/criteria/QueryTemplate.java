@@ -0,0 +1,288 @@
+package com.tw.common.criteria;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.TypedQuery;
+import org.springframework.data.domain.Sort;
+
+import java.beans.ConstructorProperties;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.regex.Pattern;
+
+/**
+ * JPQL of one {@link QueryShape} with named parameters in place of the values, built once per shape by
+ * {@link SpecificationBuilder#template} and only read afterwards.
+ * <p>
+ * Every query of a shape runs the same query string, so that the query plan cache of Hibernate and the prepared
+ * statement cache of the driver are hit instead of a criteria tree being built and translated per query.
+ */
+final class QueryTemplate {
+
+    private static final String ALIAS = "e";
+
+    private static final Pattern PROPERTY = Pattern.compile("[A-Za-z_$][\\w$]*(\\.[A-Za-z_$][\\w$]*)*");
+
+    private final String selectQuery;
+
+    private final String countQuery;
+
+    private final List<QueryShape.ConditionShape> conditions;
+
+    private final String[] parameters;
+
+    private final Class<?>[] keyTypes;
+
+    private QueryTemplate(String selectQuery, String countQuery, List<QueryShape.ConditionShape> conditions, Class<?>[] keyTypes) {
+        this.selectQuery = selectQuery;
+        this.countQuery = countQuery;
+        this.conditions = conditions;
+        this.parameters = new String[conditions.size()];
+        Arrays.setAll(parameters, index -> "p" + index);
+        this.keyTypes = keyTypes;
+    }
+
+    /**
+     * @param projectionClass class selected instead of the entity, {@code null} for the entity, see {@link #selection}
+     * @param nullKeys        indexes of the sort keys a continuation token of {@code sort} has no value of, {@code null}
+     *                        unless rows after a continuation token are queried
+     */
+    static QueryTemplate compile(Class<?> entityClass, Class<?> projectionClass, QueryShape shape, Sort sort, BitSet nullKeys) {
+        var fields = EntityFieldTable.of(entityClass);
+        var predicates = new ArrayList<String>();
+        // one subquery per collection, so that under AND one child has to match all of its conditions
+        var childPredicates = new LinkedHashMap<String, List<String>>();
+        for (int index = 0; index < shape.conditions().size(); index++) {
+            var condition = shape.conditions().get(index);
+            var field = fields.resolve(condition.fieldName());
+            if (!field.isChild()) {
+                predicates.add(predicate(ALIAS + "." + field.attribute(), condition, index));
+            } else {
+                childPredicates.computeIfAbsent(field.collection(), collection -> new ArrayList<>())
+                    .add(predicate(field.collection() + "_." + field.attribute(), condition, index));
+            }
+        }
+        childPredicates.forEach((collection, children) -> predicates.add("exists (select 1 from %s.%s %s_ where %s)"
+            .formatted(ALIAS, collection, collection, join(shape.logicalOperator(), children))));
+
+        var where = new StringBuilder();
+        if (!predicates.isEmpty() || shape.logicalOperator() == LogicalOperator.OR) {
+            where.append(" where (").append(predicates.isEmpty() ? "1 = 0" : join(shape.logicalOperator(), predicates)).append(')');
+        }
+        var countQuery = "select count(%s) from %s %s%s".formatted(ALIAS, entityName(entityClass), ALIAS, where);
+
+        var joins = new StringBuilder();
+        var sortPaths = sortPaths(fields, sort, joins);
+        var keyTypes = new Class<?>[0];
+        if (nullKeys != null) {
+            keyTypes = sort.stream().map(order -> fields.typeOf(order.getProperty())).toArray(Class<?>[]::new);
+            where.append(where.isEmpty() ? " where " : " and ").append(keysetPredicate(sort, sortPaths, nullKeys));
+        }
+        var selectQuery = "select %s from %s %s%s%s%s".formatted(selection(fields, projectionClass), entityName(entityClass), ALIAS, joins,
+            where, orderBy(sort, sortPaths));
+        return new QueryTemplate(selectQuery, countQuery, shape.conditions(), keyTypes);
+    }
+
+    String selectQuery() {
+        return selectQuery;
+    }
+
+    String countQuery() {
+        return countQuery;
+    }
+
+    /**
+     * @param normalizedConditions conditions of a schema of this shape, see {@link QuerySchema#getNormalizedConditions()}
+     */
+    <R> TypedQuery<R> bind(TypedQuery<R> query, List<Condition> normalizedConditions) {
+        for (int index = 0; index < conditions.size(); index++) {
+            var shape = conditions.get(index);
+            var condition = normalizedConditions.get(index);
+            var parameter = parameters[index];
+            var value = condition.getValue();
+            switch (shape.comparatorOperator()) {
+                case EQUAL, NOT_EQUAL -> {
+                    if (!shape.nullValue()) {
+                        query.setParameter(parameter, value);
+                    }
+                }
+                case LIKE -> query.setParameter(parameter, "%" + value + "%");
+                case EQUAL_IGNORE_CASE -> query.setParameter(parameter, value.toString().toUpperCase());
+                case LIKE_IGNORE_CASE -> query.setParameter(parameter, "%" + value.toString().toUpperCase() + "%");
+                case BETWEEN -> {
+                    query.setParameter(parameter, value);
+                    query.setParameter(parameter + "End", condition.getValueEnd());
+                }
+                case GREATER_THAN, LESS_THAN, IN -> query.setParameter(parameter, value);
+            }
+        }
+        return query;
+    }
+
+    /**
+     * @param keyValues values of a continuation token, for the select query of a keyset template, the {@code null}
+     *                  values have no parameter
+     */
+    <R> TypedQuery<R> bindKeys(TypedQuery<R> query, List<String> keyValues) {
+        for (int index = 0; index < keyTypes.length; index++) {
+            var value = keyValues.get(index);
+            if (value != null) {
+                query.setParameter("k" + index, SpecificationBuilder.toKeyValue(value, keyTypes[index]));
+            }
+        }
+        return query;
+    }
+
+    /**
+     * A projection is constructed from the entity fields named by the {@link ConstructorProperties} of its constructor,
+     * in their order, so only those columns are selected and nothing is hydrated into the persistence context.
+     */
+    private static String selection(EntityFieldTable fields, Class<?> projectionClass) {
+        if (projectionClass == null) {
+            return ALIAS;
+        }
+        var columns = Arrays.stream(projectionClass.getConstructors())
+            .map(constructor -> constructor.getAnnotation(ConstructorProperties.class))
+            .filter(Objects::nonNull)
+            .findFirst()
+            .orElseThrow(() -> new IllegalArgumentException("Projection %s has no constructor with @ConstructorProperties".formatted(projectionClass.getName())))
+            .value();
+        var paths = new ArrayList<String>(columns.length);
+        for (String column : columns) {
+            var field = fields.resolve(column);
+            if (field.isChild()) {
+                throw new IllegalArgumentException("Projection %s can not select %s of a collection".formatted(projectionClass.getName(), column));
+            }
+            paths.add(ALIAS + "." + field.attribute());
+        }
+        return "new %s(%s)".formatted(projectionClass.getName(), String.join(", ", paths));
+    }
+
+    private static String predicate(String path, QueryShape.ConditionShape condition, int index) {
+        var parameter = ":p" + index;
+        return switch (condition.comparatorOperator()) {
+            case EQUAL -> condition.nullValue() ? path + " is null" : path + " = " + parameter;
+            case NOT_EQUAL -> condition.nullValue() ? path + " is not null" : path + " <> " + parameter;
+            case LIKE -> path + " like " + parameter;
+            case EQUAL_IGNORE_CASE -> "upper(" + path + ") = " + parameter;
+            case BETWEEN -> path + " between " + parameter + " and " + parameter + "End";
+            case GREATER_THAN -> path + " > " + parameter;
+            case LESS_THAN -> path + " < " + parameter;
+            case IN -> path + " in " + parameter;
+            case LIKE_IGNORE_CASE -> "upper(" + path + ") like " + parameter;
+        };
+    }
+
+    /**
+     * Sort properties as paths of the select query. Associations on the way are left joined, the implicit join of a
+     * path would be an inner join and drop the rows without the association from sorted pages.
+     *
+     * @param joins the join clauses are appended to
+     * @throws IllegalArgumentException when a sort property is no property path of the entity
+     */
+    private static Map<String, String> sortPaths(EntityFieldTable fields, Sort sort, StringBuilder joins) {
+        var aliases = new HashMap<String, String>();
+        var paths = new HashMap<String, String>();
+        for (Sort.Order order : sort) {
+            var segments = fields.pathOf(property(order));
+            var path = ALIAS;
+            for (int index = 0; index < segments.size(); index++) {
+                var segment = segments.get(index);
+                path = path + "." + segment.attribute();
+                if (index < segments.size() - 1 && segment.javaType().isAnnotationPresent(Entity.class)) {
+                    path = aliases.computeIfAbsent(path, association -> {
+                        var alias = "j" + aliases.size();
+                        joins.append(" left join ").append(association).append(' ').append(alias);
+                        return alias;
+                    });
+                }
+            }
+            paths.put(order.getProperty(), path);
+        }
+        return paths;
+    }
+
+    /**
+     * See {@link KeysetPredicate}, the token values are bound to {@code :k0, :k1, ...}.
+     */
+    private static String keysetPredicate(Sort sort, Map<String, String> sortPaths, BitSet nullKeys) {
+        var paths = sort.stream().map(order -> sortPaths.get(order.getProperty())).toList();
+        return KeysetPredicate.of(sort, nullKeys, new KeysetPredicate.Terms<String>() {
+            @Override
+            public String after(int key, boolean ascending) {
+                return paths.get(key) + (ascending ? " > :k" : " < :k") + key;
+            }
+
+            @Override
+            public String equal(int key) {
+                return paths.get(key) + " = :k" + key;
+            }
+
+            @Override
+            public String isNull(int key) {
+                return paths.get(key) + " is null";
+            }
+
+            @Override
+            public String isNotNull(int key) {
+                return paths.get(key) + " is not null";
+            }
+
+            @Override
+            public String and(List<String> predicates) {
+                return "(" + String.join(" and ", predicates) + ")";
+            }
+
+            @Override
+            public String or(List<String> predicates) {
+                return "(" + String.join(" or ", predicates) + ")";
+            }
+
+            @Override
+            public String none() {
+                return "1 = 0";
+            }
+        });
+    }
+
+    private static String orderBy(Sort sort, Map<String, String> sortPaths) {
+        if (sort.isUnsorted()) {
+            return "";
+        }
+        var orders = new ArrayList<String>();
+        for (Sort.Order order : sort) {
+            var path = sortPaths.get(order.getProperty());
+            var expression = (order.isIgnoreCase() ? "upper(" + path + ")" : path) + (order.isAscending() ? " asc" : " desc");
+            orders.add(switch (order.getNullHandling()) {
+                case NATIVE -> expression;
+                case NULLS_FIRST -> expression + " nulls first";
+                case NULLS_LAST -> expression + " nulls last";
+            });
+        }
+        return " order by " + String.join(", ", orders);
+    }
+
+    /**
+     * Sort properties come from requests and end up in the query string, anything but a property path is refused.
+     */
+    private static String property(Sort.Order order) {
+        if (!PROPERTY.matcher(order.getProperty()).matches()) {
+            throw new IllegalArgumentException("Invalid sort property " + order.getProperty());
+        }
+        return order.getProperty();
+    }
+
+    private static String join(LogicalOperator logicalOperator, List<String> predicates) {
+        return String.join(logicalOperator == LogicalOperator.AND ? " and " : " or ", predicates);
+    }
+
+    private static String entityName(Class<?> entityClass) {
+        var entity = entityClass.getAnnotation(Entity.class);
+        return entity == null || entity.name().isEmpty() ? entityClass.getSimpleName() : entity.name();
+    }
+}
@@ -1,104 +1,226 @@
 package com.tw.common.criteria;
 
+import jakarta.persistence.Entity;
 import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.From;
+import jakarta.persistence.criteria.JoinType;
 import jakarta.persistence.criteria.Path;
 import jakarta.persistence.criteria.Predicate;
 import jakarta.persistence.criteria.Root;
 import lombok.experimental.UtilityClass;
-import org.apache.commons.lang3.StringUtils;
+import org.springframework.core.convert.support.DefaultConversionService;
+import org.springframework.data.domain.Sort;
 import org.springframework.data.jpa.domain.Specification;
 
-import java.lang.reflect.Field;
-import java.lang.reflect.ParameterizedType;
-import java.util.Arrays;
+import java.time.temporal.Temporal;
+import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 
 @UtilityClass
 public class SpecificationBuilder {
 
+    static final int MAX_TEMPLATES = 1024;
+
+    /**
+     * Templates per entity and shape. Sorts come from requests, so besides their properties being checked against the
+     * entity on compilation, the number of templates is capped.
+     */
+    private static final TemplateCache<TemplateKey, QueryTemplate> TEMPLATES = new TemplateCache<>(MAX_TEMPLATES);
+
+    /**
+     * A condition on a field of child collection, e.g. {@code productName} of {@code orderItems}, is checked with a
+     * correlated {@code exists} subquery instead of a join, so the root rows are neither multiplied nor need a
+     * {@code distinct}.
+     */
+    private record ChildCondition(EntityFieldTable.EntityField field, Condition condition) {
+    }
+
+    private record TemplateKey(Class<?> entityClass, Class<?> projectionClass, QueryShape shape, Sort sort, BitSet nullKeys) {
+    }
+
     public static <T> Specification<T> build(Condition condition) {
-        return (root, query, criteriaBuilder) -> {
-            query.distinct(true);
-            return getPredicate(condition, criteriaBuilder, getPath(condition.getFieldName(), root));
-        };
+        return (root, query, criteriaBuilder) -> getPredicate(List.of(condition), LogicalOperator.AND, root, query, criteriaBuilder);
     }
 
+    /**
+     * @throws IllegalArgumentException on {@link Specification#toPredicate} when the sort of {@code querySchema} goes
+     *                                  through a collection, the join of the sort would repeat the root rows, and a
+     *                                  {@code distinct} select can not be ordered by a column it does not select
+     */
     public static <T> Specification<T> build(QuerySchema querySchema) {
 
         return (root, query, criteriaBuilder) -> {
-            query.distinct(true);
-
-            var predicates = querySchema.getConditions().stream()
-                    .map(condition -> getPredicate(condition, criteriaBuilder, getPath(condition.getFieldName(), root)))
-                    .toList();
+            var fields = EntityFieldTable.of(root.getJavaType());
+            if (querySchema.getPageable() != null) {
+                querySchema.getPageable().getSort().forEach(order -> fields.pathOf(order.getProperty()));
+            }
 
-            return switch (querySchema.getLogicalOperator()) {
-                case AND -> criteriaBuilder.and(predicates.toArray(Predicate[]::new));
-                case OR -> criteriaBuilder.or(predicates.toArray(Predicate[]::new));
-            };
+            var predicate = getPredicate(querySchema.getConditions(), querySchema.getLogicalOperator(), root, query, criteriaBuilder);
+            var keyset = querySchema.getKeyset();
+            if (keyset == null || keyset.continuationToken() == null) {
+                return predicate;
+            }
+            return criteriaBuilder.and(predicate, getKeysetPredicate(keyset, criteriaBuilder, root));
         };
     }
 
-    private <E> Path<?> getPath(String fieldName, Root<E> root) {
-        fieldName = getFieldName(fieldName, root);
-
-        if (fieldName.contains(".")) {
-            var tableName = fieldName.split("\\.")[0];
-            var subFieldName = fieldName.split("\\.")[1];
-
-            var fieldAsPath = root.get(tableName);
-            if (!Collection.class.isAssignableFrom(fieldAsPath.getJavaType())) {
-                throw new IllegalArgumentException("Field %s is not type of Collection.".formatted(fieldName));
-            }
+    /**
+     * JPQL template of queries of {@code shape}, compiled on first use.
+     *
+     * @param projectionClass class selected instead of the entity, {@code null} for the entity
+     * @param nullKeys        indexes of the sort keys a continuation token of {@code sort} has no value of, {@code null}
+     *                        unless rows after a continuation token are queried, see {@link #nullKeys}
+     */
+    static QueryTemplate template(Class<?> entityClass, Class<?> projectionClass, QueryShape shape, Sort sort, BitSet nullKeys) {
+        return TEMPLATES.get(new TemplateKey(entityClass, projectionClass, shape, sort, nullKeys),
+                key -> QueryTemplate.compile(key.entityClass(), key.projectionClass(), key.shape(), key.sort(), key.nullKeys()));
+    }
 
-            return root.getJoins().stream()
-                    .filter(join -> StringUtils.equals(join.getAttribute().getName(), tableName))
-                    .findFirst()
-                    .orElseGet(() -> root.join(tableName))
-                    .get(subFieldName);
-        } else {
-            return root.get(fieldName);
+    /**
+     * @param keyValues values of a continuation token, see {@link ContinuationToken#decode}
+     */
+    static BitSet nullKeys(List<String> keyValues) {
+        var nullKeys = new BitSet(keyValues.size());
+        for (int index = 0; index < keyValues.size(); index++) {
+            nullKeys.set(index, keyValues.get(index) == null);
         }
+        return nullKeys;
     }
 
-    private static <E> String getFieldName(String fieldName, Root<E> root) {
-        Class<? extends E> clazz = root.getJavaType();
+    static int templateCount() {
+        return TEMPLATES.size();
+    }
 
-        if (notMainTableField(fieldName, clazz)) {
-            var mainTableFieldName = getMainTableFieldName(fieldName, clazz);
-            return mainTableFieldName + "." + fieldName;
+    /**
+     * See {@link KeysetPredicate}.
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static <E> Predicate getKeysetPredicate(Keyset keyset, CriteriaBuilder criteriaBuilder, Root<E> root) {
+        var keyValues = ContinuationToken.decode(keyset.continuationToken(), keyset.sort());
+        var paths = new ArrayList<Path>();
+        var values = new ArrayList<Comparable>();
+        var fields = EntityFieldTable.of(root.getJavaType());
+        for (Sort.Order order : keyset.sort()) {
+            // associations are left joined like in QueryTemplate, an implicit inner join would drop rows
+            Path path = root;
+            var segments = fields.pathOf(order.getProperty());
+            for (int index = 0; index < segments.size(); index++) {
+                var attribute = segments.get(index).attribute();
+                var association = index < segments.size() - 1 && segments.get(index).javaType().isAnnotationPresent(Entity.class);
+                path = association && path instanceof From<?, ?> from ? from.join(attribute, JoinType.LEFT) : path.get(attribute);
+            }
+            var keyValue = keyValues.get(paths.size());
+            paths.add(path);
+            values.add(keyValue == null ? null : toKeyValue(keyValue, path.getJavaType()));
         }
-        return fieldName;
-    }
+        return KeysetPredicate.of(keyset.sort(), nullKeys(keyValues), new KeysetPredicate.Terms<Predicate>() {
+            @Override
+            public Predicate after(int key, boolean ascending) {
+                return ascending ? criteriaBuilder.greaterThan(paths.get(key), values.get(key))
+                    : criteriaBuilder.lessThan(paths.get(key), values.get(key));
+            }
+
+            @Override
+            public Predicate equal(int key) {
+                return criteriaBuilder.equal(paths.get(key), values.get(key));
+            }
+
+            @Override
+            public Predicate isNull(int key) {
+                return criteriaBuilder.isNull(paths.get(key));
+            }
+
+            @Override
+            public Predicate isNotNull(int key) {
+                return criteriaBuilder.isNotNull(paths.get(key));
+            }
+
+            @Override
+            public Predicate and(List<Predicate> predicates) {
+                return criteriaBuilder.and(predicates.toArray(Predicate[]::new));
+            }
+
+            @Override
+            public Predicate or(List<Predicate> predicates) {
+                return criteriaBuilder.or(predicates.toArray(Predicate[]::new));
+            }
 
-    private static <E> boolean notMainTableField(String fieldName, Class<? extends E> clazz) {
-        return Arrays.stream(clazz.getDeclaredFields()).noneMatch(field -> {
-            var isCollection = Collection.class.isAssignableFrom(field.getDeclaringClass());
-            return !isCollection && field.getName().equals(fieldName);
+            @Override
+            public Predicate none() {
+                return criteriaBuilder.disjunction();
+            }
         });
     }
 
-    private static <E> String getMainTableFieldName(String fieldName, Class<? extends E> clazz) {
-        String mainTableFieldName = null;
-
-        for (Field field : clazz.getDeclaredFields()) {
-            if (Collection.class.isAssignableFrom(field.getType())) {
-                var childFields = ((Class<?>) ((ParameterizedType) field.getGenericType()).getActualTypeArguments()[0])
-                        .getDeclaredFields();
-                for (Field childField : childFields) {
-                    if (childField.getName().equals(fieldName)) {
-                        mainTableFieldName = field.getName();
-                        break;
-                    }
-                }
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    static Comparable toKeyValue(String value, Class<?> type) {
+        if (type.isEnum()) {
+            return Enum.valueOf((Class<? extends Enum>) type, value);
+        }
+        if (Temporal.class.isAssignableFrom(type)) {
+            try {
+                return (Comparable) type.getMethod("parse", CharSequence.class).invoke(null, value);
+            } catch (ReflectiveOperationException e) {
+                throw new IllegalArgumentException("Can not parse %s as %s".formatted(value, type.getSimpleName()), e);
             }
         }
+        return (Comparable) DefaultConversionService.getSharedInstance().convert(value, type);
+    }
 
-        if (StringUtils.isEmpty(mainTableFieldName)) {
-            throw new IllegalArgumentException("Can not found field fieldName");
+    /**
+     * Conditions on the same collection share one subquery, so that under {@code AND} one child has to match all of
+     * them, like with the join before.
+     */
+    private static <E> Predicate getPredicate(List<Condition> conditions, LogicalOperator logicalOperator, Root<E> root,
+                                              CriteriaQuery<?> query, CriteriaBuilder criteriaBuilder) {
+        var fields = EntityFieldTable.of(root.getJavaType());
+        var predicates = new ArrayList<Predicate>(conditions.size());
+        Map<String, List<ChildCondition>> childConditions = null;
+        for (Condition condition : conditions) {
+            var field = fields.resolve(condition.getFieldName());
+            if (!field.isChild()) {
+                predicates.add(getPredicate(condition, criteriaBuilder, root.get(field.attribute())));
+                continue;
+            }
+            if (childConditions == null) {
+                childConditions = new LinkedHashMap<>();
+            }
+            childConditions.computeIfAbsent(field.collection(), collection -> new ArrayList<>()).add(new ChildCondition(field, condition));
+        }
+        if (childConditions != null) {
+            childConditions.forEach((collection, children) ->
+                    predicates.add(getExistsPredicate(collection, children, logicalOperator, root, query, criteriaBuilder)));
         }
 
-        return mainTableFieldName;
+        // joins added by other specifications still multiply rows
+        if (root.getJoins().stream().anyMatch(join -> join.getAttribute().isCollection())
+                || root.getFetches().stream().anyMatch(fetch -> fetch.getAttribute().isCollection())) {
+            query.distinct(true);
+        }
+        return combine(logicalOperator, predicates, criteriaBuilder);
+    }
+
+    private static <E> Predicate getExistsPredicate(String collection, List<ChildCondition> children, LogicalOperator logicalOperator,
+                                                    Root<E> root, CriteriaQuery<?> query, CriteriaBuilder criteriaBuilder) {
+        var subquery = query.subquery(Integer.class);
+        var child = subquery.correlate(root).join(collection);
+        var predicates = children.stream()
+                .map(childCondition -> getPredicate(childCondition.condition(), criteriaBuilder, child.get(childCondition.field().attribute())))
+                .toList();
+        subquery.select(criteriaBuilder.literal(1)).where(combine(logicalOperator, predicates, criteriaBuilder));
+        return criteriaBuilder.exists(subquery);
+    }
+
+    private static Predicate combine(LogicalOperator logicalOperator, List<Predicate> predicates, CriteriaBuilder criteriaBuilder) {
+        return switch (logicalOperator) {
+            case AND -> criteriaBuilder.and(predicates.toArray(Predicate[]::new));
+            case OR -> criteriaBuilder.or(predicates.toArray(Predicate[]::new));
+        };
     }
 
     @SuppressWarnings({"unchecked", "rawtypes"})
@@ -0,0 +1,101 @@
+package com.tw.common.criteria;
+
+import jakarta.persistence.EntityManager;
+import lombok.experimental.UtilityClass;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.data.support.PageableExecutionUtils;
+
+/**
+ * Runs a {@link QuerySchema} through the JPQL template of its {@link QueryShape}, so that queries differing only in
+ * values share one query string and only bind their values. Slices run no count query at all, one more row than the
+ * page size is fetched to tell whether there is a next page.
+ */
+@UtilityClass
+public class SpecificationQueries {
+
+    /**
+     * Page of {@code querySchema}, the count query is skipped when the page itself tells the total.
+     */
+    public static <T> Page<T> findPage(EntityManager entityManager, Class<T> entityClass, QuerySchema querySchema) {
+        var pageable = querySchema.getPageable();
+        var conditions = querySchema.getNormalizedConditions();
+        var template = SpecificationBuilder.template(entityClass, null, QueryShape.of(querySchema.getLogicalOperator(), conditions), pageable.getSort(), null);
+
+        var query = template.bind(entityManager.createQuery(template.selectQuery(), entityClass), conditions);
+        if (pageable.isPaged()) {
+            query.setFirstResult(Math.toIntExact(pageable.getOffset())).setMaxResults(pageable.getPageSize());
+        }
+        return PageableExecutionUtils.getPage(query.getResultList(), pageable,
+            () -> template.bind(entityManager.createQuery(template.countQuery(), Long.class), conditions).getSingleResult());
+    }
+
+    /**
+     * Page of {@code querySchema} selecting only the columns of {@code projectionClass}, see {@link QueryTemplate}.
+     *
+     * @param projectionClass class with a constructor annotated with {@link java.beans.ConstructorProperties}, each
+     *                        property naming a field of the entity
+     */
+    public static <E, P> Page<P> findProjections(EntityManager entityManager, Class<E> entityClass, Class<P> projectionClass,
+                                                 QuerySchema querySchema) {
+        var pageable = querySchema.getPageable();
+        var conditions = querySchema.getNormalizedConditions();
+        var template = SpecificationBuilder.template(entityClass, projectionClass, QueryShape.of(querySchema.getLogicalOperator(), conditions),
+            pageable.getSort(), null);
+
+        var query = template.bind(entityManager.createQuery(template.selectQuery(), projectionClass), conditions);
+        if (pageable.isPaged()) {
+            query.setFirstResult(Math.toIntExact(pageable.getOffset())).setMaxResults(pageable.getPageSize());
+        }
+        return PageableExecutionUtils.getPage(query.getResultList(), pageable,
+            () -> template.bind(entityManager.createQuery(template.countQuery(), Long.class), conditions).getSingleResult());
+    }
+
+    /**
+     * Offset page of {@code querySchema} that only knows whether a next page exists, not how many rows match.
+     *
+     * @throws IllegalArgumentException when {@code querySchema} is not paged
+     */
+    public static <T> Slice<T> findSlice(EntityManager entityManager, Class<T> entityClass, QuerySchema querySchema) {
+        var pageable = querySchema.getPageable();
+        if (pageable == null || pageable.isUnpaged()) {
+            throw new IllegalArgumentException("Query schema is not paged.");
+        }
+        var conditions = querySchema.getNormalizedConditions();
+        var template = SpecificationBuilder.template(entityClass, null, QueryShape.of(querySchema.getLogicalOperator(), conditions), pageable.getSort(), null);
+
+        var pageSize = pageable.getPageSize();
+        var rows = template.bind(entityManager.createQuery(template.selectQuery(), entityClass), conditions)
+            .setFirstResult(Math.toIntExact(pageable.getOffset()))
+            .setMaxResults(pageSize == Integer.MAX_VALUE ? pageSize : pageSize + 1)
+            .getResultList();
+        var hasNext = rows.size() > pageSize;
+        return new SliceImpl<>(hasNext ? rows.subList(0, pageSize) : rows, pageable, hasNext);
+    }
+
+    /**
+     * @throws IllegalArgumentException when {@code querySchema} has no {@link Keyset}
+     */
+    public static <T> KeysetSlice<T> findKeysetSlice(EntityManager entityManager, Class<T> entityClass, QuerySchema querySchema) {
+        var keyset = querySchema.getKeyset();
+        if (keyset == null) {
+            throw new IllegalArgumentException("Query schema has no keyset.");
+        }
+        var keyValues = keyset.continuationToken() == null ? null : ContinuationToken.decode(keyset.continuationToken(), keyset.sort());
+        var conditions = querySchema.getNormalizedConditions();
+        var template = SpecificationBuilder.template(entityClass, null, QueryShape.of(querySchema.getLogicalOperator(), conditions), keyset.sort(),
+            keyValues == null ? null : SpecificationBuilder.nullKeys(keyValues));
+
+        var query = template.bind(entityManager.createQuery(template.selectQuery(), entityClass), conditions);
+        if (keyValues != null) {
+            template.bindKeys(query, keyValues);
+        }
+        var rows = query.setMaxResults(keyset.size() + 1).getResultList();
+        var hasNext = rows.size() > keyset.size();
+        var content = hasNext ? rows.subList(0, keyset.size()) : rows;
+        var continuationToken = hasNext ? ContinuationToken.of(keyset.sort(), content.get(content.size() - 1)) : null;
+        return new KeysetSlice<>(content, PageRequest.of(0, keyset.size(), keyset.sort()), hasNext, continuationToken);
+    }
+}
@@ -0,0 +1,76 @@
+package com.tw.common.criteria;
+
+import java.util.Comparator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * Bounded cache read on every query. A hit is a lock free read of a {@link ConcurrentHashMap} plus a write of the
+ * entry's last use, values are computed outside of any lock.
+ * <p>
+ * Beyond {@code maximumSize} entries the least recently used eighth is evicted at once, under a lock only misses take,
+ * so that a full cache does not scan its entries on every miss. Two threads missing the same key may both compute the
+ * value, the first one is kept, values have to be interchangeable.
+ */
+final class TemplateCache<K, V> {
+
+    private static final class Entry<V> {
+
+        private final V value;
+
+        private volatile long lastUsed = System.nanoTime();
+
+        private Entry(V value) {
+            this.value = value;
+        }
+    }
+
+    private final int maximumSize;
+
+    private final Map<K, Entry<V>> entries = new ConcurrentHashMap<>();
+
+    private final Object evictionLock = new Object();
+
+    TemplateCache(int maximumSize) {
+        if (maximumSize < 1) {
+            throw new IllegalArgumentException("Maximum size must be positive, but is " + maximumSize);
+        }
+        this.maximumSize = maximumSize;
+    }
+
+    V get(K key, Function<? super K, ? extends V> compute) {
+        var entry = entries.get(key);
+        if (entry != null) {
+            entry.lastUsed = System.nanoTime();
+            return entry.value;
+        }
+        var computed = new Entry<V>(compute.apply(key));
+        var existing = entries.putIfAbsent(key, computed);
+        if (existing != null) {
+            return existing.value;
+        }
+        if (entries.size() > maximumSize) {
+            evict();
+        }
+        return computed.value;
+    }
+
+    int size() {
+        return entries.size();
+    }
+
+    private void evict() {
+        synchronized (evictionLock) {
+            var excess = entries.size() - (maximumSize - maximumSize / 8);
+            if (excess <= 0) {
+                return;
+            }
+            entries.entrySet().stream()
+                .map(entry -> Map.entry(entry.getKey(), entry.getValue().lastUsed))
+                .sorted(Map.Entry.comparingByValue(Comparator.naturalOrder()))
+                .limit(excess)
+                .forEach(entry -> entries.remove(entry.getKey()));
+        }
+    }
+}
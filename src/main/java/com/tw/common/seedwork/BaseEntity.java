@@ -8,11 +8,25 @@ import org.hibernate.annotations.UpdateTimestamp;
 import java.io.Serializable;
 import java.time.Instant;
 
+/**
+ * Ids come from the pooled sequence {@value #ID_SEQUENCE} shared by all entities rather than from identity columns,
+ * Hibernate can not batch inserts whose ids only come back from the insert. One sequence call reserves
+ * {@value #ID_ALLOCATION_SIZE} ids, the JDBC batch size of the generated adaptors, so a full batch costs one call.
+ * <p>
+ * Schemas created with identity columns keep them, ids are simply supplied on insert, they only need the sequence:
+ * {@code create sequence entity_id_seq start with <max id + 1> increment by 50}, see {@code ddl.sql}.
+ */
 @MappedSuperclass
 @Getter
 public abstract class BaseEntity {
+
+    public static final String ID_SEQUENCE = "entity_id_seq";
+
+    public static final int ID_ALLOCATION_SIZE = 50;
+
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = ID_SEQUENCE)
+    @SequenceGenerator(name = ID_SEQUENCE, sequenceName = ID_SEQUENCE, allocationSize = ID_ALLOCATION_SIZE)
     protected Long id;
 
     @CreationTimestamp
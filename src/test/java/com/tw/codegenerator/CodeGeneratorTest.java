@@ -1,8 +1,66 @@
 package com.tw.codegenerator;
 
 import com.tw.codegenerator.builder.DomainMetadataBuilder;
+import com.google.gson.Gson;
+import com.tw.codegenerator.incremental.GenerationManifest;
+import com.tw.codegenerator.incremental.GenerationWatcher;
 import com.tw.codegenerator.javapoet.*;
+import com.tw.codegenerator.metadata.Field;
+import com.tw.codegenerator.metadata.FieldType;
+import com.tw.codegenerator.metrics.GenerationMetrics;
+import com.tw.codegenerator.metrics.GenerationPhase;
+import com.tw.codegenerator.metrics.GenerationRunReport;
+import com.tw.codegenerator.output.AsyncOutputSink;
+import com.tw.codegenerator.output.FileSystemOutputSink;
+import com.tw.codegenerator.output.InMemoryOutputSink;
+import com.tw.codegenerator.output.NullOutputSink;
+import com.tw.codegenerator.pipeline.BoundedContext;
+import com.tw.codegenerator.pipeline.GenerationRequest;
+import com.tw.codegenerator.pipeline.LayerGenerationOrchestrator;
+import com.tw.codegenerator.pipeline.PipelineReport;
+import com.tw.codegenerator.server.GenerateSourcesRequest;
+import com.tw.codegenerator.server.GenerationResultStore;
+import com.tw.codegenerator.server.GenerationService;
+import com.tw.codegenerator.spec.OpenApiSpecRepository;
+import com.tw.codegenerator.spec.StreamingOpenApiSpec;
+import com.tw.codegenerator.spec.SymbolTable;
+import com.tw.codegenerator.utils.ContentHash;
+import com.tw.codegenerator.utils.OpenApiHelper;
+import com.tw.codegenerator.verify.GeneratedSourceCompiler;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.swagger.v3.oas.models.Components;
+import io.swagger.v3.oas.models.OpenAPI;
+import io.swagger.v3.oas.models.Operation;
+import io.swagger.v3.oas.models.PathItem;
+import io.swagger.v3.oas.models.Paths;
+import io.swagger.v3.oas.models.media.ObjectSchema;
+import io.swagger.v3.oas.models.media.Schema;
+import io.swagger.v3.oas.models.responses.ApiResponse;
+import io.swagger.v3.oas.models.responses.ApiResponses;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 class CodeGeneratorTest {
 
@@ -14,7 +72,377 @@ class CodeGeneratorTest {
         var domains = new DomainLayerGenerator(basePackage).generate(DomainMetadataBuilder.buildAll());
         new AppLayerGenerator(basePackage).generate(DomainMetadataBuilder.buildOrder(), openApiFilePath);
         new ResourceLayerGenerator(basePackage).generate(openApiFilePath);
-        new InfraLayerGeneratorV2(basePackage).generateByTypeSpec(domains);
+        new InfraLayerGeneratorV2(basePackage).generateBySummaries(domains);
+    }
+
+    @Test
+    void generateAllByPipeline() {
+        var request = new GenerationRequest(basePackage, DomainMetadataBuilder.buildAll(), openApiFilePath);
+        var report = new LayerGenerationOrchestrator().generate(request);
+
+        assertEquals(5, report.stages().size());
+    }
+
+    @Test
+    void generateAllIntoMemory() {
+        var sink = new InMemoryOutputSink();
+        var request = new GenerationRequest(basePackage, DomainMetadataBuilder.buildAll(), openApiFilePath);
+        new LayerGenerationOrchestrator(sink).generate(request);
+
+        assertTrue(sink.getFiles().containsKey("com/tw/capability/order/domain/entity/Order.java"));
+        assertTrue(sink.getFiles().containsKey("com/tw/capability/order/infra/jpa/entity/OrderEntity.java"));
+    }
+
+    @Test
+    void generateAllWithMetrics() {
+        var orchestrator = new LayerGenerationOrchestrator(new InMemoryOutputSink());
+        orchestrator.generate(new GenerationRequest(basePackage, DomainMetadataBuilder.buildAll(), openApiFilePath));
+
+        var report = orchestrator.getMetrics().report();
+        assertTrue(report.outputs().stream().anyMatch(output -> output.layer().equals("domain") && output.files() > 0));
+        assertTrue(report.phases().stream().anyMatch(phase -> phase.phase().equals("parse")));
+    }
+
+    @Test
+    void generateBoundedContexts() {
+        var domains = new ArrayList<>(DomainMetadataBuilder.buildAll());
+        domains.add(DomainMetadataBuilder.buildCatalog());
+        var context = new BoundedContext(basePackage, domains, openApiFilePath);
+        var requests = context.partition();
+
+        assertEquals(2, requests.size());
+        assertTrue(requests.get(0).owns("Money"));
+        assertFalse(requests.get(1).owns("Money"));
+
+        var sink = new InMemoryOutputSink();
+        var report = new LayerGenerationOrchestrator(sink).generateContexts(List.of(context));
+
+        assertEquals(9, report.stages().size());
+        assertTrue(sink.getFiles().containsKey("com/tw/capability/order/domain/entity/Catalog.java"));
+        assertTrue(sink.getFiles().containsKey("com/tw/capability/order/infra/jpa/entity/CatalogEntity.java"));
+    }
+
+    @Test
+    void regenerateResourcesOfEditedComponents(@TempDir Path workspace) throws IOException {
+        var openApiFile = workspace.resolve("Order.yaml");
+        try (var inputStream = getClass().getClassLoader().getResourceAsStream(openApiFilePath)) {
+            Files.copy(inputStream, openApiFile);
+        }
+        var manifestFile = workspace.resolve("manifest.json");
+        var request = new GenerationRequest(basePackage, DomainMetadataBuilder.buildAll(), openApiFile.toString());
+        var tagUnit = basePackage + "/Order/resource/Order";
+        var requestBodiesUnit = basePackage + "/Order/resource";
+
+        new LayerGenerationOrchestrator(ForkJoinPool.commonPool(), new OpenApiSpecRepository(), new FileSystemOutputSink(workspace.resolve("src")),
+            manifestFile).generate(request);
+        var before = GenerationManifest.read(manifestFile).units();
+
+        // Money is referenced by the paths and request bodies through the response and schemas only
+        Files.writeString(openApiFile, Files.readString(openApiFile).replace("    Money:\n      title: Money\n",
+            "    Money:\n      title: Money\n      description: Amount in a currency\n"));
+        new LayerGenerationOrchestrator(ForkJoinPool.commonPool(), new OpenApiSpecRepository(), new FileSystemOutputSink(workspace.resolve("src")),
+            manifestFile).generate(request);
+        var after = GenerationManifest.read(manifestFile).units();
+
+        assertNotEquals(before.get(tagUnit).inputHash(), after.get(tagUnit).inputHash());
+        assertNotEquals(before.get(requestBodiesUnit).inputHash(), after.get(requestBodiesUnit).inputHash());
+    }
+
+    @Test
+    void regenerateEditedOutputsAndSchemasOfTheAggregateOnly(@TempDir Path workspace) throws IOException {
+        var openApiFile = workspace.resolve("Order.yaml");
+        try (var inputStream = getClass().getClassLoader().getResourceAsStream(openApiFilePath)) {
+            Files.copy(inputStream, openApiFile);
+        }
+        var outputRoot = workspace.resolve("src");
+        var manifestFile = workspace.resolve("manifest.json");
+        var request = new GenerationRequest(basePackage, DomainMetadataBuilder.buildAll(), openApiFile.toString());
+        var appUnit = basePackage + "/Order/app";
+        var dtoUnit = basePackage + "/Order/dto";
+
+        new LayerGenerationOrchestrator(ForkJoinPool.commonPool(), new OpenApiSpecRepository(), new FileSystemOutputSink(outputRoot),
+            manifestFile).generate(request);
+        var before = GenerationManifest.read(manifestFile).units();
+        var order = outputRoot.resolve("com/tw/capability/order/domain/entity/Order.java");
+        var generated = Files.readString(order);
+
+        // a schema no operation refers to only changes the DTOs, an edited output is taken for stale
+        Files.writeString(openApiFile, Files.readString(openApiFile).replace("  schemas:\n",
+            "  schemas:\n    Note:\n      type: object\n      properties:\n        text:\n          type: string\n"));
+        Files.writeString(order, generated + "// edited\n");
+        new LayerGenerationOrchestrator(ForkJoinPool.commonPool(), new OpenApiSpecRepository(), new FileSystemOutputSink(outputRoot),
+            manifestFile).generate(request);
+        var after = GenerationManifest.read(manifestFile).units();
+
+        assertEquals(before.get(appUnit).inputHash(), after.get(appUnit).inputHash());
+        assertNotEquals(before.get(dtoUnit).inputHash(), after.get(dtoUnit).inputHash());
+        assertTrue(Files.exists(outputRoot.resolve("com/tw/capability/order/app/dto/NoteDTO.java")));
+        assertEquals(generated, Files.readString(order));
+    }
+
+    @Test
+    void collectComponentsOfPaths() {
+        var openAPI = OpenApiSpecRepository.shared().get(openApiFilePath);
+        var paths = Map.of("/orders/{orderId}", openAPI.getPaths().get("/orders/{orderId}"));
+
+        var components = SymbolTable.componentsOf(openAPI, paths);
+
+        assertTrue(components.keySet().containsAll(List.of("#/components/requestBodies/UpdateOrderRequest", "#/components/schemas/Order",
+            "#/components/schemas/Money")));
+        // only the page response of GET /orders refers to it
+        assertFalse(components.containsKey("#/components/schemas/Link"));
+    }
+
+    @Test
+    void rejectEntitiesSharedByAggregates() {
+        var catalog = DomainMetadataBuilder.buildCatalog();
+        catalog.setFields(List.of(new Field("products", FieldType.ARRAY, "Product", null)));
+        var domains = new ArrayList<>(DomainMetadataBuilder.buildAll());
+        domains.add(catalog);
+
+        var exception = assertThrows(IllegalArgumentException.class, () -> new BoundedContext(basePackage, domains, openApiFilePath).partition());
+        assertTrue(exception.getMessage().startsWith("Entity Product is shared by aggregates Order and Catalog"));
+    }
+
+    @Test
+    void generateQueriesOfTheAggregateOnly() {
+        var sink = new InMemoryOutputSink();
+        var openAPI = OpenApiSpecRepository.shared().get(openApiFilePath);
+        new AppLayerGenerator(basePackage, OpenApiSpecRepository.shared(), sink).generateAggregate(DomainMetadataBuilder.buildCatalog(), openAPI);
+        assertTrue(sink.getFiles().keySet().stream().noneMatch(path -> path.contains("/dto/query/")));
+
+        new AppLayerGenerator(basePackage, OpenApiSpecRepository.shared(), sink).generateAggregate(DomainMetadataBuilder.buildOrder(), openAPI);
+        assertTrue(sink.getFiles().containsKey("com/tw/capability/order/app/dto/query/GetOrderByIdQuery.java"));
+    }
+
+    @Test
+    void generateThroughServer(@TempDir Path specDirectory) throws IOException {
+        String openApi;
+        try (var inputStream = getClass().getClassLoader().getResourceAsStream(openApiFilePath)) {
+            openApi = new String(inputStream.readAllBytes(), StandardCharsets.UTF_8);
+        }
+        var store = new GenerationResultStore(4);
+        var service = new GenerationService(store, new SimpleMeterRegistry(), specDirectory);
+
+        var result = service.generate(new GenerateSourcesRequest(basePackage, openApi, DomainMetadataBuilder.buildAll()));
+
+        assertTrue(result.files().containsKey("com/tw/capability/order/domain/entity/Order.java"));
+        assertTrue(store.get(result.id()).isPresent());
+    }
+
+    @Test
+    void pruneSpecsOfEvictedResults(@TempDir Path specDirectory) throws IOException {
+        String openApi;
+        try (var inputStream = getClass().getClassLoader().getResourceAsStream(openApiFilePath)) {
+            openApi = new String(inputStream.readAllBytes(), StandardCharsets.UTF_8);
+        }
+        var store = new GenerationResultStore(1);
+        var service = new GenerationService(store, new SimpleMeterRegistry(), specDirectory);
+
+        var first = service.generate(new GenerateSourcesRequest(basePackage, openApi, DomainMetadataBuilder.buildAll()));
+        var second = service.generate(new GenerateSourcesRequest(basePackage, openApi, DomainMetadataBuilder.buildAll()));
+        // the evicted result shares its spec with the stored one
+        assertTrue(store.get(first.id()).isEmpty());
+        try (var specs = Files.list(specDirectory)) {
+            assertEquals(1, specs.count());
+        }
+
+        var edited = openApi + "\n# edited\n";
+        service.generate(new GenerateSourcesRequest(basePackage, edited, DomainMetadataBuilder.buildAll()));
+        assertTrue(store.get(second.id()).isEmpty());
+        try (var specs = Files.list(specDirectory)) {
+            assertEquals(List.of(specDirectory.resolve(ContentHash.sha256(edited.getBytes(StandardCharsets.UTF_8)) + ".yaml")), specs.toList());
+        }
+    }
+
+    @Test
+    void watchForChanges(@TempDir Path workspace) throws IOException, InterruptedException {
+        var domainsFile = workspace.resolve("order.json");
+        Files.writeString(domainsFile, new Gson().toJson(DomainMetadataBuilder.buildAll()));
+        var openApiFile = workspace.resolve("Order.yaml");
+        try (var inputStream = getClass().getClassLoader().getResourceAsStream(openApiFilePath)) {
+            Files.copy(inputStream, openApiFile);
+        }
+        var outputRoot = workspace.resolve("src");
+        var orchestrator = new LayerGenerationOrchestrator(ForkJoinPool.commonPool(), new OpenApiSpecRepository(),
+            new FileSystemOutputSink(outputRoot), workspace.resolve("manifest.json"));
+
+        var runs = new LinkedBlockingQueue<PipelineReport>();
+
+        try (var watcher = new GenerationWatcher(orchestrator,
+            List.of(new GenerationWatcher.WatchedContext(basePackage, domainsFile, openApiFile)), Duration.ofMillis(100), runs::add)) {
+            watcher.start();
+
+            assertNotNull(runs.poll());
+            assertTrue(Files.exists(outputRoot.resolve("com/tw/capability/order/domain/entity/Order.java")));
+            assertTrue(Files.exists(workspace.resolve("manifest.json")));
+            var before = filesByLayer(orchestrator);
+
+            // a schema no operation refers to only changes the DTOs
+            Files.writeString(openApiFile, Files.readString(openApiFile).replace("  schemas:\n",
+                "  schemas:\n    Note:\n      type: object\n      properties:\n        text:\n          type: string\n"));
+            assertNotNull(runs.poll(30, TimeUnit.SECONDS), "No run after the spec changed");
+
+            assertTrue(Files.exists(outputRoot.resolve("com/tw/capability/order/app/dto/NoteDTO.java")));
+            var after = filesByLayer(orchestrator);
+            after.keySet().forEach(layer -> {
+                if ("dto".equals(layer)) {
+                    assertTrue(after.get(layer) > before.get(layer));
+                } else {
+                    assertEquals(before.get(layer), after.get(layer), layer);
+                }
+            });
+        }
+    }
+
+    /**
+     * Files handed to the sinks of every unit that ran so far, skipped units hand over none.
+     */
+    private static Map<String, Long> filesByLayer(LayerGenerationOrchestrator orchestrator) {
+        return orchestrator.getMetrics().report().outputs().stream()
+            .collect(Collectors.toMap(GenerationRunReport.OutputEntry::layer, GenerationRunReport.OutputEntry::files, Long::sum));
+    }
+
+    @Test
+    void generateSomeAggregatesIncrementally(@TempDir Path workspace) {
+        var domains = new ArrayList<>(DomainMetadataBuilder.buildAll());
+        domains.add(DomainMetadataBuilder.buildCatalog());
+        var requests = new BoundedContext(basePackage, domains, openApiFilePath).partition();
+        var outputRoot = workspace.resolve("src");
+        var manifestFile = workspace.resolve("manifest.json");
+        var orchestrator = new LayerGenerationOrchestrator(ForkJoinPool.commonPool(), new OpenApiSpecRepository(),
+            new FileSystemOutputSink(outputRoot), manifestFile);
+
+        orchestrator.generate(requests);
+        orchestrator.generate(requests.subList(1, 2));
+
+        assertTrue(Files.exists(outputRoot.resolve("com/tw/capability/order/domain/entity/Order.java")));
+        assertTrue(Files.exists(outputRoot.resolve("com/tw/capability/order/infra/jpa/entity/OrderEntity.java")));
+        assertTrue(Files.exists(outputRoot.resolve("com/tw/capability/order/domain/entity/Catalog.java")));
+        assertTrue(GenerationManifest.read(manifestFile).units().containsKey(basePackage + "/Order/domain"));
+    }
+
+    @Test
+    void resolveRefsThroughSymbolTable() {
+        var symbols = SymbolTable.of(OpenApiSpecRepository.shared().get(openApiFilePath), basePackage);
+        assertEquals("com.tw.capability.order.app.dto.MoneyDTO", symbols.resolve("#/components/schemas/Money").toString());
+
+        var dangling = new OpenAPI().components(new Components()
+            .addSchemas("Order", new ObjectSchema().addProperty("total", new Schema<>().$ref("#/components/schemas/Money"))));
+        assertThrows(IllegalArgumentException.class, () -> SymbolTable.of(dangling, basePackage));
+    }
+
+    @Test
+    void generateSchemasInParallel() {
+        var schemas = new LinkedHashMap<String, Schema>();
+        for (int i = 0; i < 64; i++) {
+            schemas.put("Type" + i, new ObjectSchema()
+                .addProperty("name", new Schema<>().type("string"))
+                .addProperty("next", new Schema<>().$ref("#/components/schemas/Type" + (i + 1) % 64)));
+        }
+        var sequential = new InMemoryOutputSink();
+        new OpenApiHelper(basePackage, "DTO", sequential).generateBySchemas(schemas);
+        var parallel = new InMemoryOutputSink();
+        var metrics = new GenerationMetrics();
+        new OpenApiHelper(basePackage, "DTO", metrics.meter(parallel, "app", "Order"), SymbolTable.unchecked(basePackage),
+            ForkJoinPool.commonPool())
+            .generateBySchemas(schemas);
+
+        assertEquals(64, parallel.getFiles().size());
+        assertEquals(sequential.getFiles(), parallel.getFiles());
+        // the parallel build still hands every JavaFile to the metered sink
+        assertEquals(64, metrics.timer(GenerationPhase.RENDER, "app", "Order").count());
+        assertEquals(64, metrics.report().outputs().get(0).types());
+    }
+
+    @Test
+    void generateBatchCommands() {
+        var sink = new InMemoryOutputSink();
+        var request = new GenerationRequest(basePackage, DomainMetadataBuilder.buildAll(), openApiFilePath);
+        new LayerGenerationOrchestrator(sink).generate(request);
+
+        var files = sink.getFiles();
+        assertTrue(files.containsKey("com/tw/capability/order/domain/command/BatchCreateOrderCommand.java"));
+        assertTrue(files.containsKey("com/tw/capability/order/app/handler/command/BatchUpdateOrderCommandHandler.java"));
+        assertTrue(files.get("com/tw/capability/order/app/handler/command/BatchDeleteOrderCommandHandler.java").contains("transactionTemplate.execute"));
+        assertTrue(files.get("com/tw/capability/order/domain/adaptor/OrderAdaptor.java").contains("findAllByOrderIdIn"));
+        assertTrue(files.get("com/tw/capability/order/infra/adaptor/OrderAdaptorImpl.java").contains("setJdbcBatchSize"));
+
+        var batchCreate = new Operation().summary("BatchCreateOrder").addTagsItem("Order")
+            .responses(new ApiResponses().addApiResponse("200", new ApiResponse().description("OK")));
+        var openAPI = new OpenAPI().components(new Components().requestBodies(new LinkedHashMap<>()))
+            .paths(new Paths().addPathItem("/orders/batch", new PathItem().post(batchCreate)));
+        new ResourceLayerGenerator(basePackage, OpenApiSpecRepository.shared(), sink).generate(openAPI);
+        assertTrue(sink.get("com/tw/capability/order/resource/controller/OrderController.java").contains("BatchCreateOrderCommandHandler"));
+    }
+
+    @Test
+    void streamDomainTypes() {
+        var domains = DomainMetadataBuilder.buildAll();
+        var summaries = new ArrayList<DomainTypeSummary>();
+        new DomainLayerGenerator(basePackage, new NullOutputSink()).generate(domains, typeName -> true, summaries::add);
+
+        assertEquals(domains.size(), summaries.size());
+        assertEquals(1, summaries.stream().filter(DomainTypeSummary::aggregateRoot).count());
+    }
+
+    @Test
+    void generateDeepAggregate() throws ClassNotFoundException {
+        var depth = 2000;
+        var domains = new DomainLayerGenerator(basePackage, new NullOutputSink()).generate(DomainMetadataBuilder.buildChain(depth));
+
+        var sink = new NullOutputSink();
+        new InfraLayerGeneratorV2(basePackage, sink).generateBySummaries(domains);
+
+        // an entity per domain type plus mapper, repository and adaptor of the root
+        assertEquals(depth + 1 + 3, sink.getFiles());
+    }
+
+    @Test
+    void verifyGeneratedSources() {
+        var sink = new InMemoryOutputSink();
+        var request = new GenerationRequest(basePackage, DomainMetadataBuilder.buildAll(), openApiFilePath);
+        new LayerGenerationOrchestrator(sink).generate(request);
+
+        var compiler = new GeneratedSourceCompiler();
+        var first = compiler.verify(sink.getFiles());
+        var second = compiler.verify(sink.getFiles());
+
+        assertFalse(first.hasErrors(), () -> first.diagnostics().toString());
+        assertTrue(first.cachedTypes().isEmpty());
+        assertEquals(first.compiledTypes(), second.cachedTypes());
+
+        // an edited type is compiled again together with the types referencing it
+        var sources = new TreeMap<>(sink.getFiles());
+        sources.computeIfPresent("com/tw/capability/order/domain/valueobject/Money.java", (path, content) -> content + "\n// edited\n");
+        var third = compiler.verify(sources);
+        assertFalse(third.hasErrors(), () -> third.diagnostics().toString());
+        assertTrue(third.compiledTypes().contains("com.tw.capability.order.domain.valueobject.Money"));
+        assertTrue(third.compiledTypes().contains("com.tw.capability.order.domain.entity.Order"));
+        assertTrue(third.cachedTypes().contains("com.tw.capability.order.app.dto.LinkDTO"));
+    }
+
+    @Test
+    void generateAllWithAsyncWriter(@TempDir Path outputRoot) {
+        try (var sink = new AsyncOutputSink(new FileSystemOutputSink(outputRoot))) {
+            var request = new GenerationRequest(basePackage, DomainMetadataBuilder.buildAll(), openApiFilePath);
+            new LayerGenerationOrchestrator(sink).generate(request);
+
+            assertTrue(Files.exists(outputRoot.resolve("com/tw/capability/order/domain/entity/Order.java")));
+        }
+    }
+
+    @Test
+    void generateResourceLayerFromStreamingSpec() throws IOException {
+        var parsed = new InMemoryOutputSink();
+        new ResourceLayerGenerator(basePackage, OpenApiSpecRepository.shared(), parsed).generate(openApiFilePath);
+
+        var streamed = new InMemoryOutputSink();
+        try (var spec = StreamingOpenApiSpec.open(openApiFilePath)) {
+            new ResourceLayerGenerator(basePackage, OpenApiSpecRepository.shared(), streamed).generate(spec);
+        }
+
+        assertEquals(parsed.getFiles(), streamed.getFiles());
     }
 
     @Test
@@ -46,6 +474,6 @@ class CodeGeneratorTest {
         var domains = new DomainLayerGenerator("com.tw.capability.order").generate(DomainMetadataBuilder.buildAll());
 
         var generator = new InfraLayerGeneratorV2("com.tw.capability.order");
-        generator.generateByTypeSpec(domains);
+        generator.generateBySummaries(domains);
     }
 }
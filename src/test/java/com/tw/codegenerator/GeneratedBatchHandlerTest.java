@@ -0,0 +1,216 @@
+package com.tw.codegenerator;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.tw.codegenerator.builder.DomainMetadataBuilder;
+import com.tw.codegenerator.javapoet.ResourceLayerGenerator;
+import com.tw.codegenerator.output.InMemoryOutputSink;
+import com.tw.codegenerator.pipeline.GenerationRequest;
+import com.tw.codegenerator.pipeline.LayerGenerationOrchestrator;
+import com.tw.codegenerator.spec.OpenApiSpecRepository;
+import io.swagger.v3.oas.models.Components;
+import io.swagger.v3.oas.models.OpenAPI;
+import io.swagger.v3.oas.models.Operation;
+import io.swagger.v3.oas.models.PathItem;
+import io.swagger.v3.oas.models.Paths;
+import io.swagger.v3.oas.models.responses.ApiResponse;
+import io.swagger.v3.oas.models.responses.ApiResponses;
+import jakarta.persistence.EntityNotFoundException;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.net.URLClassLoader;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Runs the generated batch command handlers against an adaptor keeping the aggregates in memory.
+ */
+class GeneratedBatchHandlerTest {
+
+    static final String BASE_PACKAGE = "com.tw.capability.order";
+
+    static URLClassLoader classLoader;
+
+    @BeforeAll
+    static void compileGeneratedSources(@TempDir Path root) {
+        var sink = new InMemoryOutputSink();
+        new LayerGenerationOrchestrator(sink).generate(new GenerationRequest(BASE_PACKAGE, DomainMetadataBuilder.buildAll(), "reference/Order.yaml"));
+        var batchCreate = new Operation().summary("BatchCreateOrder").addTagsItem("Order")
+            .responses(new ApiResponses().addApiResponse("200", new ApiResponse().description("OK")));
+        var openAPI = new OpenAPI().components(new Components().requestBodies(new LinkedHashMap<>()))
+            .paths(new Paths().addPathItem("/orders/batch", new PathItem().post(batchCreate)));
+        new ResourceLayerGenerator(BASE_PACKAGE, OpenApiSpecRepository.shared(), sink).generate(openAPI);
+
+        classLoader = GeneratedClasses.compile(sink.getFiles(), root);
+    }
+
+    @AfterAll
+    static void closeClassLoader() throws IOException {
+        classLoader.close();
+    }
+
+    @Test
+    void updateInTheOrderOfTheCommands() throws Exception {
+        var adaptor = new InMemoryAdaptor(createOrders(3));
+        var ids = List.of(adaptor.ids().get(2), adaptor.ids().get(0), adaptor.ids().get(1));
+        var commands = new ArrayList<>();
+        for (var id : ids) {
+            // update replaces the items, so they are always given
+            commands.add(build("domain.command.UpdateOrderCommand", Map.of("orderId", id, "items", List.of())));
+        }
+
+        var updated = execute("BatchUpdateOrderCommandHandler", adaptor, build("domain.command.BatchUpdateOrderCommand", Map.of("commands", commands)));
+
+        assertEquals(ids, orderIds(updated));
+        assertEquals(ids, orderIds(adaptor.saved));
+    }
+
+    @Test
+    void deleteInTheOrderOfTheIds() throws Exception {
+        var adaptor = new InMemoryAdaptor(createOrders(3));
+        var ids = List.of(adaptor.ids().get(1), adaptor.ids().get(2), adaptor.ids().get(1));
+
+        var deleted = execute("BatchDeleteOrderCommandHandler", adaptor, build("domain.command.BatchDeleteOrderCommand", Map.of("orderIds", ids)));
+
+        assertEquals(ids.subList(0, 2), orderIds(deleted));
+    }
+
+    @Test
+    void rejectUnknownIds() throws Exception {
+        var adaptor = new InMemoryAdaptor(createOrders(1));
+        var command = build("domain.command.BatchDeleteOrderCommand", Map.of("orderIds", List.of(adaptor.ids().get(0), UUID.randomUUID())));
+
+        var exception = assertThrows(InvocationTargetException.class, () -> execute("BatchDeleteOrderCommandHandler", adaptor, command));
+        assertInstanceOf(EntityNotFoundException.class, exception.getCause());
+    }
+
+    @Test
+    void readBatchCommandsFromTheRequestBody() throws Exception {
+        var commandClass = load("domain.command.BatchUpdateOrderCommand");
+        var id = UUID.randomUUID();
+        var command = new ObjectMapper().readValue("{\"commands\": [{\"orderId\": \"" + id + "\"}]}", commandClass);
+
+        var commands = (List<?>) commandClass.getMethod("getCommands").invoke(command);
+        assertEquals(List.of(id), orderIds(commands));
+
+        var controller = load("resource.controller.OrderController");
+        var method = controller.getMethod("batchCreateOrder", load("domain.command.BatchCreateOrderCommand"));
+        assertInstanceOf(org.springframework.web.bind.annotation.RequestBody.class, method.getParameterAnnotations()[0][0]);
+    }
+
+    private static List<Object> createOrders(int count) throws Exception {
+        var orders = new ArrayList<>();
+        for (int index = 0; index < count; index++) {
+            var command = build("domain.command.CreateOrderCommand", Map.of());
+            orders.add(load("domain.entity.Order").getMethod("create", command.getClass()).invoke(null, command));
+        }
+        return orders;
+    }
+
+    private static List<?> execute(String handlerName, InMemoryAdaptor adaptor, Object command) throws Exception {
+        var adaptorClass = load("domain.adaptor.OrderAdaptor");
+        var proxy = Proxy.newProxyInstance(classLoader, new Class<?>[]{adaptorClass}, (instance, method, args) -> switch (method.getName()) {
+            case "findAllByOrderIdIn" -> adaptor.findAllByOrderIdIn((Collection<?>) args[0]);
+            case "saveAll" -> adaptor.saveAll((List<?>) args[0]);
+            default -> throw new UnsupportedOperationException(method.getName());
+        });
+        var handlerClass = load("app.handler.command." + handlerName);
+        var handler = handlerClass.getConstructor(adaptorClass, TransactionTemplate.class)
+            .newInstance(proxy, new TransactionTemplate(new NoTransactionManager()));
+        return (List<?>) handlerClass.getMethod("execute", command.getClass()).invoke(handler, command);
+    }
+
+    private static Object build(String className, Map<String, Object> properties) throws Exception {
+        var builder = load(className).getMethod("builder").invoke(null);
+        for (var property : properties.entrySet()) {
+            var value = property.getValue();
+            var setter = builder.getClass().getMethod(property.getKey(), value instanceof List ? List.class : value.getClass());
+            setter.setAccessible(true);
+            setter.invoke(builder, value);
+        }
+        var build = builder.getClass().getMethod("build");
+        build.setAccessible(true);
+        return build.invoke(builder);
+    }
+
+    private static List<Object> orderIds(Collection<?> objects) throws Exception {
+        var ids = new ArrayList<>();
+        for (var object : objects) {
+            ids.add(object.getClass().getMethod("getOrderId").invoke(object));
+        }
+        return ids;
+    }
+
+    private static Class<?> load(String className) throws ClassNotFoundException {
+        return classLoader.loadClass(BASE_PACKAGE + "." + className);
+    }
+
+    /**
+     * Returns the stored aggregates in reverse, as a database is free to return them in any order.
+     */
+    private static class InMemoryAdaptor {
+
+        private final List<Object> orders;
+
+        private final List<Object> saved = new ArrayList<>();
+
+        InMemoryAdaptor(List<Object> orders) {
+            this.orders = orders;
+        }
+
+        List<Object> ids() throws Exception {
+            return orderIds(orders);
+        }
+
+        List<Object> findAllByOrderIdIn(Collection<?> ids) throws Exception {
+            var found = new ArrayList<>();
+            for (int index = orders.size() - 1; index >= 0; index--) {
+                var order = orders.get(index);
+                if (ids.contains(order.getClass().getMethod("getOrderId").invoke(order))) {
+                    found.add(order);
+                }
+            }
+            return found;
+        }
+
+        List<?> saveAll(List<?> orders) {
+            saved.addAll(orders);
+            return orders;
+        }
+    }
+
+    private static class NoTransactionManager implements PlatformTransactionManager {
+
+        @Override
+        public TransactionStatus getTransaction(TransactionDefinition definition) {
+            return new SimpleTransactionStatus();
+        }
+
+        @Override
+        public void commit(TransactionStatus status) {
+        }
+
+        @Override
+        public void rollback(TransactionStatus status) {
+        }
+    }
+}
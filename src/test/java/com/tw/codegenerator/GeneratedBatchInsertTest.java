@@ -0,0 +1,98 @@
+package com.tw.codegenerator;
+
+import com.tw.codegenerator.builder.DomainMetadataBuilder;
+import com.tw.codegenerator.javapoet.DomainLayerGenerator;
+import com.tw.codegenerator.javapoet.InfraLayerGeneratorV2;
+import com.tw.codegenerator.metadata.Domain;
+import com.tw.codegenerator.metadata.MethodType;
+import com.tw.codegenerator.output.InMemoryOutputSink;
+import com.tw.common.seedwork.BaseEntity;
+import jakarta.persistence.EntityManager;
+import org.hibernate.SessionFactory;
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.cfg.Configuration;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.data.jpa.repository.support.JpaRepositoryFactory;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Saves aggregates through the generated adaptor into H2 and counts the statements Hibernate prepares.
+ */
+class GeneratedBatchInsertTest {
+
+    static final String BASE_PACKAGE = "com.tw.warehouse";
+
+    static final int WAREHOUSES = 2 * BaseEntity.ID_ALLOCATION_SIZE + 10;
+
+    @Test
+    void insertInBatchesWithOneSequenceCallPerBatch(@TempDir Path root) throws Exception {
+        var domains = DomainMetadataBuilder.buildWarehouse();
+        domains.stream().filter(Domain::isAggregateRoot).forEach(domain -> domain.setMethods(
+            List.of(MethodType.CREATE, MethodType.QUERY_BY_ID, MethodType.QUERY_BY_CRITERIA, MethodType.BATCH_CREATE)));
+        var sink = new InMemoryOutputSink();
+        var summaries = new DomainLayerGenerator(BASE_PACKAGE, sink).generate(domains);
+        new InfraLayerGeneratorV2(BASE_PACKAGE, sink).generateBySummaries(summaries);
+
+        try (var classLoader = GeneratedClasses.compile(sink.getFiles(), root)) {
+            var configuration = new Configuration()
+                .addAnnotatedClass(classLoader.loadClass(BASE_PACKAGE + ".infra.jpa.entity.WarehouseEntity"))
+                .addAnnotatedClass(classLoader.loadClass(BASE_PACKAGE + ".infra.jpa.entity.ShipmentEntity"))
+                .addAnnotatedClass(classLoader.loadClass(BASE_PACKAGE + ".infra.jpa.entity.LineEntity"))
+                .setProperty(AvailableSettings.URL, "jdbc:h2:mem:batch-insert;DB_CLOSE_DELAY=-1")
+                .setProperty(AvailableSettings.HBM2DDL_AUTO, "create-drop")
+                .setProperty(AvailableSettings.GENERATE_STATISTICS, "true");
+            var thread = Thread.currentThread();
+            var contextClassLoader = thread.getContextClassLoader();
+            thread.setContextClassLoader(classLoader);
+            try (var sessionFactory = configuration.buildSessionFactory()) {
+                var warehouses = new ArrayList<>();
+                var commandClass = classLoader.loadClass(BASE_PACKAGE + ".domain.command.CreateWarehouseCommand");
+                var create = classLoader.loadClass(BASE_PACKAGE + ".domain.entity.Warehouse").getMethod("create", commandClass);
+                for (int index = 0; index < WAREHOUSES; index++) {
+                    var builder = commandClass.getMethod("builder").invoke(null);
+                    var build = builder.getClass().getMethod("build");
+                    build.setAccessible(true);
+                    warehouses.add(create.invoke(null, build.invoke(builder)));
+                }
+
+                var statistics = sessionFactory.getStatistics();
+                statistics.clear();
+                var saved = inTransaction(sessionFactory, entityManager -> {
+                    var repositoryClass = classLoader.loadClass(BASE_PACKAGE + ".infra.jpa.repository.WarehouseEntityRepository");
+                    var repository = new JpaRepositoryFactory(entityManager).getRepository(repositoryClass);
+                    var adaptorClass = classLoader.loadClass(BASE_PACKAGE + ".infra.adaptor.WarehouseAdaptorImpl");
+                    var adaptor = adaptorClass.getConstructor(repositoryClass, EntityManager.class).newInstance(repository, entityManager);
+                    return (List<?>) adaptorClass.getMethod("saveAll", List.class).invoke(adaptor, warehouses);
+                });
+
+                assertEquals(WAREHOUSES, saved.size());
+                assertEquals(WAREHOUSES, statistics.getEntityInsertCount());
+                // one sequence call to start the pool and one per batch of ids, then a single insert statement that is
+                // executed in batches, where unbatched inserts would prepare one statement per warehouse
+                var sequenceCalls = 1 + (WAREHOUSES + BaseEntity.ID_ALLOCATION_SIZE - 1) / BaseEntity.ID_ALLOCATION_SIZE;
+                assertEquals(sequenceCalls + 1, statistics.getPrepareStatementCount());
+            } finally {
+                thread.setContextClassLoader(contextClassLoader);
+            }
+        }
+    }
+
+    private interface Work<T> {
+        T run(EntityManager entityManager) throws Exception;
+    }
+
+    private static <T> T inTransaction(SessionFactory sessionFactory, Work<T> work) throws Exception {
+        try (var entityManager = sessionFactory.createEntityManager()) {
+            entityManager.getTransaction().begin();
+            var result = work.run(entityManager);
+            entityManager.getTransaction().commit();
+            return result;
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package com.tw.codegenerator;
+
+import com.tw.codegenerator.verify.GeneratedSourceCompiler;
+
+import javax.tools.ToolProvider;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Generated sources compiled with Lombok and MapStruct, for tests running the generated code.
+ */
+final class GeneratedClasses {
+
+    private GeneratedClasses() {
+    }
+
+    /**
+     * @param files generated files keyed by their path relative to the source root
+     * @param root  directory to write the sources and classes to
+     */
+    static URLClassLoader compile(Map<String, String> files, Path root) {
+        try {
+            var sources = new ArrayList<String>();
+            for (var file : files.entrySet()) {
+                if (file.getKey().endsWith(".java")) {
+                    var path = root.resolve("src").resolve(file.getKey());
+                    Files.createDirectories(path.getParent());
+                    Files.writeString(path, file.getValue());
+                    sources.add(path.toString());
+                }
+            }
+
+            var classes = root.resolve("classes");
+            var processorPath = System.getProperty(GeneratedSourceCompiler.PROCESSOR_PATH_PROPERTY);
+            var options = new ArrayList<>(List.of("-d", classes.toString(), "-Xlint:none", "-classpath",
+                System.getProperty("java.class.path") + (processorPath == null ? "" : File.pathSeparator + processorPath)));
+            if (processorPath != null) {
+                options.addAll(List.of("-processorpath", processorPath));
+            }
+            options.addAll(sources);
+            if (ToolProvider.getSystemJavaCompiler().run(null, null, null, options.toArray(String[]::new)) != 0) {
+                throw new IllegalStateException("Generated sources in " + root + " do not compile.");
+            }
+            return new URLClassLoader(new URL[]{classes.toUri().toURL()}, GeneratedClasses.class.getClassLoader());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package com.tw.codegenerator;
+
+import com.tw.codegenerator.builder.DomainMetadataBuilder;
+import com.tw.codegenerator.javapoet.DomainLayerGenerator;
+import com.tw.codegenerator.javapoet.InfraLayerGeneratorV2;
+import com.tw.codegenerator.output.InMemoryOutputSink;
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.cfg.Configuration;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Maps the generated JPA entities with Hibernate, which rejects a collection mapped by a missing parent field.
+ */
+class GeneratedEntityMappingTest {
+
+    static final String BASE_PACKAGE = "com.tw.warehouse";
+
+    @Test
+    void mapEntityWithTwoParents(@TempDir Path root) throws Exception {
+        var sink = new InMemoryOutputSink();
+        var summaries = new DomainLayerGenerator(BASE_PACKAGE, sink).generate(DomainMetadataBuilder.buildWarehouse());
+        new InfraLayerGeneratorV2(BASE_PACKAGE, sink).generateBySummaries(summaries);
+
+        try (var classLoader = GeneratedClasses.compile(sink.getFiles(), root)) {
+            var warehouseClass = classLoader.loadClass(BASE_PACKAGE + ".infra.jpa.entity.WarehouseEntity");
+            var shipmentClass = classLoader.loadClass(BASE_PACKAGE + ".infra.jpa.entity.ShipmentEntity");
+            var lineClass = classLoader.loadClass(BASE_PACKAGE + ".infra.jpa.entity.LineEntity");
+            var configuration = new Configuration()
+                .addAnnotatedClass(warehouseClass)
+                .addAnnotatedClass(shipmentClass)
+                .addAnnotatedClass(lineClass)
+                .setProperty(AvailableSettings.URL, "jdbc:h2:mem:warehouse;DB_CLOSE_DELAY=-1")
+                .setProperty(AvailableSettings.HBM2DDL_AUTO, "create-drop");
+            var thread = Thread.currentThread();
+            var contextClassLoader = thread.getContextClassLoader();
+            thread.setContextClassLoader(classLoader);
+            try (var sessionFactory = configuration.buildSessionFactory()) {
+                var warehouse = warehouseClass.getConstructor().newInstance();
+                var shipment = shipmentClass.getConstructor().newInstance();
+                shipmentClass.getMethod("setWarehouse", warehouseClass).invoke(shipment, warehouse);
+                var stock = line(lineClass, "apple");
+                lineClass.getMethod("setWarehouse", warehouseClass).invoke(stock, warehouse);
+                var shipped = List.of(line(lineClass, "pear"), line(lineClass, "plum"));
+                for (var line : shipped) {
+                    lineClass.getMethod("setShipment", shipmentClass).invoke(line, shipment);
+                }
+                warehouseClass.getMethod("setLines", List.class).invoke(warehouse, new ArrayList<>(List.of(stock)));
+                warehouseClass.getMethod("setShipments", List.class).invoke(warehouse, new ArrayList<>(List.of(shipment)));
+                shipmentClass.getMethod("setLines", List.class).invoke(shipment, new ArrayList<>(shipped));
+
+                sessionFactory.inTransaction(session -> session.persist(warehouse));
+
+                sessionFactory.inSession(session -> {
+                    assertEquals(List.of("apple"), session.createQuery("select l.sku from LineEntity l join l.warehouse w", String.class)
+                        .getResultList());
+                    assertEquals(List.of("pear", "plum"), session.createQuery("select l.sku from LineEntity l join l.shipment s order by l.sku",
+                        String.class).getResultList());
+                });
+            } finally {
+                thread.setContextClassLoader(contextClassLoader);
+            }
+        }
+    }
+
+    private static Object line(Class<?> lineClass, String sku) throws Exception {
+        var line = lineClass.getConstructor().newInstance();
+        lineClass.getMethod("setSku", String.class).invoke(line, sku);
+        return line;
+    }
+}
@@ -0,0 +1,105 @@
+package com.tw.codegenerator;
+
+import com.tw.codegenerator.builder.DomainMetadataBuilder;
+import com.tw.codegenerator.javapoet.AppLayerGenerator;
+import com.tw.codegenerator.javapoet.ResourceLayerGenerator;
+import com.tw.codegenerator.output.InMemoryOutputSink;
+import com.tw.codegenerator.pipeline.GenerationRequest;
+import com.tw.codegenerator.pipeline.LayerGenerationOrchestrator;
+import com.tw.codegenerator.spec.OpenApiSpecRepository;
+import io.swagger.v3.oas.models.OpenAPI;
+import io.swagger.v3.oas.models.Operation;
+import io.swagger.v3.oas.models.media.ArraySchema;
+import io.swagger.v3.oas.models.media.BooleanSchema;
+import io.swagger.v3.oas.models.media.Content;
+import io.swagger.v3.oas.models.media.IntegerSchema;
+import io.swagger.v3.oas.models.media.MediaType;
+import io.swagger.v3.oas.models.media.ObjectSchema;
+import io.swagger.v3.oas.models.media.Schema;
+import io.swagger.v3.oas.models.media.StringSchema;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.beans.ConstructorProperties;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Generates the projections of operations marked with {@code x-projection: true} and compiles them with the code
+ * using them.
+ */
+class GeneratedProjectionTest {
+
+    static final String BASE_PACKAGE = "com.tw.capability.order";
+
+    static final String SPEC = "reference/Order.yaml";
+
+    @Test
+    void projectEveryResponseOnItsOwn(@TempDir Path root) throws Exception {
+        var openAPI = new OpenApiSpecRepository(1).get(SPEC);
+        var byId = operation(openAPI, "/orders/{orderId}");
+        project(byId, new ObjectSchema()
+            .addProperty("id", new StringSchema())
+            .addProperty("paid", new BooleanSchema())
+            .addProperty("status", new StringSchema()._enum(List.of("PAID", "UNPAID")))
+            .addProperty("total_price", new Schema<>().$ref("#/components/schemas/Money")));
+        var byCriteria = operation(openAPI, "/orders");
+        project(byCriteria, new ObjectSchema()
+            .addProperty("total_items", new IntegerSchema())
+            .addProperty("data", new ArraySchema().items(new ObjectSchema().addProperty("id", new StringSchema()).addProperty("paid", new BooleanSchema()))));
+
+        var sink = new InMemoryOutputSink();
+        var request = new GenerationRequest(BASE_PACKAGE, DomainMetadataBuilder.buildAll(), SPEC);
+        new LayerGenerationOrchestrator(sink).generate(request);
+        new AppLayerGenerator(BASE_PACKAGE, OpenApiSpecRepository.shared(), sink).generateAggregate(request.aggregateRoot(), request.domains(), openAPI);
+        new ResourceLayerGenerator(BASE_PACKAGE, OpenApiSpecRepository.shared(), sink).generate(openAPI);
+
+        assertTrue(sink.get("com/tw/capability/order/resource/controller/OrderQueryController.java")
+            .contains("getOrderByIdQueryHandler.executeProjection(query, GetOrderByIdProjection.class)"));
+        try (var classLoader = GeneratedClasses.compile(sink.getFiles(), root)) {
+            assertArrayEquals(new String[]{"orderId", "paid", "status", "totalPrice"}, constructorProperties(classLoader.loadClass(BASE_PACKAGE + ".app.dto.GetOrderByIdProjection")));
+            assertArrayEquals(new String[]{"orderId", "paid"}, constructorProperties(classLoader.loadClass(BASE_PACKAGE + ".app.dto.GetOrderByCriteriaProjection")));
+        }
+    }
+
+    @Test
+    void rejectResponsesWithFieldsOtherThanColumns() {
+        // the order of the response has items
+        var openAPI = new OpenApiSpecRepository(1).get(SPEC);
+        operation(openAPI, "/orders/{orderId}").addExtension("x-projection", true);
+
+        var request = new GenerationRequest(BASE_PACKAGE, DomainMetadataBuilder.buildAll(), SPEC);
+        var generator = new AppLayerGenerator(BASE_PACKAGE, OpenApiSpecRepository.shared(), new InMemoryOutputSink());
+        var exception = assertThrows(IllegalArgumentException.class, () -> generator.generateAggregate(request.aggregateRoot(), request.domains(), openAPI));
+        assertEquals("Response of GetOrderById with x-projection has items, which is no column of Order", exception.getMessage());
+    }
+
+    @Test
+    void rejectProjectedSlices() {
+        var openAPI = new OpenApiSpecRepository(1).get(SPEC);
+        var operation = operation(openAPI, "/orders");
+        operation.addExtension("x-projection", true);
+        operation.addExtension("x-pagination", "keyset");
+
+        var generator = new ResourceLayerGenerator(BASE_PACKAGE, OpenApiSpecRepository.shared(), new InMemoryOutputSink());
+        assertThrows(IllegalArgumentException.class, () -> generator.generate(openAPI));
+    }
+
+    private static Operation operation(OpenAPI openAPI, String path) {
+        return openAPI.getPaths().get(path).getGet();
+    }
+
+    private static void project(Operation operation, Schema<?> response) {
+        operation.addExtension("x-projection", true);
+        operation.getResponses().get("200").setContent(new Content().addMediaType("application/json", new MediaType().schema(response)));
+    }
+
+    private static String[] constructorProperties(Class<?> projectionClass) {
+        return projectionClass.getConstructors()[0].getAnnotation(ConstructorProperties.class).value();
+    }
+}
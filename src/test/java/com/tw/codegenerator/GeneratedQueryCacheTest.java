@@ -0,0 +1,130 @@
+package com.tw.codegenerator;
+
+import com.tw.codegenerator.builder.DomainMetadataBuilder;
+import com.tw.codegenerator.metadata.QueryCache;
+import com.tw.codegenerator.output.InMemoryOutputSink;
+import com.tw.codegenerator.pipeline.GenerationRequest;
+import com.tw.codegenerator.pipeline.LayerGenerationOrchestrator;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.lang.reflect.Proxy;
+import java.net.URLClassLoader;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+/**
+ * Runs the generated query by id handler of an aggregate with a query cache against an adaptor counting its reads.
+ */
+class GeneratedQueryCacheTest {
+
+    static final String BASE_PACKAGE = "com.tw.capability.order";
+
+    static URLClassLoader classLoader;
+
+    private final AtomicInteger reads = new AtomicInteger();
+
+    private Object order;
+
+    private Object orderId;
+
+    private Object queryCache;
+
+    private Object handler;
+
+    @BeforeAll
+    static void compileGeneratedSources(@TempDir Path root) {
+        var domains = new ArrayList<>(DomainMetadataBuilder.buildAll());
+        domains.get(0).setQueryCache(new QueryCache());
+        var sink = new InMemoryOutputSink();
+        new LayerGenerationOrchestrator(sink).generate(new GenerationRequest(BASE_PACKAGE, domains, "reference/Order.yaml"));
+
+        classLoader = GeneratedClasses.compile(sink.getFiles(), root);
+    }
+
+    @AfterAll
+    static void closeClassLoader() throws IOException {
+        classLoader.close();
+    }
+
+    @BeforeEach
+    void createHandler() throws Exception {
+        var command = load("domain.command.CreateOrderCommand").getMethod("builder").invoke(null);
+        var build = command.getClass().getMethod("build");
+        build.setAccessible(true);
+        var createCommand = build.invoke(command);
+        order = load("domain.entity.Order").getMethod("create", createCommand.getClass()).invoke(null, createCommand);
+        orderId = order.getClass().getMethod("getOrderId").invoke(order);
+
+        var adaptorClass = load("domain.adaptor.OrderAdaptor");
+        var adaptor = Proxy.newProxyInstance(classLoader, new Class<?>[]{adaptorClass}, (instance, method, args) -> {
+            if (!method.getName().equals("findByOrderId") || args.length != 1 || !orderId.equals(args[0])) {
+                throw new UnsupportedOperationException(method.getName());
+            }
+            reads.incrementAndGet();
+            return order;
+        });
+        var queryCacheClass = load("app.handler.command.query.OrderQueryCache");
+        queryCache = queryCacheClass.getConstructor(MeterRegistry.class).newInstance(new SimpleMeterRegistry());
+        handler = load("app.handler.command.query.GetOrderByIdQueryHandler").getConstructor(adaptorClass, queryCacheClass).newInstance(adaptor, queryCache);
+    }
+
+    @Test
+    void readTheAggregateOnceForRepeatedQueries() throws Exception {
+        var first = execute();
+        var second = execute();
+
+        assertEquals(1, reads.get());
+        assertSame(first, second);
+    }
+
+    @Test
+    void readTheAggregateAgainAfterAnUpdate() throws Exception {
+        var before = execute();
+        evict("domain.event.OrderUpdatedEvent");
+        var after = execute();
+
+        assertEquals(2, reads.get());
+        assertNotSame(before, after);
+    }
+
+    @Test
+    void readTheAggregateAgainAfterADelete() throws Exception {
+        execute();
+        evict("domain.event.OrderDeletedEvent");
+        execute();
+
+        assertEquals(2, reads.get());
+    }
+
+    private Object execute() throws Exception {
+        var query = load("app.dto.query.GetOrderByIdQuery").getMethod("builder").invoke(null);
+        var orderIdSetter = query.getClass().getMethod("orderId", orderId.getClass());
+        orderIdSetter.setAccessible(true);
+        orderIdSetter.invoke(query, orderId);
+        var build = query.getClass().getMethod("build");
+        build.setAccessible(true);
+        var getOrderById = build.invoke(query);
+        return handler.getClass().getMethod("execute", getOrderById.getClass()).invoke(handler, getOrderById);
+    }
+
+    private void evict(String eventName) throws Exception {
+        var event = load(eventName).getConstructor(Object.class, order.getClass()).newInstance(this, order);
+        queryCache.getClass().getMethod("evict", event.getClass()).invoke(queryCache, event);
+    }
+
+    private static Class<?> load(String className) throws ClassNotFoundException {
+        return classLoader.loadClass(BASE_PACKAGE + "." + className);
+    }
+}
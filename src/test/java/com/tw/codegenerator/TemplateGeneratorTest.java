@@ -1,9 +1,14 @@
 package com.tw.codegenerator;
 
+import com.tw.codegenerator.freemarker.TemplateEngine;
 import com.tw.codegenerator.freemarker.TemplateGenerator;
+import com.tw.codegenerator.output.InMemoryOutputSink;
 import org.junit.jupiter.api.Test;
 
 import java.io.IOException;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 class TemplateGeneratorTest {
 
@@ -12,4 +17,14 @@ class TemplateGeneratorTest {
         var templateGenerator = new TemplateGenerator();
         templateGenerator.generate("Order", "Service.java.ftl");
     }
-}
\ No newline at end of file
+
+    @Test
+    void generateBatch() throws IOException {
+        var sink = new InMemoryOutputSink();
+        new TemplateGenerator(sink).generate(List.of("Order", "Catalog"), List.of("Service.java.ftl"));
+
+        assertTrue(TemplateEngine.shared().getTemplateNames().contains("Service.java.ftl"));
+        assertTrue(sink.get("com/tw/capability/order/app/service/OrderService.java").contains("interface OrderService"));
+        assertTrue(sink.get("com/tw/capability/catalog/app/service/CatalogService.java").contains("interface CatalogService"));
+    }
+}
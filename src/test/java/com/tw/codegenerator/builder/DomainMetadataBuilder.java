@@ -2,6 +2,7 @@ package com.tw.codegenerator.builder;
 
 import com.tw.codegenerator.metadata.*;
 
+import java.util.ArrayList;
 import java.util.List;
 
 public class DomainMetadataBuilder {
@@ -32,12 +33,77 @@ public class DomainMetadataBuilder {
 
         order.setFields(List.of(buyer, items, totalPrice, paid, paymentInfo, status));
 
-        order.setMethods(List.of(MethodType.CREATE, MethodType.UPDATE, MethodType.DELETE, /*MethodType.BATCH_CREATE,
-                MethodType.BATCH_UPDATE, MethodType.BATCH_DELETE,*/ MethodType.QUERY_BY_ID, MethodType.QUERY_BY_CRITERIA));
+        order.setMethods(List.of(MethodType.CREATE, MethodType.UPDATE, MethodType.DELETE, MethodType.BATCH_CREATE,
+                MethodType.BATCH_UPDATE, MethodType.BATCH_DELETE, MethodType.QUERY_BY_ID, MethodType.QUERY_BY_CRITERIA));
 
         return order;
     }
 
+    public static Domain buildCatalog() {
+        var catalog = new Domain();
+        catalog.setTypeName("Catalog");
+        catalog.setDomainType(DomainType.ENTITY);
+        catalog.setAggregateRoot(true);
+
+        var name = new Field("name", FieldType.STRING, null, null);
+        var basePrice = new Field("basePrice", FieldType.OBJECT, "Money", null);
+        catalog.setFields(List.of(name, basePrice));
+
+        catalog.setMethods(List.of(MethodType.CREATE, MethodType.QUERY_BY_ID));
+
+        return catalog;
+    }
+
+    /**
+     * An aggregate root holding a collection of Level0, which holds a collection of Level1 and so on.
+     */
+    public static List<Domain> buildChain(int depth) {
+        var domains = new ArrayList<Domain>();
+        var root = new Domain();
+        root.setTypeName("Chain");
+        root.setDomainType(DomainType.ENTITY);
+        root.setAggregateRoot(true);
+        root.setFields(List.of(new Field("levels", FieldType.ARRAY, "Level0", null)));
+        root.setMethods(List.of(MethodType.CREATE));
+        domains.add(root);
+
+        for (int i = 0; i < depth; i++) {
+            var level = new Domain();
+            level.setTypeName("Level" + i);
+            level.setDomainType(DomainType.ENTITY);
+            level.setAggregateRoot(false);
+            level.setFields(i + 1 < depth ? List.of(new Field("levels", FieldType.ARRAY, "Level" + (i + 1), null)) : List.of());
+            domains.add(level);
+        }
+        return domains;
+    }
+
+    /**
+     * A warehouse holding its stock lines and shipments, a shipment holds lines as well, so Line has two parents.
+     */
+    public static List<Domain> buildWarehouse() {
+        var warehouse = new Domain();
+        warehouse.setTypeName("Warehouse");
+        warehouse.setDomainType(DomainType.ENTITY);
+        warehouse.setAggregateRoot(true);
+        warehouse.setFields(List.of(new Field("lines", FieldType.ARRAY, "Line", null), new Field("shipments", FieldType.ARRAY, "Shipment", null)));
+        warehouse.setMethods(List.of(MethodType.CREATE, MethodType.QUERY_BY_ID, MethodType.QUERY_BY_CRITERIA));
+
+        var shipment = new Domain();
+        shipment.setTypeName("Shipment");
+        shipment.setDomainType(DomainType.ENTITY);
+        shipment.setAggregateRoot(false);
+        shipment.setFields(List.of(new Field("lines", FieldType.ARRAY, "Line", null)));
+
+        var line = new Domain();
+        line.setTypeName("Line");
+        line.setDomainType(DomainType.ENTITY);
+        line.setAggregateRoot(false);
+        line.setFields(List.of(new Field("sku", FieldType.STRING, null, null), new Field("quantity", FieldType.INTEGER, null, null)));
+
+        return List.of(warehouse, shipment, line);
+    }
+
     public static Domain buildItem() {
         var item = new Domain();
         item.setTypeName("Item");
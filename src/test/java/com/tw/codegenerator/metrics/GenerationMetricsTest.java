@@ -0,0 +1,60 @@
+package com.tw.codegenerator.metrics;
+
+import com.tw.codegenerator.output.InMemoryOutputSink;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.javapoet.JavaFile;
+import org.springframework.javapoet.TypeSpec;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class GenerationMetricsTest {
+
+    @Test
+    void timeTheBuildOfEachJavaFile() throws Exception {
+        var metrics = new GenerationMetrics();
+        var sink = metrics.meter(new InMemoryOutputSink(), "app", "Order");
+
+        Thread.sleep(50);
+        sink.write(JavaFile.builder("com.tw", TypeSpec.classBuilder("First").addType(TypeSpec.classBuilder("Nested").build()).build()).build());
+        sink.write(JavaFile.builder("com.tw", TypeSpec.classBuilder("Second").build()).build());
+        sink.write("META-INF/readme.txt", "not built by JavaPoet");
+
+        var build = metrics.timer(GenerationPhase.JAVAPOET_BUILD, "app", "Order");
+        assertEquals(2, build.count());
+        // the first file took the sleep to build, the second one next to nothing
+        assertTrue(build.max(TimeUnit.MILLISECONDS) >= 50);
+        assertTrue(build.totalTime(TimeUnit.MILLISECONDS) < 50 + build.max(TimeUnit.MILLISECONDS));
+        assertEquals(2, metrics.timer(GenerationPhase.RENDER, "app", "Order").count());
+        assertEquals(3, metrics.timer(GenerationPhase.WRITE, "app", "Order").count());
+
+        var output = metrics.report().outputs().get(0);
+        assertEquals(3, output.files());
+        assertEquals(3, output.types());
+    }
+
+    @Test
+    void reportEachRunAndShareMetersWithoutAggregates() {
+        var shared = new SimpleMeterRegistry();
+        var first = new GenerationMetrics(shared);
+        var second = new GenerationMetrics(shared);
+
+        first.meter(new InMemoryOutputSink(), "app", "Order").write("com/tw/Order.java", "class Order {}");
+        second.meter(new InMemoryOutputSink(), "app", "Invoice").write("com/tw/Invoice.java", "class Invoice {}");
+
+        // each run reports its own aggregate only
+        assertEquals(List.of("Order"), first.report().outputs().stream().map(GenerationRunReport.OutputEntry::aggregate).toList());
+        assertEquals(List.of("Invoice"), second.report().outputs().stream().map(GenerationRunReport.OutputEntry::aggregate).toList());
+
+        // the shared registry adds both runs up, tagged by layer only
+        var files = shared.find(GenerationMetrics.FILES_COUNTER).counters();
+        assertEquals(1, files.size());
+        assertEquals(2, files.iterator().next().count());
+        assertTrue(shared.getMeters().stream().allMatch(meter -> meter.getId().getTag("aggregate") == null));
+        assertEquals(2, shared.find(GenerationMetrics.PHASE_TIMER).tag("phase", GenerationPhase.WRITE.tagValue()).timer().count());
+    }
+}
@@ -0,0 +1,56 @@
+package com.tw.codegenerator.output;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class AsyncOutputSinkTest {
+
+    @Test
+    void writeOnePathInOrder() {
+        var writes = new ConcurrentHashMap<String, List<String>>();
+        OutputSink delegate = (relativePath, content) -> {
+            // later writes of a path would overtake slower earlier ones on another writer thread
+            sleep(content.hashCode() % 3);
+            writes.computeIfAbsent(relativePath, path -> new ArrayList<>()).add(content);
+        };
+        var expected = IntStream.range(0, 50).mapToObj(String::valueOf).toList();
+
+        try (var sink = new AsyncOutputSink(delegate, 8, 4)) {
+            for (var content : expected) {
+                sink.write("a/Same.java", content);
+                sink.write("b/Other" + content + ".java", content);
+            }
+            sink.flush();
+        }
+
+        assertEquals(expected, writes.get("a/Same.java"));
+        assertEquals(51, writes.size());
+    }
+
+    @Test
+    void rethrowWriteFailuresOnFlush() {
+        var sink = new AsyncOutputSink((relativePath, content) -> {
+            throw new IllegalStateException("Disk full");
+        }, 8, 2);
+
+        sink.write("Order.java", "");
+        var exception = assertThrows(IllegalStateException.class, sink::flush);
+        assertEquals("Disk full", exception.getMessage());
+        assertThrows(IllegalStateException.class, () -> sink.write("Item.java", ""));
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
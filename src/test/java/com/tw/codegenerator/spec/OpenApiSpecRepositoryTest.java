@@ -0,0 +1,94 @@
+package com.tw.codegenerator.spec;
+
+import com.tw.codegenerator.utils.ContentHash;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+class OpenApiSpecRepositoryTest {
+
+    static final String ROOT = """
+        openapi: 3.0.0
+        info:
+          title: Order
+          version: '1.0'
+        paths:
+          /orders:
+            get:
+              summary: GetOrders
+              responses:
+                '200':
+                  description: OK
+                  content:
+                    application/json:
+                      schema:
+                        $ref: './schemas/order.yaml#/Order'
+        """;
+
+    static final String ORDER = """
+        Order:
+          type: object
+          properties:
+            id:
+              type: string
+            total_price:
+              $ref: "money.yaml#/Money"
+        """;
+
+    @Test
+    void parseAgainWhenAReferencedFileChanges(@TempDir Path directory) throws Exception {
+        var root = write(directory.resolve("order-api.yaml"), ROOT);
+        write(directory.resolve("schemas/order.yaml"), ORDER);
+        var money = write(directory.resolve("schemas/money.yaml"), money("amount"));
+        var repository = new OpenApiSpecRepository();
+
+        var parsed = repository.get(root.toString());
+        assertSame(parsed, repository.get(root.toString()));
+
+        write(money, money("value"));
+        var reparsed = repository.get(root.toString());
+        assertNotSame(parsed, reparsed);
+        assertEquals("value", reparsed.getComponents().getSchemas().get("Money").getProperties().keySet().iterator().next());
+    }
+
+    @Test
+    void hashSpecsWithoutReferencesByTheirContent(@TempDir Path directory) throws Exception {
+        var spec = write(directory.resolve("order-api.yaml"), ROOT.replace("./schemas/order.yaml#/Order", "#/components/schemas/Order"));
+        var repository = new OpenApiSpecRepository();
+
+        assertEquals(ContentHash.sha256(Files.readAllBytes(spec)), repository.hashOf(spec.toString()));
+    }
+
+    @Test
+    void hashSpecsWithMissingReferences(@TempDir Path directory) throws Exception {
+        var root = write(directory.resolve("order-api.yaml"), ROOT);
+        var repository = new OpenApiSpecRepository();
+
+        // the parser reports the missing file
+        var hash = repository.hashOf(root.toString());
+        write(directory.resolve("schemas/order.yaml"), ORDER);
+        assertNotEquals(hash, repository.hashOf(root.toString()));
+    }
+
+    private static String money(String property) {
+        return """
+            Money:
+              type: object
+              properties:
+                %s:
+                  type: number
+            """.formatted(property);
+    }
+
+    private static Path write(Path file, String content) throws Exception {
+        Files.createDirectories(file.getParent());
+        return Files.writeString(file, content);
+    }
+}
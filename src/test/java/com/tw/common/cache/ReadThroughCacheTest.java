@@ -0,0 +1,136 @@
+package com.tw.common.cache;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ReadThroughCacheTest {
+
+    final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+    final AtomicLong now = new AtomicLong();
+
+    final ReadThroughCache<Integer, String> cache = new ReadThroughCache<>("test", 2, Duration.ofMinutes(1), registry, now::get);
+
+    final ExecutorService executor = Executors.newFixedThreadPool(2);
+
+    @AfterEach
+    void shutdownExecutor() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void evictLeastRecentlyUsed() {
+        cache.get(1, String::valueOf);
+        assertEquals("1", cache.get(1, key -> "reloaded"));
+        cache.get(2, String::valueOf);
+        cache.get(1, String::valueOf);
+        cache.get(3, String::valueOf);
+
+        assertEquals("1", cache.get(1, key -> "reloaded"));
+        assertEquals("reloaded", cache.get(2, key -> "reloaded"));
+        assertEquals(2, cache.size());
+        assertEquals(3, registry.get("cache.gets").tag("result", "hit").counter().count());
+        assertEquals(4, registry.get("cache.gets").tag("result", "miss").counter().count());
+        assertEquals(2, registry.get("cache.evictions").counter().count());
+        assertEquals(2, registry.get("cache.size").gauge().value());
+    }
+
+    @Test
+    void expireAfterTimeToLive() {
+        cache.get(1, String::valueOf);
+        now.addAndGet(Duration.ofMinutes(1).toNanos() - 1);
+        assertEquals("1", cache.get(1, key -> "reloaded"));
+
+        now.incrementAndGet();
+        assertEquals("reloaded", cache.get(1, key -> "reloaded"));
+        assertEquals(1, registry.get("cache.evictions").counter().count());
+    }
+
+    @Test
+    void reloadAfterInvalidate() {
+        cache.get(1, String::valueOf);
+        cache.invalidate(1);
+
+        assertEquals("reloaded", cache.get(1, key -> "reloaded"));
+        assertEquals("reloaded", cache.get(1, String::valueOf));
+    }
+
+    @Test
+    void cacheNothingWhenTheLoaderFails() {
+        assertThrows(IllegalStateException.class, () -> cache.get(1, key -> {
+            throw new IllegalStateException();
+        }));
+        cache.get(1, key -> null);
+
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    void dropLoadsOverlappingAnInvalidateOfTheirKey() throws Exception {
+        var loading = new CountDownLatch(2);
+        var invalidated = new CountDownLatch(1);
+        var stale = CompletableFuture.supplyAsync(() -> cache.get(1, key -> awaitLoad(loading, invalidated, "stale")), executor);
+        var other = CompletableFuture.supplyAsync(() -> cache.get(2, key -> awaitLoad(loading, invalidated, "other")), executor);
+        assertTrue(loading.await(10, TimeUnit.SECONDS));
+
+        // the write of 1 commits while both are read
+        cache.invalidate(1);
+        invalidated.countDown();
+
+        assertEquals("stale", stale.get(10, TimeUnit.SECONDS));
+        assertEquals("other", other.get(10, TimeUnit.SECONDS));
+        assertEquals("fresh", cache.get(1, key -> "fresh"));
+        assertEquals("other", cache.get(2, key -> "reloaded"));
+    }
+
+    @Test
+    void shareOneLoadPerKey() throws Exception {
+        var loads = new AtomicInteger();
+        var loading = new CountDownLatch(1);
+        var done = new CountDownLatch(1);
+        var first = CompletableFuture.supplyAsync(() -> cache.get(1, key -> {
+            loads.incrementAndGet();
+            return awaitLoad(loading, done, "1");
+        }), executor);
+        assertTrue(loading.await(10, TimeUnit.SECONDS));
+
+        var second = CompletableFuture.supplyAsync(() -> cache.get(1, key -> {
+            loads.incrementAndGet();
+            return "second";
+        }), executor);
+        // the second get is a miss waiting for the first load
+        while (registry.get("cache.gets").tag("result", "miss").counter().count() < 2) {
+            Thread.onSpinWait();
+        }
+        done.countDown();
+
+        assertEquals("1", first.get(10, TimeUnit.SECONDS));
+        assertEquals("1", second.get(10, TimeUnit.SECONDS));
+        assertEquals(1, loads.get());
+    }
+
+    private static String awaitLoad(CountDownLatch loading, CountDownLatch release, String value) {
+        loading.countDown();
+        try {
+            assertTrue(release.await(10, TimeUnit.SECONDS));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+        return value;
+    }
+}
@@ -0,0 +1,54 @@
+package com.tw.common.criteria;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class EntityFieldTableTest {
+
+    @Test
+    void resolveFieldsOfSuperClasses() {
+        var fields = EntityFieldTable.of(TestOrder.class);
+
+        assertEquals(new EntityFieldTable.EntityField(null, "id", Long.class), fields.resolve("id"));
+        assertEquals(new EntityFieldTable.EntityField(null, "createdDate", Instant.class), fields.resolve("createdDate"));
+    }
+
+    @Test
+    void resolveFieldsOfTheEntityBeforeFieldsOfItsChildren() {
+        // items have a status as well
+        var status = EntityFieldTable.of(TestOrder.class).resolve("status");
+
+        assertFalse(status.isChild());
+        assertEquals(new EntityFieldTable.EntityField(null, "status", String.class), status);
+    }
+
+    @Test
+    void resolveFieldsOfCollectionElements() {
+        var fields = EntityFieldTable.of(TestOrder.class);
+
+        assertEquals(new EntityFieldTable.EntityField("orderItems", "productName", String.class), fields.resolve("productName"));
+        assertEquals(new EntityFieldTable.EntityField("orderItems", "quantity", int.class), fields.resolve("quantity"));
+        assertEquals(String.class, EntityFieldTable.of(TestOrder.class).typeOf("customer.name"));
+    }
+
+    @Test
+    void rejectUnknownFields() {
+        var fields = EntityFieldTable.of(TestOrder.class);
+
+        var exception = assertThrows(IllegalArgumentException.class, () -> fields.resolve("unknown"));
+        assertEquals("Can not find field unknown of TestOrder", exception.getMessage());
+        assertThrows(IllegalArgumentException.class, () -> fields.pathOf("customer.unknown"));
+        assertThrows(IllegalArgumentException.class, () -> fields.pathOf("orderItems.productName"));
+    }
+
+    @Test
+    void buildOneTablePerClass() {
+        assertSame(EntityFieldTable.of(TestOrder.class), EntityFieldTable.of(TestOrder.class));
+    }
+}
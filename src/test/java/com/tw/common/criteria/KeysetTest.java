@@ -0,0 +1,60 @@
+package com.tw.common.criteria;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Sort;
+
+import java.time.Instant;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class KeysetTest {
+
+    @Test
+    void breakTiesByIdInTheLastDirection() {
+        assertEquals(Sort.by(Sort.Order.desc("createdDate").nullsLast(), Sort.Order.desc("id")),
+            Keyset.first(Sort.by(Sort.Direction.DESC, "createdDate"), 20).sort());
+        // an id already in the sort is not repeated
+        assertEquals(Sort.by(Sort.Order.desc("id").nullsLast(), Sort.Order.asc("createdDate").nullsFirst()),
+            Keyset.first(Sort.by(Sort.Order.desc("id"), Sort.Order.asc("createdDate").nullsFirst()), 20).sort());
+        assertEquals(Sort.by("id"), Keyset.first(Sort.unsorted(), 20).sort());
+        assertThrows(IllegalArgumentException.class, () -> Keyset.first(Sort.unsorted(), 0));
+    }
+
+    @Test
+    void rejectSortsIgnoringCase() {
+        var exception = assertThrows(IllegalArgumentException.class, () -> Keyset.first(Sort.by(Sort.Order.asc("customerName").ignoreCase()), 20));
+        assertEquals("Keyset can not sort customerName ignoring case", exception.getMessage());
+    }
+
+    @Test
+    void decodeTokensOfTheSameSort() {
+        var keyset = Keyset.first(Sort.by(Sort.Direction.DESC, "createdDate"), 20);
+
+        var token = ContinuationToken.of(keyset.sort(), new Row(42L, Instant.parse("2023-08-01T00:00:00Z")));
+        assertEquals(List.of("2023-08-01T00:00:00Z", "42"), ContinuationToken.decode(token, keyset.after(token).sort()));
+        assertThrows(IllegalArgumentException.class, () -> ContinuationToken.decode(token, Sort.by("id")));
+        assertThrows(IllegalArgumentException.class, () -> ContinuationToken.decode("not a token", keyset.sort()));
+    }
+
+    public static class Row {
+
+        private final Long id;
+
+        private final Instant createdDate;
+
+        Row(Long id, Instant createdDate) {
+            this.id = id;
+            this.createdDate = createdDate;
+        }
+
+        public Long getId() {
+            return id;
+        }
+
+        public Instant getCreatedDate() {
+            return createdDate;
+        }
+    }
+}
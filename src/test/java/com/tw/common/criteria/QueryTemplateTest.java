@@ -0,0 +1,259 @@
+package com.tw.common.criteria;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+
+import java.beans.ConstructorProperties;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class QueryTemplateTest {
+
+    static TestDatabase database;
+
+    @BeforeAll
+    static void createDatabase() {
+        database = TestDatabase.create("query-template");
+    }
+
+    @AfterAll
+    static void closeDatabase() {
+        database.close();
+    }
+
+    @Test
+    void shareShapesOfConditionsInAnyOrder() {
+        var first = new QuerySchema(new Condition("status", "PAID"), new Condition("customerName", "Li", ComparatorOperator.LIKE));
+        var second = new QuerySchema(new Condition("customerName", "Yuan", ComparatorOperator.LIKE), new Condition("status", "SHIPPED"));
+        var third = new QuerySchema(new Condition("customerName", "Yuan", ComparatorOperator.LIKE), new Condition("status", null));
+
+        assertEquals(first.getShape(), second.getShape());
+        assertEquals("customerName", second.getNormalizedConditions().get(0).getFieldName());
+        // a null value compiles to "is null", so it is another shape
+        assertNotEquals(first.getShape(), third.getShape());
+        assertSame(SpecificationBuilder.template(TestOrder.class, null, first.getShape(), Sort.unsorted(), null),
+            SpecificationBuilder.template(TestOrder.class, null, second.getShape(), Sort.unsorted(), null));
+    }
+
+    @Test
+    void compileRootConditions() {
+        var querySchema = new QuerySchema(new Condition("total", 100), new Condition("status", List.of("PAID", "SHIPPED"), ComparatorOperator.IN),
+            new Condition("customerName", "Li", ComparatorOperator.LIKE));
+        var template = compile(querySchema, Sort.unsorted(), null);
+
+        assertEquals("select e from TestOrder e where (e.customerName like :p0 and e.status in :p1 and e.total = :p2)", template.selectQuery());
+        assertEquals("select count(e) from TestOrder e where (e.customerName like :p0 and e.status in :p1 and e.total = :p2)", template.countQuery());
+        assertEquals(List.of(database.orderId(0)), select(template, querySchema));
+        assertEquals(1L, count(template, querySchema));
+    }
+
+    @Test
+    void bindLikeAndNullValues() {
+        var like = new QuerySchema(new Condition("customerName", "Li", ComparatorOperator.LIKE));
+        assertEquals(List.of(database.orderId(0), database.orderId(2)), select(compile(like, Sort.by("id"), null), like));
+
+        var ignoreCase = new QuerySchema(new Condition("customerName", "yUAN", ComparatorOperator.EQUAL_IGNORE_CASE));
+        assertEquals(List.of(database.orderId(1)), select(compile(ignoreCase, Sort.unsorted(), null), ignoreCase));
+
+        var noCustomer = new QuerySchema(new Condition("customer", null));
+        var template = compile(noCustomer, Sort.unsorted(), null);
+        assertEquals("select e from TestOrder e where (e.customer is null)", template.selectQuery());
+        assertEquals(List.of(database.orderId(1)), select(template, noCustomer));
+    }
+
+    @Test
+    void checkChildConditionsInOneExistsSubquery() {
+        var querySchema = new QuerySchema(new Condition("productName", "apple"), new Condition("quantity", 5));
+        var template = compile(querySchema, Sort.unsorted(), null);
+
+        assertEquals("select e from TestOrder e where (exists (select 1 from e.orderItems orderItems_ "
+            + "where orderItems_.productName = :p0 and orderItems_.quantity = :p1))", template.selectQuery());
+        // the first order has an apple and five pears, but no five apples
+        assertEquals(List.of(database.orderId(1)), select(template, querySchema));
+    }
+
+    @Test
+    void matchNothingForOrWithoutConditions() {
+        var querySchema = new QuerySchema(LogicalOperator.OR, List.of());
+        var template = compile(querySchema, Sort.unsorted(), null);
+
+        assertEquals("select e from TestOrder e where (1 = 0)", template.selectQuery());
+        assertTrue(select(template, querySchema).isEmpty());
+    }
+
+    @Test
+    void leftJoinAssociationsOfSortProperties() {
+        var querySchema = new QuerySchema();
+        var template = compile(querySchema, Sort.by(Sort.Order.asc("customer.name").nullsLast(), Sort.Order.asc("id")), null);
+
+        assertEquals("select e from TestOrder e left join e.customer j0 order by j0.name asc nulls last, e.id asc", template.selectQuery());
+        // the order without a customer is not dropped
+        assertEquals(List.of(database.orderId(0), database.orderId(2), database.orderId(1)), select(template, querySchema));
+    }
+
+    @Test
+    void rejectInvalidSortProperties() {
+        var shape = new QuerySchema().getShape();
+        var templates = SpecificationBuilder.templateCount();
+
+        assertThrows(IllegalArgumentException.class, () -> SpecificationBuilder.template(TestOrder.class, null, shape, Sort.by("unknown"), null));
+        assertThrows(IllegalArgumentException.class, () -> SpecificationBuilder.template(TestOrder.class, null, shape, Sort.by("total desc, 1"), null));
+        assertThrows(IllegalArgumentException.class, () -> SpecificationBuilder.template(TestOrder.class, null, shape, Sort.by("orderItems.productName"), null));
+        assertEquals(templates, SpecificationBuilder.templateCount());
+    }
+
+    @Test
+    void capTemplates() {
+        var conditions = new ArrayList<Condition>();
+        for (int index = 0; index <= SpecificationBuilder.MAX_TEMPLATES; index++) {
+            conditions.add(new Condition("total", index));
+            var shape = new QuerySchema(conditions).getShape();
+            assertSame(SpecificationBuilder.template(TestOrder.class, null, shape, Sort.unsorted(), null),
+                SpecificationBuilder.template(TestOrder.class, null, shape, Sort.unsorted(), null));
+        }
+
+        assertTrue(SpecificationBuilder.templateCount() <= SpecificationBuilder.MAX_TEMPLATES);
+    }
+
+    @Test
+    void compileKeysetPredicate() {
+        var querySchema = new QuerySchema(new Condition("status", "PAID"));
+        var keyset = Keyset.first(Sort.by(Sort.Direction.DESC, "total"), 10);
+        var template = compile(querySchema, keyset.sort(), new BitSet());
+
+        assertEquals("select e from TestOrder e where (e.status = :p0) and (((e.total < :k0 or e.total is null)) or (e.total = :k0 and e.id < :k1)) "
+            + "order by e.total desc nulls last, e.id desc", template.selectQuery());
+        try (var entityManager = database.createEntityManager()) {
+            var query = template.bind(entityManager.createQuery(template.selectQuery(), TestOrder.class), querySchema.getNormalizedConditions());
+            var rows = template.bindKeys(query, List.of("100", String.valueOf(database.orderId(0)))).getResultList();
+            assertEquals(List.of(database.orderId(2)), rows.stream().map(TestOrder::getId).toList());
+        }
+    }
+
+    @Test
+    void pageThroughTiesByKeyset() {
+        // two PAID orders and one UNPAID, the tie on status is broken by id
+        var paid = new ArrayList<>(List.of(database.orderId(0), database.orderId(2)));
+        Collections.sort(paid);
+        paid.add(database.orderId(1));
+        assertEquals(paid, pageByKeyset(Sort.by("status"), 1));
+    }
+
+    @Test
+    void pageThroughNullKeysByKeyset() {
+        // the second order has no customer
+        assertEquals(List.of(database.orderId(0), database.orderId(2), database.orderId(1)), pageByKeyset(Sort.by("customer.name"), 1));
+        assertEquals(List.of(database.orderId(1), database.orderId(0), database.orderId(2)),
+            pageByKeyset(Sort.by(Sort.Order.asc("customer.name").nullsFirst()), 1));
+        assertEquals(List.of(database.orderId(2), database.orderId(0), database.orderId(1)),
+            pageByKeyset(Sort.by(Sort.Direction.DESC, "customer.name"), 2));
+    }
+
+    @Test
+    void compileKeysetPredicateOfNullKeys() {
+        var querySchema = new QuerySchema();
+        var nullKeys = new BitSet();
+        nullKeys.set(0);
+
+        var nullsLast = compile(querySchema, Keyset.first(Sort.by("customer.name"), 10).sort(), nullKeys);
+        assertEquals("select e from TestOrder e left join e.customer j0 where ((j0.name is null and e.id > :k1)) "
+            + "order by j0.name asc nulls last, e.id asc", nullsLast.selectQuery());
+        var nullsFirst = compile(querySchema, Keyset.first(Sort.by(Sort.Order.asc("customer.name").nullsFirst()), 10).sort(), nullKeys);
+        assertEquals("select e from TestOrder e left join e.customer j0 where ((j0.name is not null) or (j0.name is null and e.id > :k1)) "
+            + "order by j0.name asc nulls first, e.id asc", nullsFirst.selectQuery());
+        try (var entityManager = database.createEntityManager()) {
+            var keyValues = Arrays.asList(null, String.valueOf(database.orderId(1)));
+            assertTrue(nullsLast.bindKeys(entityManager.createQuery(nullsLast.selectQuery(), TestOrder.class), keyValues).getResultList().isEmpty());
+            assertEquals(2, nullsFirst.bindKeys(entityManager.createQuery(nullsFirst.selectQuery(), TestOrder.class), keyValues).getResultList().size());
+        }
+    }
+
+    @Test
+    void rejectNullKeysOfSortsWithoutNullHandling() {
+        var row = new TestOrder("PAID", "Li", null, null);
+        var token = ContinuationToken.of(Sort.by(Sort.Order.asc("total").nullsLast()), row);
+
+        assertEquals(Arrays.asList((String) null), ContinuationToken.decode(token, Sort.by(Sort.Order.asc("total").nullsLast())));
+        assertThrows(IllegalArgumentException.class, () -> ContinuationToken.decode(token, Sort.by("total")));
+        assertThrows(IllegalStateException.class, () -> ContinuationToken.of(Sort.by("total"), row));
+    }
+
+    @Test
+    void selectProjectionsByConstructor() {
+        var querySchema = new QuerySchema(PageRequest.of(0, 2, Sort.by("id")), new Condition("status", "PAID"));
+        var template = QueryTemplate.compile(TestOrder.class, TestOrderSummary.class, querySchema.getShape(), Sort.by("id"), null);
+
+        assertEquals("select new com.tw.common.criteria.TestOrderSummary(e.id, e.status, e.total) from TestOrder e "
+            + "where (e.status = :p0) order by e.id asc", template.selectQuery());
+        try (var entityManager = database.createEntityManager()) {
+            var page = SpecificationQueries.findProjections(entityManager, TestOrder.class, TestOrderSummary.class, querySchema);
+            assertEquals(List.of(database.orderId(0), database.orderId(2)), page.map(TestOrderSummary::getId).getContent());
+            assertEquals(List.of(100, 70), page.map(TestOrderSummary::getTotal).getContent());
+            assertEquals(2, page.getTotalElements());
+        }
+    }
+
+    @Test
+    void rejectProjectionsOfChildColumns() {
+        var shape = new QuerySchema().getShape();
+
+        var child = assertThrows(IllegalArgumentException.class,
+            () -> QueryTemplate.compile(TestOrder.class, ItemSummary.class, shape, Sort.unsorted(), null));
+        assertEquals("Projection %s can not select productName of a collection".formatted(ItemSummary.class.getName()), child.getMessage());
+        assertThrows(IllegalArgumentException.class, () -> QueryTemplate.compile(TestOrder.class, String.class, shape, Sort.unsorted(), null));
+    }
+
+    private static List<Long> pageByKeyset(Sort sort, int size) {
+        var keyset = Keyset.first(sort, size);
+        var ids = new ArrayList<Long>();
+        try (var entityManager = database.createEntityManager()) {
+            KeysetSlice<TestOrder> slice;
+            do {
+                slice = SpecificationQueries.findKeysetSlice(entityManager, TestOrder.class, new QuerySchema(keyset, List.of()));
+                slice.getContent().forEach(order -> ids.add(order.getId()));
+                keyset = keyset.after(slice.getContinuationToken());
+            } while (slice.hasNext());
+        }
+        return ids;
+    }
+
+    private static QueryTemplate compile(QuerySchema querySchema, Sort sort, BitSet nullKeys) {
+        return QueryTemplate.compile(TestOrder.class, null, querySchema.getShape(), sort, nullKeys);
+    }
+
+    private static List<Long> select(QueryTemplate template, QuerySchema querySchema) {
+        try (var entityManager = database.createEntityManager()) {
+            return template.bind(entityManager.createQuery(template.selectQuery(), TestOrder.class), querySchema.getNormalizedConditions())
+                .getResultList()
+                .stream()
+                .map(TestOrder::getId)
+                .toList();
+        }
+    }
+
+    private static long count(QueryTemplate template, QuerySchema querySchema) {
+        try (var entityManager = database.createEntityManager()) {
+            return template.bind(entityManager.createQuery(template.countQuery(), Long.class), querySchema.getNormalizedConditions())
+                .getSingleResult();
+        }
+    }
+
+    public static class ItemSummary {
+
+        @ConstructorProperties({"id", "productName"})
+        public ItemSummary(Long id, String productName) {
+        }
+    }
+}
@@ -0,0 +1,173 @@
+package com.tw.common.criteria;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.JoinType;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SpecificationBuilderTest {
+
+    static TestDatabase database;
+
+    @BeforeAll
+    static void createDatabase() {
+        database = TestDatabase.create("specification-builder");
+    }
+
+    @AfterAll
+    static void closeDatabase() {
+        database.close();
+    }
+
+    @Test
+    void matchChildConditionsOnOneChildUnderAnd() {
+        // the first order has an apple and five pears, but no five apples
+        var querySchema = new QuerySchema(new Condition("productName", "apple"), new Condition("quantity", 5));
+
+        var query = query(SpecificationBuilder.build(querySchema));
+        assertEquals(List.of(database.orderId(1)), ids(query));
+        assertFalse(query.criteriaQuery().isDistinct());
+    }
+
+    @Test
+    void matchChildConditionsOnAnyChildUnderOr() {
+        // both items of the first order match, it is still selected once
+        var querySchema = new QuerySchema(LogicalOperator.OR, new Condition("productName", "apple"), new Condition("quantity", 5));
+
+        var query = query(SpecificationBuilder.build(querySchema));
+        assertEquals(List.of(database.orderId(0), database.orderId(1)), ids(query));
+        assertFalse(query.criteriaQuery().isDistinct());
+    }
+
+    @Test
+    void combineRootAndChildConditions() {
+        // status is a field of the order and of its items, the order wins
+        var and = new QuerySchema(new Condition("status", "PAID"), new Condition("productName", "apple"));
+        assertEquals(List.of(database.orderId(0)), ids(query(SpecificationBuilder.build(and))));
+
+        // the last order has no items, under OR it is not dropped
+        var or = new QuerySchema(LogicalOperator.OR, new Condition("status", "PAID"), new Condition("productName", "apple"));
+        assertEquals(List.of(database.orderId(0), database.orderId(2), database.orderId(1)), ids(query(SpecificationBuilder.build(or))));
+    }
+
+    @Test
+    void distinctRowsOfCollectionJoinsOfOtherSpecifications() {
+        Specification<TestOrder> join = (root, query, criteriaBuilder) -> {
+            root.join("orderItems", JoinType.LEFT);
+            return null;
+        };
+
+        var query = query(join.and(SpecificationBuilder.build(new QuerySchema(new Condition("status", "PAID")))));
+        assertTrue(query.criteriaQuery().isDistinct());
+        assertEquals(List.of(database.orderId(0), database.orderId(2)), ids(query));
+    }
+
+    @Test
+    void rejectSortsThroughCollections() {
+        var specification = SpecificationBuilder.<TestOrder>build(new QuerySchema(PageRequest.of(0, 10, Sort.by("orderItems.productName"))));
+
+        try (var entityManager = database.createEntityManager()) {
+            var criteriaBuilder = entityManager.getCriteriaBuilder();
+            var query = criteriaBuilder.createQuery(TestOrder.class);
+            var root = query.from(TestOrder.class);
+            assertThrows(IllegalArgumentException.class, () -> specification.toPredicate(root, query, criteriaBuilder));
+        }
+    }
+
+    @Test
+    void breakTiesOfTheFirstKeyById() {
+        // two PAID orders, the token of the first one leaves the second and the UNPAID order
+        var paid = new ArrayList<>(List.of(database.orderId(0), database.orderId(2)));
+        Collections.sort(paid);
+        var keyset = Keyset.first(Sort.by("status"), 1);
+        var token = ContinuationToken.of(keyset.sort(), find(paid.get(0)));
+
+        var rows = select(SpecificationBuilder.build(new QuerySchema(keyset.after(token), List.of())));
+        assertEquals(List.of(paid.get(1), database.orderId(1)), rows);
+    }
+
+    @Test
+    void seekAfterNullKeys() {
+        var row = new TestOrder("PAID", "Li", null, null);
+        var nullsLast = Keyset.first(Sort.by("total"), 1);
+        var nullsFirst = Keyset.first(Sort.by(Sort.Order.asc("total").nullsFirst()), 1);
+
+        // nothing is after a null total sorted last, every total is after a null total sorted first
+        assertTrue(select(SpecificationBuilder.build(new QuerySchema(nullsLast.after(ContinuationToken.of(nullsLast.sort(), withId(row))),
+            List.of()))).isEmpty());
+        assertEquals(3, select(SpecificationBuilder.build(new QuerySchema(nullsFirst.after(ContinuationToken.of(nullsFirst.sort(), withId(row))),
+            List.of()))).size());
+    }
+
+    @Test
+    void seekTheRowsOfTheQueryTemplate() {
+        var sorts = List.of(Sort.by("total"), Sort.by(Sort.Order.desc("total").nullsFirst()), Sort.by("customer.name"),
+            Sort.by(Sort.Order.desc("status"), Sort.Order.asc("customer.name").nullsFirst()));
+        var rows = new ArrayList<>(List.of(new TestOrder("PAID", "Li", null, null)));
+        for (int index = 0; index < 3; index++) {
+            rows.add(find(database.orderId(index)));
+        }
+        for (var sort : sorts) {
+            var keyset = Keyset.first(sort, 10);
+            for (var row : rows) {
+                var after = keyset.after(ContinuationToken.of(keyset.sort(), row.getId() == null ? withId(row) : row));
+                List<Long> expected;
+                try (var entityManager = database.createEntityManager()) {
+                    expected = SpecificationQueries.findKeysetSlice(entityManager, TestOrder.class, new QuerySchema(after, List.of()))
+                        .map(TestOrder::getId).getContent();
+                }
+                var actual = select(SpecificationBuilder.build(new QuerySchema(after, List.of())));
+                assertEquals(new HashSet<>(expected), new HashSet<>(actual), () -> sort + " after " + row.getId());
+            }
+        }
+    }
+
+    private static TestOrder withId(TestOrder row) {
+        row.setId(Long.MAX_VALUE);
+        return row;
+    }
+
+    private static TestOrder find(Long id) {
+        try (var entityManager = database.createEntityManager()) {
+            return entityManager.find(TestOrder.class, id);
+        }
+    }
+
+    private static List<Long> select(Specification<TestOrder> specification) {
+        return ids(query(specification));
+    }
+
+    private record Query(EntityManager entityManager, CriteriaQuery<TestOrder> criteriaQuery) {
+    }
+
+    private static Query query(Specification<TestOrder> specification) {
+        var entityManager = database.createEntityManager();
+        var criteriaBuilder = entityManager.getCriteriaBuilder();
+        var query = criteriaBuilder.createQuery(TestOrder.class);
+        var root = query.from(TestOrder.class);
+        query.where(specification.toPredicate(root, query, criteriaBuilder))
+            .orderBy(criteriaBuilder.asc(root.get("status")), criteriaBuilder.asc(root.get("id")));
+        return new Query(entityManager, query);
+    }
+
+    private static List<Long> ids(Query query) {
+        try (var entityManager = query.entityManager()) {
+            return entityManager.createQuery(query.criteriaQuery()).getResultList().stream().map(TestOrder::getId).toList();
+        }
+    }
+}
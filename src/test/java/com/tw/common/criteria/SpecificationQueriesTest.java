@@ -0,0 +1,99 @@
+package com.tw.common.criteria;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SpecificationQueriesTest {
+
+    static TestDatabase database;
+
+    @BeforeAll
+    static void createDatabase() {
+        database = TestDatabase.create("specification-queries");
+    }
+
+    @AfterAll
+    static void closeDatabase() {
+        database.close();
+    }
+
+    @Test
+    void fetchOneMoreRowThanTheSlice() {
+        var slice = findSlice(PageRequest.of(0, 2, Sort.by("id")));
+
+        // the third order only tells that there is a next slice
+        assertEquals(List.of(database.orderId(0), database.orderId(1)), ids(slice));
+        assertTrue(slice.hasNext());
+        assertEquals(3, fetchedRows());
+    }
+
+    @Test
+    void endSliceHoldingExactlyTheRemainingRows() {
+        var slice = findSlice(PageRequest.of(0, 3, Sort.by("id")));
+
+        assertEquals(List.of(database.orderId(0), database.orderId(1), database.orderId(2)), ids(slice));
+        assertFalse(slice.hasNext());
+        assertEquals(3, fetchedRows());
+    }
+
+    @Test
+    void endLastSlice() {
+        var slice = findSlice(PageRequest.of(1, 2, Sort.by("id")));
+
+        assertEquals(List.of(database.orderId(2)), ids(slice));
+        assertFalse(slice.hasNext());
+        assertEquals(1, fetchedRows());
+    }
+
+    @Test
+    void runNoCountQueryForSlices() {
+        var querySchema = new QuerySchema(PageRequest.of(0, 1, Sort.by("id")), new Condition("status", "PAID"));
+        database.statistics().clear();
+        try (var entityManager = database.createEntityManager()) {
+            SpecificationQueries.findSlice(entityManager, TestOrder.class, querySchema);
+        }
+
+        var queries = database.statistics().getQueries();
+        assertEquals(1, queries.length);
+        assertFalse(queries[0].contains("count("), queries[0]);
+    }
+
+    @Test
+    void rejectSlicesOfUnpagedQueries() {
+        var querySchema = new QuerySchema(Pageable.unpaged(), List.of());
+        try (var entityManager = database.createEntityManager()) {
+            assertThrows(IllegalArgumentException.class, () -> SpecificationQueries.findSlice(entityManager, TestOrder.class, querySchema));
+        }
+    }
+
+    private static Slice<TestOrder> findSlice(PageRequest pageRequest) {
+        database.statistics().clear();
+        try (var entityManager = database.createEntityManager()) {
+            return SpecificationQueries.findSlice(entityManager, TestOrder.class, new QuerySchema(pageRequest, List.of()));
+        }
+    }
+
+    private static long fetchedRows() {
+        var statistics = database.statistics();
+        return Arrays.stream(statistics.getQueries())
+            .mapToLong(query -> statistics.getQueryStatistics(query).getExecutionRowCount())
+            .sum();
+    }
+
+    private static List<Long> ids(Slice<TestOrder> slice) {
+        return slice.getContent().stream().map(TestOrder::getId).toList();
+    }
+}
@@ -0,0 +1,69 @@
+package com.tw.common.criteria;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TemplateCacheTest {
+
+    final ExecutorService executor = Executors.newFixedThreadPool(2);
+
+    @AfterEach
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void evictTheLeastRecentlyUsedEighth() throws Exception {
+        var cache = new TemplateCache<Integer, String>(16);
+        for (int key = 0; key < 16; key++) {
+            cache.get(key, String::valueOf);
+            Thread.sleep(1);
+        }
+        // 0 and 1 are used again, 2 and 3 are the least recently used now
+        cache.get(0, key -> "recomputed");
+        cache.get(1, key -> "recomputed");
+
+        cache.get(16, String::valueOf);
+
+        assertEquals(14, cache.size());
+        assertEquals("0", cache.get(0, key -> "recomputed"));
+        assertEquals("recomputed", cache.get(2, key -> "recomputed"));
+    }
+
+    @Test
+    void hitWhileAnotherKeyIsComputed() throws Exception {
+        var cache = new TemplateCache<String, Object>(16);
+        var cached = cache.get("cached", key -> new Object());
+        var computing = new CountDownLatch(1);
+        var release = new CountDownLatch(1);
+        var slow = executor.submit(() -> cache.get("slow", key -> {
+            computing.countDown();
+            await(release);
+            return new Object();
+        }));
+        assertTrue(computing.await(5, TimeUnit.SECONDS));
+
+        var hit = executor.submit(() -> cache.get("cached", key -> new Object()));
+        assertSame(cached, hit.get(5, TimeUnit.SECONDS));
+
+        release.countDown();
+        assertSame(slow.get(5, TimeUnit.SECONDS), cache.get("slow", key -> new Object()));
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
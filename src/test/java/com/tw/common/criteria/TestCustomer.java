@@ -0,0 +1,21 @@
+package com.tw.common.criteria;
+
+import com.tw.common.seedwork.BaseEntity;
+import jakarta.persistence.Entity;
+
+@Entity
+public class TestCustomer extends BaseEntity {
+
+    private String name;
+
+    protected TestCustomer() {
+    }
+
+    public TestCustomer(String name) {
+        this.name = name;
+    }
+
+    public String getName() {
+        return name;
+    }
+}
@@ -0,0 +1,80 @@
+package com.tw.common.criteria;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.cfg.Configuration;
+import org.hibernate.stat.Statistics;
+
+import java.util.List;
+
+/**
+ * In-memory H2 database holding three orders of the test entities:
+ * <ol>
+ *     <li>PAID, customer name Li, total 100, customer Ann, items apple SHIPPED 1 and pear PENDING 5</li>
+ *     <li>UNPAID, customer name Yuan, total 50, no customer, item apple PENDING 5</li>
+ *     <li>PAID, customer name Liu, total 70, customer Bob, no items</li>
+ * </ol>
+ */
+final class TestDatabase implements AutoCloseable {
+
+    private final EntityManagerFactory entityManagerFactory;
+
+    private final List<TestOrder> orders;
+
+    private TestDatabase(EntityManagerFactory entityManagerFactory, List<TestOrder> orders) {
+        this.entityManagerFactory = entityManagerFactory;
+        this.orders = orders;
+    }
+
+    static TestDatabase create(String name) {
+        var entityManagerFactory = new Configuration()
+            .addAnnotatedClass(TestCustomer.class)
+            .addAnnotatedClass(TestOrder.class)
+            .addAnnotatedClass(TestOrderItem.class)
+            .setProperty(AvailableSettings.URL, "jdbc:h2:mem:" + name + ";DB_CLOSE_DELAY=-1")
+            .setProperty(AvailableSettings.HBM2DDL_AUTO, "create-drop")
+            .setProperty(AvailableSettings.GENERATE_STATISTICS, "true")
+            .buildSessionFactory();
+
+        var orders = List.of(
+            new TestOrder("PAID", "Li", 100, new TestCustomer("Ann")).addItem("apple", "SHIPPED", 1).addItem("pear", "PENDING", 5),
+            new TestOrder("UNPAID", "Yuan", 50, null).addItem("apple", "PENDING", 5),
+            new TestOrder("PAID", "Liu", 70, new TestCustomer("Bob")));
+        var entityManager = entityManagerFactory.createEntityManager();
+        entityManager.getTransaction().begin();
+        orders.forEach(order -> {
+            if (order.getCustomer() != null) {
+                entityManager.persist(order.getCustomer());
+            }
+            entityManager.persist(order);
+        });
+        entityManager.getTransaction().commit();
+        entityManager.close();
+        return new TestDatabase(entityManagerFactory, orders);
+    }
+
+    EntityManager createEntityManager() {
+        return entityManagerFactory.createEntityManager();
+    }
+
+    /**
+     * Queries run since the last {@link Statistics#clear()}, with the rows each of them returned.
+     */
+    Statistics statistics() {
+        return entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+
+    /**
+     * Id of the order at {@code index}, 0 based in the order of the class comment.
+     */
+    Long orderId(int index) {
+        return orders.get(index).getId();
+    }
+
+    @Override
+    public void close() {
+        entityManagerFactory.close();
+    }
+}
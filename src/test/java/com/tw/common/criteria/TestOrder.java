@@ -0,0 +1,61 @@
+package com.tw.common.criteria;
+
+import com.tw.common.seedwork.BaseEntity;
+import jakarta.persistence.CascadeType;
+import jakarta.persistence.Entity;
+import jakarta.persistence.ManyToOne;
+import jakarta.persistence.OneToMany;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Entity
+public class TestOrder extends BaseEntity {
+
+    private String status;
+
+    private String customerName;
+
+    private Integer total;
+
+    @ManyToOne
+    private TestCustomer customer;
+
+    @OneToMany(mappedBy = "order", cascade = CascadeType.ALL)
+    private List<TestOrderItem> orderItems = new ArrayList<>();
+
+    protected TestOrder() {
+    }
+
+    public TestOrder(String status, String customerName, Integer total, TestCustomer customer) {
+        this.status = status;
+        this.customerName = customerName;
+        this.total = total;
+        this.customer = customer;
+    }
+
+    public TestOrder addItem(String productName, String status, int quantity) {
+        orderItems.add(new TestOrderItem(this, productName, status, quantity));
+        return this;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+
+    public String getCustomerName() {
+        return customerName;
+    }
+
+    public Integer getTotal() {
+        return total;
+    }
+
+    public TestCustomer getCustomer() {
+        return customer;
+    }
+
+    public List<TestOrderItem> getOrderItems() {
+        return orderItems;
+    }
+}
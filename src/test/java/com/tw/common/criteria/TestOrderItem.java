@@ -0,0 +1,43 @@
+package com.tw.common.criteria;
+
+import com.tw.common.seedwork.BaseEntity;
+import jakarta.persistence.Entity;
+import jakarta.persistence.ManyToOne;
+
+/**
+ * Its {@code status} has the name of a field of {@link TestOrder}.
+ */
+@Entity
+public class TestOrderItem extends BaseEntity {
+
+    @ManyToOne
+    private TestOrder order;
+
+    private String productName;
+
+    private String status;
+
+    private int quantity;
+
+    protected TestOrderItem() {
+    }
+
+    TestOrderItem(TestOrder order, String productName, String status, int quantity) {
+        this.order = order;
+        this.productName = productName;
+        this.status = status;
+        this.quantity = quantity;
+    }
+
+    public String getProductName() {
+        return productName;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+
+    public int getQuantity() {
+        return quantity;
+    }
+}
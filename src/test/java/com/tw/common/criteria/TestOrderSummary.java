@@ -0,0 +1,34 @@
+package com.tw.common.criteria;
+
+import java.beans.ConstructorProperties;
+
+/**
+ * Projection of {@link TestOrder}, top level as JPQL constructs it by its class name.
+ */
+public class TestOrderSummary {
+
+    private final Long id;
+
+    private final String status;
+
+    private final Integer total;
+
+    @ConstructorProperties({"id", "status", "total"})
+    public TestOrderSummary(Long id, String status, Integer total) {
+        this.id = id;
+        this.status = status;
+        this.total = total;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+
+    public Integer getTotal() {
+        return total;
+    }
+}